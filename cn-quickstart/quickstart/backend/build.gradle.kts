@@ -9,6 +9,7 @@ plugins {
     id("org.openapi.generator") version "7.7.0"
     id("org.springframework.boot") version "3.4.2"
     id("com.google.protobuf") version "0.9.4"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 dependencies {
@@ -16,6 +17,7 @@ dependencies {
     implementation(Deps.springBoot.jdbc)
     implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.6.0")
     implementation("org.openapitools:jackson-databind-nullable:0.2.6")
+    implementation(Deps.caffeine)
 
     implementation(Deps.transcode.codegenJavaRuntime)
     implementation(Deps.transcode.protoJava)
@@ -25,6 +27,10 @@ dependencies {
     protobuf(Deps.grpc.commonsProto)
     implementation(Deps.grpc.stub)
     implementation(Deps.grpc.protobuf)
+    implementation(Deps.grpc.netty)
+    implementation(Deps.netty.epoll)
+    runtimeOnly("${Deps.netty.epoll}:linux-x86_64")
+    runtimeOnly("${Deps.netty.epoll}:linux-aarch_64")
     if (JavaVersion.current().isJava9Compatible()) {
         // Workaround for @javax.annotation.Generated
         // see: https://github.com/grpc/grpc-java/issues/3633
@@ -37,14 +43,29 @@ dependencies {
     implementation("io.opentelemetry.instrumentation:opentelemetry-instrumentation-annotations:${Deps.opentelemetry.version}")
     implementation("net.logstash.logback:logstash-logback-encoder:8.0")
     implementation(Deps.springBoot.actuator)
+    runtimeOnly(Deps.micrometer.prometheus)
     implementation(Deps.springBoot.oauth2Client)
     implementation(Deps.springBoot.oauth2ResourceServer)
     implementation(Deps.springBoot.security)
     runtimeOnly("org.postgresql:postgresql:42.7.3")
     runtimeOnly(Deps.grpc.api)
-    runtimeOnly(Deps.grpc.netty)
 
     testImplementation(Deps.springBoot.test)
+    testImplementation(Deps.testcontainers.postgresql)
+    testImplementation(Deps.testcontainers.junitJupiter)
+}
+
+// Benchmarks in src/jmh share fixtures with the tests; run them with ./gradlew :backend:jmh
+jmh {
+    jmhVersion = "1.37"
+    includeTests = true
+    // Report allocations per operation next to the timings
+    profilers = listOf("gc")
+}
+
+tasks.withType<Test> {
+    // Run the JUnit 5 tests; the Postgres container tests disable themselves where Docker is not available
+    useJUnitPlatform()
 }
 
 repositories {
@@ -83,6 +104,11 @@ openApiGenerate {
         "skipDefaultInterface" to "true"
     )
     additionalProperties = mapOf("useSpringBoot3" to "true")
+    // The :stream endpoints write newline-delimited JSON as it is read, and :import reads it as it arrives
+    schemaMappings = mapOf(
+        "NdjsonStream" to "org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody",
+        "NdjsonUpload" to "org.springframework.core.io.InputStreamResource"
+    )
     generateApiTests = false
     generateModelTests = false
     inputSpec = "$rootDir/common/openapi.yaml"
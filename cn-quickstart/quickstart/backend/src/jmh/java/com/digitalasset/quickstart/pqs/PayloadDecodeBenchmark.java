@@ -0,0 +1,71 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import static com.digitalasset.quickstart.pqs.PayloadFixtures.invoice;
+
+import com.digitalasset.transcode.Converter;
+import com.digitalasset.transcode.codec.json.JsonStringCodec;
+import com.digitalasset.transcode.codec.proto.ProtobufCodec;
+import com.digitalasset.transcode.java.Utils;
+import com.digitalasset.transcode.schema.Identifier;
+import daml.Daml;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PayloadDecoder} against the {@link JsonStringCodec} decoding of the same invoice payload, starting from the
+ * bytes the Postgres driver received; the JSON codec path includes the String the driver builds for
+ * {@code getString}. Run with {@code ./gradlew :backend:jmh}; the gc profiler reports the allocation rate
+ * ({@code gc.alloc.rate.norm}, bytes per decoded payload) next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadDecodeBenchmark {
+
+    @Param({"5", "50", "500"})
+    int lineItems;
+
+    byte[] payload;
+    Identifier templateId;
+    Converter<String, Object> json2Dto;
+    PayloadDecoder decoder;
+
+    @Setup
+    public void setUp() {
+        payload = invoice(new Random(20261016L), lineItems);
+        templateId = Utils.getTemplateIdByClass(Invoice.class);
+        json2Dto = Utils.getConverters(new JsonStringCodec(true, true, false), Daml.ENTITIES).template(templateId);
+        decoder = new PayloadDecoder(Utils.getConverters(new ProtobufCodec(), Daml.ENTITIES), PayloadSchemas.INVOICING);
+    }
+
+    @Benchmark
+    public Object jsonString() {
+        return json2Dto.convert(new String(payload, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Object bytes() throws IOException {
+        return decoder.decode(templateId, payload);
+    }
+}
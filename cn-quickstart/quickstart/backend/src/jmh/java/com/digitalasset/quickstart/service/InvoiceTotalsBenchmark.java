@@ -0,0 +1,57 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import static com.digitalasset.quickstart.service.InvoiceTotalsFixtures.randomLineItems;
+import static com.digitalasset.quickstart.service.InvoiceTotalsFixtures.streamTotals;
+
+import org.openapitools.model.LineItemRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InvoiceTotals#of} against the stream computation it replaced, on the same random line items.
+ * Run with {@code ./gradlew :backend:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceTotalsBenchmark {
+
+    @Param({"5", "50", "500"})
+    int lineItems;
+
+    List<LineItemRequest> requested;
+
+    @Setup
+    public void setUp() {
+        requested = randomLineItems(new Random(20261016L), lineItems);
+    }
+
+    @Benchmark
+    public InvoiceTotals singlePass() {
+        return InvoiceTotals.of(requested);
+    }
+
+    @Benchmark
+    public InvoiceTotals streams() {
+        return streamTotals(requested);
+    }
+}
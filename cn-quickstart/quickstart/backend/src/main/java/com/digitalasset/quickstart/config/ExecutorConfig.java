@@ -0,0 +1,46 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.config;
+
+/**
+ * Settings of an executor built with {@link com.digitalasset.quickstart.utility.InstrumentedExecutor#create}, such as
+ * the PQS executor ({@link PqsConfig}) and the service executor ({@link ServiceConfig}).
+ */
+public class ExecutorConfig {
+
+    public enum Type {
+        /** Fixed-size platform thread pool with a bounded queue. */
+        BOUNDED,
+        /** One virtual thread per task. */
+        VIRTUAL
+    }
+
+    private Type type = Type.BOUNDED;
+    private int poolSize = 16;
+    private int queueCapacity = 1000;
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
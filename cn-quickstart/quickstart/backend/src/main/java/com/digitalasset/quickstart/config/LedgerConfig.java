@@ -6,6 +6,9 @@ package com.digitalasset.quickstart.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "ledger")
 public class LedgerConfig {
@@ -14,6 +17,13 @@ public class LedgerConfig {
     private int port = 6865;
     private String applicationId;
     private String registryBaseUri;
+    private ContractStore contractStore = new ContractStore();
+    private Completions completions = new Completions();
+    private Grpc grpc = new Grpc();
+    private Submission submission = new Submission();
+    private Admission admission = new Admission();
+    private RegistryInfo registryInfo = new RegistryInfo();
+    private BulkImport bulkImport = new BulkImport();
 
     public String getHost() {
         return host;
@@ -46,4 +56,484 @@ public class LedgerConfig {
     public void setRegistryBaseUri(String registryBaseUri) {
         this.registryBaseUri = registryBaseUri;
     }
+
+    public ContractStore getContractStore() {
+        return contractStore;
+    }
+
+    public void setContractStore(ContractStore contractStore) {
+        this.contractStore = contractStore;
+    }
+
+    public Completions getCompletions() {
+        return completions;
+    }
+
+    public void setCompletions(Completions completions) {
+        this.completions = completions;
+    }
+
+    public Grpc getGrpc() {
+        return grpc;
+    }
+
+    public void setGrpc(Grpc grpc) {
+        this.grpc = grpc;
+    }
+
+    public Submission getSubmission() {
+        return submission;
+    }
+
+    public void setSubmission(Submission submission) {
+        this.submission = submission;
+    }
+
+    /**
+     * Deadlines, retries and hedging of command submissions. Every attempt carries the same command id, so a command
+     * is executed at most once: a resubmission that reaches the participant after an earlier attempt is rejected with
+     * {@code SUBMISSION_ALREADY_IN_FLIGHT} or {@code ALREADY_EXISTS}, and the outcome of the command is then resolved
+     * through the completion stream.
+     */
+    public static class Submission {
+        private long submitDeadlineMillis = 10_000;
+        private long submitAndWaitDeadlineMillis = 60_000;
+        /** Upper bound on attempts per submission, counting the first one, retries and hedges. */
+        private int maxAttempts = 2;
+        private long retryBackoffMillis = 100;
+        private List<String> retryableStatuses = new ArrayList<>(List.of("UNAVAILABLE"));
+        /**
+         * Restrict the transaction returned for a choice result to the exercised template. Turn off only to compare
+         * against the full ledger-effects transaction through the {@code ledger.exercise.response_bytes} and
+         * {@code ledger.submission.latency} metrics.
+         */
+        private boolean leanResultFormat = true;
+        private Hedging hedging = new Hedging();
+
+        public long getSubmitDeadlineMillis() {
+            return submitDeadlineMillis;
+        }
+
+        public void setSubmitDeadlineMillis(long submitDeadlineMillis) {
+            this.submitDeadlineMillis = submitDeadlineMillis;
+        }
+
+        public long getSubmitAndWaitDeadlineMillis() {
+            return submitAndWaitDeadlineMillis;
+        }
+
+        public void setSubmitAndWaitDeadlineMillis(long submitAndWaitDeadlineMillis) {
+            this.submitAndWaitDeadlineMillis = submitAndWaitDeadlineMillis;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryBackoffMillis() {
+            return retryBackoffMillis;
+        }
+
+        public void setRetryBackoffMillis(long retryBackoffMillis) {
+            this.retryBackoffMillis = retryBackoffMillis;
+        }
+
+        public List<String> getRetryableStatuses() {
+            return retryableStatuses;
+        }
+
+        public void setRetryableStatuses(List<String> retryableStatuses) {
+            this.retryableStatuses = retryableStatuses;
+        }
+
+        public boolean isLeanResultFormat() {
+            return leanResultFormat;
+        }
+
+        public void setLeanResultFormat(boolean leanResultFormat) {
+            this.leanResultFormat = leanResultFormat;
+        }
+
+        public Hedging getHedging() {
+            return hedging;
+        }
+
+        public void setHedging(Hedging hedging) {
+            this.hedging = hedging;
+        }
+    }
+
+    /**
+     * Resending a submission that has not answered within the observed p95 latency, clamped to the given bounds.
+     * The initial delay applies until enough latencies have been recorded. A hedge only wins when the earlier attempt
+     * never reached the participant; otherwise the participant rejects it as a duplicate and the earlier attempt answers.
+     */
+    public static class Hedging {
+        private boolean enabled = false;
+        private long initialDelayMillis = 500;
+        private long minDelayMillis = 20;
+        private long maxDelayMillis = 5_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getInitialDelayMillis() {
+            return initialDelayMillis;
+        }
+
+        public void setInitialDelayMillis(long initialDelayMillis) {
+            this.initialDelayMillis = initialDelayMillis;
+        }
+
+        public long getMinDelayMillis() {
+            return minDelayMillis;
+        }
+
+        public void setMinDelayMillis(long minDelayMillis) {
+            this.minDelayMillis = minDelayMillis;
+        }
+
+        public long getMaxDelayMillis() {
+            return maxDelayMillis;
+        }
+
+        public void setMaxDelayMillis(long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+        }
+    }
+
+    public Admission getAdmission() {
+        return admission;
+    }
+
+    public void setAdmission(Admission admission) {
+        this.admission = admission;
+    }
+
+    public RegistryInfo getRegistryInfo() {
+        return registryInfo;
+    }
+
+    public void setRegistryInfo(RegistryInfo registryInfo) {
+        this.registryInfo = registryInfo;
+    }
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public void setBulkImport(BulkImport bulkImport) {
+        this.bulkImport = bulkImport;
+    }
+
+    /**
+     * Limits on ledger commands in flight, in total and per acting party, with bounded waiting queues.
+     */
+    public static class Admission {
+        private boolean enabled = true;
+        private int globalLimit = 256;
+        private int perPartyLimit = 64;
+        private int globalQueue = 1_024;
+        private int perPartyQueue = 256;
+        private long queueTimeoutMillis = 5_000;
+        private long retryAfterSeconds = 1;
+        /** How long a party with nothing in flight or queued keeps its state and per-party meters. */
+        private long idleTimeoutMillis = 300_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getGlobalLimit() {
+            return globalLimit;
+        }
+
+        public void setGlobalLimit(int globalLimit) {
+            this.globalLimit = globalLimit;
+        }
+
+        public int getPerPartyLimit() {
+            return perPartyLimit;
+        }
+
+        public void setPerPartyLimit(int perPartyLimit) {
+            this.perPartyLimit = perPartyLimit;
+        }
+
+        public int getGlobalQueue() {
+            return globalQueue;
+        }
+
+        public void setGlobalQueue(int globalQueue) {
+            this.globalQueue = globalQueue;
+        }
+
+        public int getPerPartyQueue() {
+            return perPartyQueue;
+        }
+
+        public void setPerPartyQueue(int perPartyQueue) {
+            this.perPartyQueue = perPartyQueue;
+        }
+
+        public long getQueueTimeoutMillis() {
+            return queueTimeoutMillis;
+        }
+
+        public void setQueueTimeoutMillis(long queueTimeoutMillis) {
+            this.queueTimeoutMillis = queueTimeoutMillis;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+    }
+
+    public enum ChannelSelection {
+        ROUND_ROBIN,
+        LEAST_LOADED
+    }
+
+    /**
+     * Channels to the participant's Ledger API.
+     */
+    public static class Grpc {
+        private int poolSize = 4;
+        private ChannelSelection selection = ChannelSelection.LEAST_LOADED;
+        private boolean nativeTransport = true;
+        /** Threads of the shared event loop, 0 for the Netty default. */
+        private int eventLoopThreads = 0;
+        private long keepAliveTimeMillis = 30_000;
+        private long keepAliveTimeoutMillis = 10_000;
+        private boolean keepAliveWithoutCalls = false;
+        private int maxInboundMessageSizeBytes = 64 * 1024 * 1024;
+        /** Deadline applied to unary calls that do not set one, 0 to disable. */
+        private long defaultDeadlineMillis = 30_000;
+        /** Compressor for outgoing messages, e.g. "gzip"; empty sends uncompressed. */
+        private String compression = "";
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public ChannelSelection getSelection() {
+            return selection;
+        }
+
+        public void setSelection(ChannelSelection selection) {
+            this.selection = selection;
+        }
+
+        public boolean isNativeTransport() {
+            return nativeTransport;
+        }
+
+        public void setNativeTransport(boolean nativeTransport) {
+            this.nativeTransport = nativeTransport;
+        }
+
+        public int getEventLoopThreads() {
+            return eventLoopThreads;
+        }
+
+        public void setEventLoopThreads(int eventLoopThreads) {
+            this.eventLoopThreads = eventLoopThreads;
+        }
+
+        public long getKeepAliveTimeMillis() {
+            return keepAliveTimeMillis;
+        }
+
+        public void setKeepAliveTimeMillis(long keepAliveTimeMillis) {
+            this.keepAliveTimeMillis = keepAliveTimeMillis;
+        }
+
+        public long getKeepAliveTimeoutMillis() {
+            return keepAliveTimeoutMillis;
+        }
+
+        public void setKeepAliveTimeoutMillis(long keepAliveTimeoutMillis) {
+            this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+        }
+
+        public boolean isKeepAliveWithoutCalls() {
+            return keepAliveWithoutCalls;
+        }
+
+        public void setKeepAliveWithoutCalls(boolean keepAliveWithoutCalls) {
+            this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+        }
+
+        public int getMaxInboundMessageSizeBytes() {
+            return maxInboundMessageSizeBytes;
+        }
+
+        public void setMaxInboundMessageSizeBytes(int maxInboundMessageSizeBytes) {
+            this.maxInboundMessageSizeBytes = maxInboundMessageSizeBytes;
+        }
+
+        public long getDefaultDeadlineMillis() {
+            return defaultDeadlineMillis;
+        }
+
+        public void setDefaultDeadlineMillis(long defaultDeadlineMillis) {
+            this.defaultDeadlineMillis = defaultDeadlineMillis;
+        }
+
+        public String getCompression() {
+            return compression;
+        }
+
+        public void setCompression(String compression) {
+            this.compression = compression;
+        }
+    }
+
+    /**
+     * In-memory active contract store fed from the Ledger API update stream.
+     */
+    public static class ContractStore {
+        private boolean enabled = false;
+        private long reconnectDelayMillis = 5_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getReconnectDelayMillis() {
+            return reconnectDelayMillis;
+        }
+
+        public void setReconnectDelayMillis(long reconnectDelayMillis) {
+            this.reconnectDelayMillis = reconnectDelayMillis;
+        }
+    }
+
+    /**
+     * Tracking of asynchronously submitted commands through the command completion stream. A party's stream is closed
+     * once no command of the party has been awaited for {@code idleTimeoutMillis}.
+     */
+    public static class Completions {
+        private int maxInFlight = 1_000;
+        private long timeoutMillis = 60_000;
+        private long reconnectDelayMillis = 5_000;
+        private long idleTimeoutMillis = 60_000;
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        public void setTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public long getReconnectDelayMillis() {
+            return reconnectDelayMillis;
+        }
+
+        public void setReconnectDelayMillis(long reconnectDelayMillis) {
+            this.reconnectDelayMillis = reconnectDelayMillis;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+    }
+
+    /**
+     * Caching of the token registry's info. Once it is older than {@code refreshAfterMillis}, the next read still gets
+     * the cached info and triggers a refresh in the background; if the refresh fails, the cached info is kept. Info
+     * older than {@code maxStaleMillis} is not served anymore.
+     */
+    public static class RegistryInfo {
+        private long refreshAfterMillis = 300_000;
+        private long maxStaleMillis = 3_600_000;
+
+        public long getRefreshAfterMillis() {
+            return refreshAfterMillis;
+        }
+
+        public void setRefreshAfterMillis(long refreshAfterMillis) {
+            this.refreshAfterMillis = refreshAfterMillis;
+        }
+
+        public long getMaxStaleMillis() {
+            return maxStaleMillis;
+        }
+
+        public void setMaxStaleMillis(long maxStaleMillis) {
+            this.maxStaleMillis = maxStaleMillis;
+        }
+    }
+
+    /**
+     * Bulk creation of contracts from an uploaded stream. At most {@code maxInFlight} submissions of one upload are
+     * outstanding at a time; keep it well below the completion tracker's {@code maxInFlight}, which is shared by all
+     * callers. Lines longer than {@code maxLineBytes} are rejected without being buffered.
+     */
+    public static class BulkImport {
+        private int maxInFlight = 32;
+        private int maxLineBytes = 1_048_576;
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public int getMaxLineBytes() {
+            return maxLineBytes;
+        }
+
+        public void setMaxLineBytes(int maxLineBytes) {
+            this.maxLineBytes = maxLineBytes;
+        }
+    }
 }
@@ -14,6 +14,7 @@ public class PostgresConfig {
     private String database = "postgres";
     private String username = "postgres";
     private String password = "postgres";
+    private Pool pool = new Pool();
 
     // Getters and Setters
     public String getHost() {
@@ -55,5 +56,115 @@ public class PostgresConfig {
     public void setPassword(String password) {
         this.password = password;
     }
-}
 
+    public Pool getPool() {
+        return pool;
+    }
+
+    public void setPool(Pool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Connection pool settings. Durations are in milliseconds.
+     *
+     * <p>A {@code maximumPoolSize} of 0 sizes the pool from the PQS executor, see {@code JdbcDataSource}. Leak
+     * detection is off by default: cursor streams legitimately hold a connection up to their statement timeout plus
+     * their idle timeout, and index builds for as long as they take. When enabling it, set it above the longest of
+     * these that is expected.
+     */
+    public static class Pool {
+        private int maximumPoolSize = 0;
+        private int minimumIdle = 2;
+        private long connectionTimeout = 5_000;
+        private long idleTimeout = 600_000;
+        private long maxLifetime = 1_800_000;
+        private long validationTimeout = 2_000;
+        // 0 disables leak detection
+        private long leakDetectionThreshold = 0;
+        // pgjdbc server-side prepared statement settings
+        private int prepareThreshold = 1;
+        private int preparedStatementCacheQueries = 256;
+        private int preparedStatementCacheSizeMiB = 5;
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public int getMinimumIdle() {
+            return minimumIdle;
+        }
+
+        public void setMinimumIdle(int minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public long getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(long connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public long getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(long idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public long getMaxLifetime() {
+            return maxLifetime;
+        }
+
+        public void setMaxLifetime(long maxLifetime) {
+            this.maxLifetime = maxLifetime;
+        }
+
+        public long getValidationTimeout() {
+            return validationTimeout;
+        }
+
+        public void setValidationTimeout(long validationTimeout) {
+            this.validationTimeout = validationTimeout;
+        }
+
+        public long getLeakDetectionThreshold() {
+            return leakDetectionThreshold;
+        }
+
+        public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+            this.leakDetectionThreshold = leakDetectionThreshold;
+        }
+
+        public int getPrepareThreshold() {
+            return prepareThreshold;
+        }
+
+        public void setPrepareThreshold(int prepareThreshold) {
+            this.prepareThreshold = prepareThreshold;
+        }
+
+        public int getPreparedStatementCacheQueries() {
+            return preparedStatementCacheQueries;
+        }
+
+        public void setPreparedStatementCacheQueries(int preparedStatementCacheQueries) {
+            this.preparedStatementCacheQueries = preparedStatementCacheQueries;
+        }
+
+        public int getPreparedStatementCacheSizeMiB() {
+            return preparedStatementCacheSizeMiB;
+        }
+
+        public void setPreparedStatementCacheSizeMiB(int preparedStatementCacheSizeMiB) {
+            this.preparedStatementCacheSizeMiB = preparedStatementCacheSizeMiB;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "pqs")
+public class PqsConfig {
+
+    private ExecutorConfig executor = new ExecutorConfig();
+    private DecodeCache decodeCache = new DecodeCache();
+    private Consistency consistency = new Consistency();
+    private Streaming streaming = new Streaming();
+    private Indexes indexes = new Indexes();
+    private Batching batching = new Batching();
+    private ReadModel readModel = new ReadModel();
+    private ParallelDecode parallelDecode = new ParallelDecode();
+    private BinaryDecode binaryDecode = new BinaryDecode();
+    private ResultCache resultCache = new ResultCache();
+    private SlowQueries slowQueries = new SlowQueries();
+    private InvoiceNumbers invoiceNumbers = new InvoiceNumbers();
+
+    /**
+     * Executor that runs blocking JDBC calls issued through {@code Pqs}.
+     */
+    public ExecutorConfig getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ExecutorConfig executor) {
+        this.executor = executor;
+    }
+
+    public DecodeCache getDecodeCache() {
+        return decodeCache;
+    }
+
+    public void setDecodeCache(DecodeCache decodeCache) {
+        this.decodeCache = decodeCache;
+    }
+
+    public Consistency getConsistency() {
+        return consistency;
+    }
+
+    public void setConsistency(Consistency consistency) {
+        this.consistency = consistency;
+    }
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(Streaming streaming) {
+        this.streaming = streaming;
+    }
+
+    public Indexes getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(Indexes indexes) {
+        this.indexes = indexes;
+    }
+
+    public Batching getBatching() {
+        return batching;
+    }
+
+    public void setBatching(Batching batching) {
+        this.batching = batching;
+    }
+
+    public ReadModel getReadModel() {
+        return readModel;
+    }
+
+    public void setReadModel(ReadModel readModel) {
+        this.readModel = readModel;
+    }
+
+    public ParallelDecode getParallelDecode() {
+        return parallelDecode;
+    }
+
+    public void setParallelDecode(ParallelDecode parallelDecode) {
+        this.parallelDecode = parallelDecode;
+    }
+
+    public BinaryDecode getBinaryDecode() {
+        return binaryDecode;
+    }
+
+    public void setBinaryDecode(BinaryDecode binaryDecode) {
+        this.binaryDecode = binaryDecode;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public SlowQueries getSlowQueries() {
+        return slowQueries;
+    }
+
+    public void setSlowQueries(SlowQueries slowQueries) {
+        this.slowQueries = slowQueries;
+    }
+
+    public InvoiceNumbers getInvoiceNumbers() {
+        return invoiceNumbers;
+    }
+
+    public void setInvoiceNumbers(InvoiceNumbers invoiceNumbers) {
+        this.invoiceNumbers = invoiceNumbers;
+    }
+
+    /**
+     * Cache of decoded contract payloads keyed by (templateId, contractId). A hit saves parsing and converting the
+     * payload; the queries still select it, so it is transferred from PQS either way.
+     *
+     * <p>{@code maxWeight} is measured in characters of the JSON payloads the entries were decoded from, not in bytes
+     * of heap: a decoded payload typically takes a few times the size of its JSON, so size it accordingly.
+     */
+    public static class DecodeCache {
+        private boolean enabled = true;
+        private long maxWeight = 64L * 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxWeight() {
+            return maxWeight;
+        }
+
+        public void setMaxWeight(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    /**
+     * Read-your-writes: how long a read carrying a consistency token may wait for PQS to catch up,
+     * and how often the PQS watermark is polled while reads are waiting.
+     */
+    public static class Consistency {
+        private long maxWaitMillis = 5_000;
+        private long pollIntervalMillis = 50;
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public void setMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public long getPollIntervalMillis() {
+            return pollIntervalMillis;
+        }
+
+        public void setPollIntervalMillis(long pollIntervalMillis) {
+            this.pollIntervalMillis = pollIntervalMillis;
+        }
+    }
+
+    /**
+     * Cursor-based streaming queries: rows are fetched from Postgres in batches of {@code fetchSize}
+     * instead of materializing the whole result set.
+     *
+     * <p>A stream holds a pooled connection and an open transaction until it is read to the end, so at most
+     * {@code maxConcurrentStreams} are open at a time and their statements time out after
+     * {@code statementTimeoutSeconds} (0 for none). Rows are handed to the thread writing the response through a queue
+     * of {@code handOffCapacity} elements; a stream whose client reads nothing for {@code idleTimeoutMillis} while
+     * the queue is full is aborted.
+     */
+    public static class Streaming {
+        private int fetchSize = 500;
+        private int maxConcurrentStreams = 4;
+        private int statementTimeoutSeconds = 60;
+        private int handOffCapacity = 500;
+        private long idleTimeoutMillis = 30_000;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public int getMaxConcurrentStreams() {
+            return maxConcurrentStreams;
+        }
+
+        public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+        }
+
+        public int getStatementTimeoutSeconds() {
+            return statementTimeoutSeconds;
+        }
+
+        public void setStatementTimeoutSeconds(int statementTimeoutSeconds) {
+            this.statementTimeoutSeconds = statementTimeoutSeconds;
+        }
+
+        public int getHandOffCapacity() {
+            return handOffCapacity;
+        }
+
+        public void setHandOffCapacity(int handOffCapacity) {
+            this.handOffCapacity = handOffCapacity;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+    }
+
+    /**
+     * Expression indexes on PQS contract tables backing the repository queries. When enabled, missing indexes are
+     * created in the background after startup; progress of a running build is logged every
+     * {@code progressIntervalMillis}. Off by default: a build blocks PQS ingestion into the template's table until it
+     * finishes, so enable it on a fresh deployment or for a maintenance window.
+     */
+    public static class Indexes {
+        private boolean enabled = false;
+        private long progressIntervalMillis = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getProgressIntervalMillis() {
+            return progressIntervalMillis;
+        }
+
+        public void setProgressIntervalMillis(long progressIntervalMillis) {
+            this.progressIntervalMillis = progressIntervalMillis;
+        }
+    }
+
+    /**
+     * Coalescing of concurrent contract-by-id lookups of the same template into one query. A batch is sent once
+     * {@code maxBatchSize} ids are waiting or {@code maxDelayMillis} after its first lookup, whichever comes first.
+     */
+    public static class Batching {
+        private boolean enabled = true;
+        private int maxBatchSize = 64;
+        private long maxDelayMillis = 2;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public long getMaxDelayMillis() {
+            return maxDelayMillis;
+        }
+
+        public void setMaxDelayMillis(long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+        }
+    }
+
+    /**
+     * Backend-maintained invoice read model in the PQS database. When enabled, it follows PQS creates and archives
+     * every {@code pollIntervalMillis} and serves invoice list reads.
+     */
+    public static class ReadModel {
+        private boolean enabled = false;
+        private long pollIntervalMillis = 1_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getPollIntervalMillis() {
+            return pollIntervalMillis;
+        }
+
+        public void setPollIntervalMillis(long pollIntervalMillis) {
+            this.pollIntervalMillis = pollIntervalMillis;
+        }
+    }
+
+    /**
+     * Opt-in parallel decoding of contract payloads: results of at least {@code threshold} rows are read first and
+     * then decoded in order-preserving chunks on a pool of {@code parallelism} threads.
+     */
+    public static class ParallelDecode {
+        private boolean enabled = false;
+        private int threshold = 256;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(int threshold) {
+            this.threshold = threshold;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Opt-in decoding of contract payloads straight from the bytes Postgres sent, for templates with a payload schema
+     * (the invoicing templates). Other templates, and payloads that do not match their schema, are decoded from
+     * their JSON text as before.
+     */
+    public static class BinaryDecode {
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Opt-in cache of list query results, stamped with the PQS offset they were read at. Entries are served until PQS
+     * ingests a change to one of the templates they were read from; for {@code staleWhileRevalidateMillis} after that,
+     * the old result is still served while a single refresh runs. Template changes are checked every
+     * {@code pollIntervalMillis}; {@code maxWeight} bounds the number of cached rows.
+     */
+    public static class ResultCache {
+        private boolean enabled = false;
+        private long maxWeight = 100_000;
+        private long staleWhileRevalidateMillis = 2_000;
+        private long pollIntervalMillis = 250;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxWeight() {
+            return maxWeight;
+        }
+
+        public void setMaxWeight(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        public long getStaleWhileRevalidateMillis() {
+            return staleWhileRevalidateMillis;
+        }
+
+        public void setStaleWhileRevalidateMillis(long staleWhileRevalidateMillis) {
+            this.staleWhileRevalidateMillis = staleWhileRevalidateMillis;
+        }
+
+        public long getPollIntervalMillis() {
+            return pollIntervalMillis;
+        }
+
+        public void setPollIntervalMillis(long pollIntervalMillis) {
+            this.pollIntervalMillis = pollIntervalMillis;
+        }
+    }
+
+    /**
+     * Slow query capture: a sample of {@code sampleRate} of the PQS queries taking at least {@code thresholdMillis} is
+     * run again with {@code EXPLAIN (ANALYZE, BUFFERS)}. The last {@code maxEntries} plans are kept for the
+     * {@code slowqueries} actuator endpoint.
+     */
+    public static class SlowQueries {
+        private boolean enabled = true;
+        private long thresholdMillis = 500;
+        private double sampleRate = 0.1;
+        private int maxEntries = 50;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getThresholdMillis() {
+            return thresholdMillis;
+        }
+
+        public void setThresholdMillis(long thresholdMillis) {
+            this.thresholdMillis = thresholdMillis;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    /**
+     * Invoice number allocation: each backend instance reserves numbers per provider in blocks of {@code blockSize}
+     * from a counter in the PQS database and hands them out from memory.
+     */
+    public static class InvoiceNumbers {
+        private int blockSize = 100;
+
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        public void setBlockSize(int blockSize) {
+            this.blockSize = blockSize;
+        }
+    }
+}
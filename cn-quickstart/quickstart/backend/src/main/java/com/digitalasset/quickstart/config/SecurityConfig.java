@@ -10,6 +10,7 @@ public class SecurityConfig {
 
     private String issuerUrl;
     private String token;
+    private TokenCache tokenCache = new TokenCache();
 
     public String getIssuerUrl() {
         return issuerUrl;
@@ -26,6 +27,45 @@ public class SecurityConfig {
     public void setToken(String token) {
         this.token = token;
     }
-}
 
+    public TokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    public void setTokenCache(TokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+    }
+
+    /**
+     * Caching of the backend's bearer token for Ledger API and registry calls.
+     */
+    public static class TokenCache {
+        private long refreshSkewMillis = 60_000;
+        private long defaultTtlMillis = 300_000;
+        private long retryDelayMillis = 5_000;
+
+        public long getRefreshSkewMillis() {
+            return refreshSkewMillis;
+        }
 
+        public void setRefreshSkewMillis(long refreshSkewMillis) {
+            this.refreshSkewMillis = refreshSkewMillis;
+        }
+
+        public long getDefaultTtlMillis() {
+            return defaultTtlMillis;
+        }
+
+        public void setDefaultTtlMillis(long defaultTtlMillis) {
+            this.defaultTtlMillis = defaultTtlMillis;
+        }
+
+        public long getRetryDelayMillis() {
+            return retryDelayMillis;
+        }
+
+        public void setRetryDelayMillis(long retryDelayMillis) {
+            this.retryDelayMillis = retryDelayMillis;
+        }
+    }
+}
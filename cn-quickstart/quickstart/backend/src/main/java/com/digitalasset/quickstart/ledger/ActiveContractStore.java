@@ -0,0 +1,559 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.*;
+import com.digitalasset.quickstart.config.LedgerConfig;
+import com.digitalasset.quickstart.pqs.Contract;
+import com.digitalasset.quickstart.utility.OffsetWaiters;
+import com.digitalasset.transcode.java.ContractId;
+import com.digitalasset.transcode.java.Template;
+import com.digitalasset.transcode.java.Utils;
+import com.digitalasset.transcode.schema.Identifier;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import quickstart_invoicing.invoicing.disclosure.BookkeeperView;
+import quickstart_invoicing.invoicing.disclosure.LogisticsView;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+import quickstart_invoicing.invoicing.invoice.InvoicePaymentRequest;
+import splice_api_token_allocation_v1.splice.api.token.allocationv1.Allocation;
+import splice_api_token_allocation_v1.splice.api.token.allocationv1.AllocationView;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory view of the active contracts the backend reads most, kept up to date from the Ledger API.
+ *
+ * <p>The store bootstraps from the StateService active contract snapshot at the current ledger end and then
+ * follows the UpdateService transaction stream (ACS delta shape) as the app provider party. Contracts are
+ * indexed by contract id, by the parties named in the payload and by the payload field DamlRepository joins them on,
+ * mirroring the predicates it uses against PQS. Each party's contracts are kept in the order the list endpoints page
+ * them, so a page costs its own size rather than a scan and sort of everything visible. While the store is bootstrapping, or from an update stream failure until the resubscribed
+ * stream has caught up with the ledger end, it reports {@link #isReady()} as false and callers are expected to fall
+ * back to PQS. Only contracts visible to the app provider party are followed, so list reads for other parties
+ * should go to PQS as well, see {@link #canServe(String)}.
+ *
+ * <p>A transaction is decoded first and then applied to the indexes under a write lock, and each read runs under
+ * the read lock, so reads see all of a transaction or none of it; {@link #consistentRead(Supplier)} extends that to a
+ * group of reads. A bootstrap builds its snapshot into new indexes and swaps them in once complete.
+ */
+@Component
+public class ActiveContractStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveContractStore.class);
+
+    private final LedgerApi ledger;
+    private final LedgerConfig.ContractStore config;
+    private final String party;
+    // Replaced as a whole by a bootstrap; written only by the thread following the ledger, under the write lock
+    private volatile Indexes indexes = new Indexes();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "contract-store");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean ready = false;
+    private volatile boolean running = false;
+    private volatile long offset = 0L;
+    // Ledger end when the stream was resubscribed after a failure; the store is ready again once it reaches it
+    private volatile long catchUpOffset = Long.MAX_VALUE;
+    private final OffsetWaiters offsetWaiters = new OffsetWaiters();
+    private volatile Context.CancellableContext subscription;
+
+    public ActiveContractStore(LedgerApi ledger, LedgerConfig ledgerConfig, MeterRegistry meterRegistry) {
+        this.ledger = ledger;
+        this.config = ledgerConfig.getContractStore();
+        this.party = ledger.getAppProviderParty();
+
+        register(Invoice.class, false, (Invoice i) -> List.of(i.getSeller.getParty, i.getBuyer.getParty, i.getProvider.getParty),
+                i -> i.getInvoiceNum, null);
+        register(InvoicePaymentRequest.class, false, (InvoicePaymentRequest r) -> List.of(r.getSeller.getParty, r.getBuyer.getParty, r.getProvider.getParty),
+                null, r -> r.getInvoiceId.map(cid -> cid.getContractId).orElse(null));
+        register(LogisticsView.class, false, (LogisticsView v) -> List.of(v.getGrantor.getParty, v.getCarrier.getParty, v.getProvider.getParty),
+                v -> v.getInvoiceRef, null);
+        register(BookkeeperView.class, false, (BookkeeperView v) -> List.of(v.getGrantor.getParty, v.getBookkeeper.getParty, v.getProvider.getParty),
+                v -> v.getInvoiceNum, null);
+        register(Allocation.class, true, (AllocationView v) -> List.of(v.getAllocation.getTransferLeg.getSender.getParty),
+                null, v -> v.getAllocation.getSettlement.getSettlementRef.getId);
+
+        Gauge.builder("ledger.contract_store.ready", () -> ready ? 1 : 0).register(meterRegistry);
+        Gauge.builder("ledger.contract_store.offset", () -> offset).register(meterRegistry);
+        Gauge.builder("ledger.contract_store.contracts", this, store -> store.indexes.byContractId.size()).register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether list reads on behalf of {@code party} can be served from the store: it is ready and follows the
+     * contracts visible to that party.
+     */
+    public boolean canServe(String party) {
+        return ready && this.party.equals(party);
+    }
+
+    /**
+     * Ledger offset up to which the store reflects the ledger.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Completes once the store reflects the ledger up to at least {@code offset}.
+     */
+    public CompletableFuture<Void> awaitOffset(long offset) {
+        return offsetWaiters.await(offset);
+    }
+
+    /**
+     * Active contracts of the given template whose payload names the given party, in the template's sort order.
+     */
+    public <T extends Template> List<Contract<T>> visibleTo(Class<T> clazz, String party) {
+        return read(indexes -> {
+            Index index = indexes.index(clazz);
+            return collect(index, index.entriesFor(party), Long.MAX_VALUE);
+        });
+    }
+
+    /**
+     * Up to {@code limit} active contracts of the given template whose payload names the given party, in the
+     * template's sort order, starting after the contract with sort value {@code afterKey} and id {@code afterContractId}.
+     */
+    public <T extends Template> List<Contract<T>> visibleTo(Class<T> clazz, String party, Comparable<?> afterKey,
+                                                            String afterContractId, long limit) {
+        return read(indexes -> {
+            Index index = indexes.index(clazz);
+            return collect(index, index.entriesFor(party).tailSet(Entry.of(afterKey, afterContractId), false), limit);
+        });
+    }
+
+    private static <T extends Template> List<Contract<T>> collect(Index index, Iterable<Entry> entries, long limit) {
+        List<Contract<T>> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (result.size() >= limit) break;
+            result.add(index.contract(entry.contractId()));
+        }
+        return result;
+    }
+
+    /**
+     * Active contracts of the given template whose join field has the given value, e.g. the payment requests of an
+     * invoice by its contract id.
+     */
+    public <T extends Template> List<Contract<T>> joinedOn(Class<T> clazz, String value) {
+        return read(indexes -> {
+            Index index = indexes.index(clazz);
+            return index.contractIdsJoinedOn(value).stream()
+                    .map(cid -> index.<T>contract(cid))
+                    .toList();
+        });
+    }
+
+    public <T extends Template> Optional<Contract<T>> byId(Class<T> clazz, String contractId) {
+        return read(indexes -> Optional.ofNullable(indexes.index(clazz).contract(contractId)));
+    }
+
+    /**
+     * Whether the store follows contracts of the given template or interface. A contract the ready store does not
+     * have is not active then, as far as the store's offset goes.
+     */
+    public boolean tracks(Class<? extends Template> clazz) {
+        return indexes.find(clazz) != null;
+    }
+
+    /**
+     * Active contracts implementing the given interface, along with their interface view, whose view's join field has
+     * the given value, e.g. allocations by settlement reference id.
+     */
+    public <I extends Template, V> List<InterfaceContract<I, V>> viewsJoinedOn(Class<I> iface, Class<V> viewClass, String value) {
+        return read(indexes -> {
+            Index index = indexes.index(iface);
+            return index.contractIdsJoinedOn(value).stream()
+                    .map(cid -> new InterfaceContract<I, V>(new ContractId<>(cid), viewClass.cast(index.payloads.get(cid))))
+                    .toList();
+        });
+    }
+
+    /**
+     * Runs {@code reads} against the store as of a single transaction: no transaction is applied while they run.
+     * Keep them short, as they hold up the update stream.
+     */
+    public <R> R consistentRead(Supplier<R> reads) {
+        lock.readLock().lock();
+        try {
+            return reads.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <R> R read(Function<Indexes, R> body) {
+        return consistentRead(() -> body.apply(indexes));
+    }
+
+    public record InterfaceContract<I extends Template, V>(ContractId<I> contractId, V view) {
+    }
+
+    // ── Lifecycle ─────────────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            logger.info("Active contract store disabled, reads are served from PQS");
+            return;
+        }
+        running = true;
+        scheduler.execute(this::bootstrap);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        ready = false;
+        var current = subscription;
+        if (current != null) current.cancel(null);
+        scheduler.shutdownNow();
+    }
+
+    private void bootstrap() {
+        if (!running) return;
+        ready = false;
+        catchUpOffset = Long.MAX_VALUE;
+        try {
+            long ledgerEnd = ledgerEnd();
+            // Built aside, so that reads still in flight on the current indexes are not affected
+            Indexes snapshot = indexes.emptyCopy();
+            if (ledgerEnd > 0) {
+                var request = StateServiceOuterClass.GetActiveContractsRequest.newBuilder()
+                        .setActiveAtOffset(ledgerEnd)
+                        .setEventFormat(eventFormat())
+                        .build();
+                StateServiceGrpc.newBlockingStub(ledger.getChannel()).getActiveContracts(request).forEachRemaining(response -> {
+                    if (response.hasActiveContract()) {
+                        snapshot.apply(decodeCreated(snapshot, response.getActiveContract().getCreatedEvent()));
+                    }
+                });
+            }
+            publish(() -> indexes = snapshot);
+            setOffset(ledgerEnd);
+            ready = true;
+            logger.atInfo()
+                    .addKeyValue("offset", ledgerEnd)
+                    .addKeyValue("contracts", snapshot.byContractId.size())
+                    .log("Active contract store bootstrapped");
+            subscribe();
+        } catch (RuntimeException e) {
+            logger.error("Active contract store bootstrap failed, retrying", e);
+            scheduler.schedule(this::bootstrap, config.getReconnectDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void subscribe() {
+        if (!running) return;
+        if (!ready) {
+            try {
+                catchUpOffset = ledgerEnd();
+            } catch (RuntimeException e) {
+                logger.warn("Could not read the ledger end, resubscribing later", e);
+                scheduler.schedule(this::subscribe, config.getReconnectDelayMillis(), TimeUnit.MILLISECONDS);
+                return;
+            }
+            markReadyIfCaughtUp();
+        }
+        var request = UpdateServiceOuterClass.GetUpdatesRequest.newBuilder()
+                .setBeginExclusive(offset)
+                .setUpdateFormat(TransactionFilterOuterClass.UpdateFormat.newBuilder()
+                        .setIncludeTransactions(TransactionFilterOuterClass.TransactionFormat.newBuilder()
+                                .setEventFormat(eventFormat())
+                                .setTransactionShape(TransactionFilterOuterClass.TransactionShape.TRANSACTION_SHAPE_ACS_DELTA)))
+                .build();
+        var context = Context.current().withCancellation();
+        subscription = context;
+        context.run(() -> UpdateServiceGrpc.newStub(ledger.getChannel()).getUpdates(request, new StreamObserver<>() {
+            @Override
+            public void onNext(UpdateServiceOuterClass.GetUpdatesResponse response) {
+                if (response.hasTransaction()) {
+                    onTransaction(response.getTransaction());
+                } else if (response.hasOffsetCheckpoint()) {
+                    setOffset(response.getOffsetCheckpoint().getOffset());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (!running) return;
+                var code = Status.fromThrowable(t).getCode();
+                // The resume offset may have been pruned; start over from a fresh snapshot in that case
+                boolean resnapshot = code == Status.Code.FAILED_PRECONDITION || code == Status.Code.OUT_OF_RANGE || code == Status.Code.NOT_FOUND;
+                logger.warn("Update stream failed at offset {} ({}), {}", offset, code, resnapshot ? "re-bootstrapping" : "resubscribing", t);
+                // Reads go to PQS until the store has caught up again
+                ready = false;
+                scheduler.schedule(resnapshot ? ActiveContractStore.this::bootstrap : ActiveContractStore.this::subscribe,
+                        config.getReconnectDelayMillis(), TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public void onCompleted() {
+                if (!running) return;
+                logger.info("Update stream completed at offset {}, resubscribing", offset);
+                ready = false;
+                scheduler.execute(ActiveContractStore.this::subscribe);
+            }
+        }));
+    }
+
+    // ── Event handling ────────────────────────────────────────────────
+
+    // Decodes the whole transaction before applying it, and only then moves the offset readers wait for
+    private void onTransaction(TransactionOuterClass.Transaction tx) {
+        Indexes current = indexes;
+        List<Change> changes = new ArrayList<>(tx.getEventsCount());
+        for (EventOuterClass.Event event : tx.getEventsList()) {
+            if (event.hasCreated()) {
+                changes.addAll(decodeCreated(current, event.getCreated()));
+            } else if (event.hasArchived()) {
+                changes.add(new Change(null, event.getArchived().getContractId(), null));
+            }
+        }
+        if (!changes.isEmpty()) {
+            publish(() -> current.apply(changes));
+        }
+        setOffset(tx.getOffset());
+    }
+
+    // One change for the template index and one for each tracked interface the contract implements
+    private List<Change> decodeCreated(Indexes target, EventOuterClass.CreatedEvent created) {
+        List<Change> changes = new ArrayList<>(1 + created.getInterfaceViewsCount());
+        Index index = target.templates.get(key(created.getTemplateId()));
+        if (index != null) {
+            changes.add(new Change(index, created.getContractId(), decode(index, created.getCreateArguments())));
+        }
+        for (EventOuterClass.InterfaceView view : created.getInterfaceViewsList()) {
+            Index ifaceIndex = target.interfaces.get(key(view.getInterfaceId()));
+            if (ifaceIndex != null && view.getViewStatus().getCode() == Status.Code.OK.value()) {
+                changes.add(new Change(ifaceIndex, created.getContractId(), decode(ifaceIndex, view.getViewValue())));
+            }
+        }
+        return changes;
+    }
+
+    private void publish(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            update.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setOffset(long newOffset) {
+        offset = newOffset;
+        offsetWaiters.advance(newOffset);
+        if (!ready) markReadyIfCaughtUp();
+    }
+
+    private void markReadyIfCaughtUp() {
+        if (running && offset >= catchUpOffset) {
+            catchUpOffset = Long.MAX_VALUE;
+            ready = true;
+            logger.info("Active contract store caught up at offset {}", offset);
+        }
+    }
+
+    private long ledgerEnd() {
+        return StateServiceGrpc.newBlockingStub(ledger.getChannel())
+                .getLedgerEnd(StateServiceOuterClass.GetLedgerEndRequest.getDefaultInstance())
+                .getOffset();
+    }
+
+    private Object decode(Index index, ValueOuterClass.Record record) {
+        return ledger.getProto2Dto().template(index.templateId)
+                .convert(ValueOuterClass.Value.newBuilder().setRecord(record).build());
+    }
+
+    private TransactionFilterOuterClass.EventFormat eventFormat() {
+        var filters = TransactionFilterOuterClass.Filters.newBuilder();
+        indexes.templates.values().forEach(index -> filters.addCumulative(TransactionFilterOuterClass.CumulativeFilter.newBuilder()
+                .setTemplateFilter(TransactionFilterOuterClass.TemplateFilter.newBuilder()
+                        .setTemplateId(LedgerApi.toIdentifier(index.templateId)))));
+        indexes.interfaces.values().forEach(index -> filters.addCumulative(TransactionFilterOuterClass.CumulativeFilter.newBuilder()
+                .setInterfaceFilter(TransactionFilterOuterClass.InterfaceFilter.newBuilder()
+                        .setInterfaceId(LedgerApi.toIdentifier(index.templateId))
+                        .setIncludeInterfaceView(true))));
+        return TransactionFilterOuterClass.EventFormat.newBuilder()
+                .putFiltersByParty(party, filters.build())
+                .build();
+    }
+
+    /**
+     * Tracks a template or interface. {@code sortKey} orders each party's contracts ahead of the contract id, and
+     * {@code joinKey} reads the field other contracts are joined on; either may be {@code null}. A contract whose
+     * join field is empty ({@code joinKey} returns {@code null}) joins nothing.
+     */
+    @SuppressWarnings("unchecked")
+    private <P> void register(Class<? extends Template> clazz, boolean isInterface, Function<P, Collection<String>> parties,
+                              Function<P, ? extends Comparable<?>> sortKey, Function<P, String> joinKey) {
+        Identifier id = Utils.getTemplateIdByClass(clazz);
+        Index index = new Index(id,
+                payload -> parties.apply((P) payload),
+                sortKey == null ? payload -> "" : payload -> sortKey.apply((P) payload),
+                joinKey == null ? null : payload -> joinKey.apply((P) payload));
+        (isInterface ? indexes.interfaces : indexes.templates).put(key(id), index);
+    }
+
+    // Package ids differ between the filter (package name reference) and events (package hash), so match on module and entity
+    private static String key(Identifier id) {
+        return id.moduleName() + ":" + id.entityName();
+    }
+
+    private static String key(ValueOuterClass.Identifier id) {
+        return id.getModuleName() + ":" + id.getEntityName();
+    }
+
+    // Position of a contract in its party's index: by sort value, then by contract id like the list endpoints
+    private record Entry(Comparable<Object> sortKey, String contractId) implements Comparable<Entry> {
+        @SuppressWarnings("unchecked")
+        static Entry of(Object sortKey, String contractId) {
+            return new Entry((Comparable<Object>) sortKey, contractId);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int bySortKey = sortKey.compareTo(other.sortKey);
+            return bySortKey != 0 ? bySortKey : contractId.compareTo(other.contractId);
+        }
+    }
+
+    // A created contract's payload or interface view for one index, or an archive (index and payload null)
+    private record Change(Index index, String contractId, Object payload) {
+    }
+
+    // The indexes of all tracked templates and interfaces, and which of them each contract is in
+    private static final class Indexes {
+        final Map<String, Index> templates = new HashMap<>();
+        final Map<String, Index> interfaces = new HashMap<>();
+        // A contract is in its template's index and in the index of each tracked interface it implements
+        final Map<String, List<Index>> byContractId = new ConcurrentHashMap<>();
+
+        Indexes emptyCopy() {
+            Indexes copy = new Indexes();
+            templates.forEach((key, index) -> copy.templates.put(key, index.emptyCopy()));
+            interfaces.forEach((key, index) -> copy.interfaces.put(key, index.emptyCopy()));
+            return copy;
+        }
+
+        void apply(List<Change> changes) {
+            for (Change change : changes) {
+                if (change.index() == null) {
+                    List<Index> indexes = byContractId.remove(change.contractId());
+                    if (indexes != null) indexes.forEach(index -> index.remove(change.contractId()));
+                } else {
+                    change.index().add(change.contractId(), change.payload());
+                    byContractId.computeIfAbsent(change.contractId(), k -> new ArrayList<>(1)).add(change.index());
+                }
+            }
+        }
+
+        Index find(Class<? extends Template> clazz) {
+            String key = key(Utils.getTemplateIdByClass(clazz));
+            return templates.getOrDefault(key, interfaces.get(key));
+        }
+
+        Index index(Class<? extends Template> clazz) {
+            Index index = find(clazz);
+            if (index == null) throw new IllegalArgumentException("Template not tracked by the contract store: " + clazz.getName());
+            return index;
+        }
+    }
+
+    // Written by the thread following the ledger under the write lock, read by request threads under the read lock
+    private static final class Index {
+        final Identifier templateId;
+        final Function<Object, Collection<String>> parties;
+        final Function<Object, Comparable<?>> sortKey;
+        final Function<Object, String> joinKey;
+        final Map<String, Object> payloads = new ConcurrentHashMap<>();
+        final Map<String, NavigableSet<Entry>> byParty = new ConcurrentHashMap<>();
+        final Map<String, Set<String>> byJoinKey = new ConcurrentHashMap<>();
+
+        Index(Identifier templateId, Function<Object, Collection<String>> parties, Function<Object, Comparable<?>> sortKey,
+              Function<Object, String> joinKey) {
+            this.templateId = templateId;
+            this.parties = parties;
+            this.sortKey = sortKey;
+            this.joinKey = joinKey;
+        }
+
+        void add(String contractId, Object payload) {
+            payloads.put(contractId, payload);
+            Entry entry = Entry.of(sortKey.apply(payload), contractId);
+            for (String p : parties.apply(payload)) {
+                byParty.computeIfAbsent(p, k -> new ConcurrentSkipListSet<>()).add(entry);
+            }
+            String joinValue = joinKey == null ? null : joinKey.apply(payload);
+            if (joinValue != null) {
+                byJoinKey.computeIfAbsent(joinValue, k -> ConcurrentHashMap.newKeySet()).add(contractId);
+            }
+        }
+
+        void remove(String contractId) {
+            Object payload = payloads.remove(contractId);
+            if (payload == null) return;
+            Entry entry = Entry.of(sortKey.apply(payload), contractId);
+            for (String p : parties.apply(payload)) {
+                Set<Entry> entries = byParty.get(p);
+                if (entries != null) entries.remove(entry);
+            }
+            String joinValue = joinKey == null ? null : joinKey.apply(payload);
+            if (joinValue != null) {
+                // Join values such as an invoice id go away with their contracts, so their sets are dropped when empty
+                byJoinKey.computeIfPresent(joinValue, (k, cids) -> {
+                    cids.remove(contractId);
+                    return cids.isEmpty() ? null : cids;
+                });
+            }
+        }
+
+        Index emptyCopy() {
+            return new Index(templateId, parties, sortKey, joinKey);
+        }
+
+        NavigableSet<Entry> entriesFor(String party) {
+            return byParty.getOrDefault(party, Collections.emptyNavigableSet());
+        }
+
+        Set<String> contractIdsJoinedOn(String value) {
+            return byJoinKey.getOrDefault(value, Set.of());
+        }
+
+        @SuppressWarnings("unchecked")
+        <T extends Template> Contract<T> contract(String contractId) {
+            Object payload = payloads.get(contractId);
+            return payload == null ? null : new Contract<>(new ContractId<>(contractId), (T) payload);
+        }
+    }
+}
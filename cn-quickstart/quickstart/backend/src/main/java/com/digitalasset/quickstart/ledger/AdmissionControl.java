@@ -0,0 +1,204 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.digitalasset.quickstart.config.LedgerConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of ledger commands in flight, globally and per acting party.
+ *
+ * <p>Commands that cannot start right away wait in a per-party queue. When a slot frees up, parties with waiting
+ * commands are served round-robin, so one party's burst cannot starve the others. A command is rejected right away
+ * when its party's queue or the global queue is full, and rejected later if it is still queued after the wait
+ * timeout. A party with nothing in flight or queued for the idle timeout is forgotten, along with its per-party
+ * meters, so state and metric cardinality follow the parties that are currently submitting.
+ */
+final class AdmissionControl {
+
+    private final LedgerConfig.Admission config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, PartyState> parties = new HashMap<>();
+    private final ArrayDeque<PartyState> waiting = new ArrayDeque<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ledger-admission");
+        t.setDaemon(true);
+        return t;
+    });
+    private int inFlight = 0;
+    private int queued = 0;
+
+    AdmissionControl(LedgerConfig.Admission config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("ledger.admission.in_flight", this, a -> a.inFlight).register(meterRegistry);
+        Gauge.builder("ledger.admission.queued", this, a -> a.queued).register(meterRegistry);
+        Gauge.builder("ledger.admission.parties", this, a -> a.partyCount()).register(meterRegistry);
+        long sweep = Math.max(config.getIdleTimeoutMillis() / 2, 1_000);
+        scheduler.scheduleWithFixedDelay(this::forgetIdle, sweep, sweep, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs {@code body} once a slot for {@code party} is available and holds the slot until its future completes.
+     */
+    <T> CompletableFuture<T> admit(String party, Supplier<CompletableFuture<T>> body) {
+        if (!config.isEnabled()) {
+            return body.get();
+        }
+        CompletableFuture<Void> admitted;
+        PartyState state;
+        synchronized (this) {
+            state = parties.computeIfAbsent(party, PartyState::new);
+            admitted = enqueue(state);
+        }
+        return admitted.thenCompose(v -> {
+            CompletableFuture<T> result;
+            try {
+                result = body.get();
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            return result.whenComplete((r, t) -> release(state));
+        });
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized int partyCount() {
+        return parties.size();
+    }
+
+    private synchronized void forgetIdle() {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        for (var it = parties.values().iterator(); it.hasNext(); ) {
+            PartyState state = it.next();
+            if (state.inFlight == 0 && state.queue.isEmpty() && now - state.lastActive >= idleNanos) {
+                it.remove();
+                state.removeMeters();
+            }
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(PartyState state) {
+        state.lastActive = System.nanoTime();
+        if (state.queue.isEmpty() && state.inFlight < config.getPerPartyLimit() && inFlight < config.getGlobalLimit()) {
+            state.inFlight++;
+            inFlight++;
+            state.waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (state.queue.size() >= config.getPerPartyQueue()) {
+            return reject(state, HttpStatus.TOO_MANY_REQUESTS, "Too many pending ledger commands for party");
+        }
+        if (queued >= config.getGlobalQueue()) {
+            return reject(state, HttpStatus.SERVICE_UNAVAILABLE, "Too many pending ledger commands");
+        }
+        var waiter = new Waiter();
+        state.queue.add(waiter);
+        if (state.queue.size() == 1) waiting.add(state);
+        queued++;
+        scheduler.schedule(() -> timeout(state, waiter), config.getQueueTimeoutMillis(), TimeUnit.MILLISECONDS);
+        return waiter.future;
+    }
+
+    private CompletableFuture<Void> reject(PartyState state, HttpStatus status, String reason) {
+        state.rejected(status).increment();
+        return CompletableFuture.failedFuture(new AdmissionRejectedException(status, reason, config.getRetryAfterSeconds()));
+    }
+
+    private void timeout(PartyState state, Waiter waiter) {
+        synchronized (this) {
+            if (!state.queue.remove(waiter)) return;
+            queued--;
+            if (state.queue.isEmpty()) waiting.remove(state);
+            state.lastActive = System.nanoTime();
+            state.rejected(HttpStatus.SERVICE_UNAVAILABLE).increment();
+        }
+        waiter.future.completeExceptionally(new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Timed out waiting for a ledger command slot", config.getRetryAfterSeconds()));
+    }
+
+    private void release(PartyState state) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            state.inFlight--;
+            inFlight--;
+            state.lastActive = System.nanoTime();
+            dispatch(granted);
+        }
+        granted.forEach(w -> w.future.complete(null));
+    }
+
+    // Serves parties with queued commands round-robin while global capacity lasts
+    private void dispatch(List<Waiter> granted) {
+        int skipped = 0;
+        while (inFlight < config.getGlobalLimit() && !waiting.isEmpty() && skipped < waiting.size()) {
+            PartyState next = waiting.poll();
+            if (next.inFlight >= config.getPerPartyLimit()) {
+                waiting.add(next);
+                skipped++;
+                continue;
+            }
+            skipped = 0;
+            Waiter waiter = next.queue.poll();
+            queued--;
+            next.inFlight++;
+            inFlight++;
+            next.waitTimer.record(System.nanoTime() - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+            granted.add(waiter);
+            if (!next.queue.isEmpty()) waiting.add(next);
+        }
+    }
+
+    private static final class Waiter {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+    }
+
+    // Guarded by the enclosing AdmissionControl's lock
+    private final class PartyState {
+        final String party;
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        final Timer waitTimer;
+        final List<Meter> meters = new ArrayList<>();
+        final Map<HttpStatus, Counter> rejected = new EnumMap<>(HttpStatus.class);
+        int inFlight = 0;
+        long lastActive = System.nanoTime();
+
+        PartyState(String party) {
+            this.party = party;
+            this.waitTimer = Timer.builder("ledger.admission.wait").tag("party", party).register(meterRegistry);
+            meters.add(waitTimer);
+            meters.add(Gauge.builder("ledger.admission.party.queued", queue, ArrayDeque::size).tag("party", party).register(meterRegistry));
+            meters.add(Gauge.builder("ledger.admission.party.in_flight", this, s -> s.inFlight).tag("party", party).register(meterRegistry));
+        }
+
+        Counter rejected(HttpStatus status) {
+            return rejected.computeIfAbsent(status, st -> {
+                var counter = Counter.builder("ledger.admission.rejected")
+                        .tag("party", party)
+                        .tag("status", Integer.toString(st.value()))
+                        .register(meterRegistry);
+                meters.add(counter);
+                return counter;
+            });
+        }
+
+        void removeMeters() {
+            meters.forEach(meterRegistry::remove);
+        }
+    }
+}
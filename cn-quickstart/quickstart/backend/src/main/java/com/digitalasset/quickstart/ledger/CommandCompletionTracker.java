@@ -0,0 +1,266 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.*;
+import com.digitalasset.quickstart.config.LedgerConfig;
+import com.digitalasset.quickstart.ledger.LedgerApi.Committed;
+import io.grpc.Channel;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.protobuf.StatusProto;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Matches command completions from the CommandCompletionService to the commands submitted through this backend.
+ *
+ * <p>One completion stream is kept open per acting party, opened lazily on first use at the then current ledger
+ * end and resumed from the last seen offset on failure. A stream that has had no command to wait for during the
+ * configured idle timeout is closed, so streams are only held for parties that are submitting. Tracked commands
+ * complete their future with the update id and offset of the transaction, or exceptionally with the rejection status.
+ * The number of commands awaiting completion is bounded; submissions beyond the window fail fast with
+ * {@code RESOURCE_EXHAUSTED}.
+ */
+final class CommandCompletionTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandCompletionTracker.class);
+
+    private final Channel channel;
+    private final LedgerConfig.Completions config;
+    private final Semaphore window;
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "command-completions");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Counter rejected;
+    private volatile boolean running = true;
+
+    CommandCompletionTracker(Channel channel, LedgerConfig.Completions config, MeterRegistry meterRegistry) {
+        this.channel = channel;
+        this.config = config;
+        this.window = new Semaphore(config.getMaxInFlight());
+        this.rejected = Counter.builder("ledger.completions.rejected").register(meterRegistry);
+        Gauge.builder("ledger.completions.in_flight", window, w -> config.getMaxInFlight() - w.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("ledger.completions.streams", subscriptions, Map::size).register(meterRegistry);
+        long sweep = Math.max(config.getIdleTimeoutMillis() / 2, 1_000);
+        scheduler.scheduleWithFixedDelay(this::closeIdle, sweep, sweep, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers {@code commandId} for tracking, then runs {@code submit}. The returned future completes once the
+     * completion for the command has been observed on {@code party}'s completion stream, or fails after the
+     * configured tracking timeout.
+     */
+    CompletableFuture<Committed<String>> track(String party, String commandId, Supplier<CompletableFuture<?>> submit) {
+        if (!window.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Too many commands in flight (" + config.getMaxInFlight() + ")")
+                    .asRuntimeException());
+        }
+        var completion = new CompletableFuture<Committed<String>>();
+        completion.whenComplete((r, t) -> window.release());
+
+        Subscription subscription = acquire(party);
+        completion.whenComplete((r, t) -> subscription.release());
+        if (subscription.pending.putIfAbsent(commandId, completion) != null) {
+            completion.completeExceptionally(Status.ALREADY_EXISTS
+                    .withDescription("Command " + commandId + " is already being tracked")
+                    .asRuntimeException());
+            return completion;
+        }
+        completion.whenComplete((r, t) -> subscription.pending.remove(commandId, completion));
+
+        subscription.started
+                .thenCompose(v -> submit.get())
+                .whenComplete((r, t) -> {
+                    if (t != null) completion.completeExceptionally(t);
+                });
+        return completion.orTimeout(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs {@code submit} once {@code party}'s completion stream is open, handing it the completion of
+     * {@code commandId} for as long as its own future is outstanding. Lets a synchronous submission learn the outcome
+     * of its command when the answer to the attempt that got through was lost. Unlike {@link #track}, the command does
+     * not count against the window; without a completion stream, {@code submit} runs anyway with a failed completion.
+     */
+    <T> CompletableFuture<T> watch(
+            String party,
+            String commandId,
+            Function<CompletableFuture<Committed<String>>, CompletableFuture<T>> submit
+    ) {
+        var completion = new CompletableFuture<Committed<String>>();
+        Subscription subscription = acquire(party);
+        // A command already tracked under this id completes the same way
+        var existing = subscription.pending.putIfAbsent(commandId, completion);
+        var watched = existing != null ? existing : completion;
+        return subscription.started
+                .handle((v, t) -> t == null
+                        ? watched.copy().orTimeout(config.getTimeoutMillis(), TimeUnit.MILLISECONDS)
+                        : CompletableFuture.<Committed<String>>failedFuture(t))
+                .thenCompose(submit)
+                .whenComplete((r, t) -> {
+                    subscription.pending.remove(commandId, completion);
+                    completion.cancel(false);
+                    subscription.release();
+                });
+    }
+
+    // Counts the caller as a user of the party's stream, so the stream is not closed while it waits on it
+    private Subscription acquire(String party) {
+        Subscription subscription = subscriptions.compute(party, (p, current) -> {
+            var s = current != null ? current : new Subscription(p);
+            s.users.incrementAndGet();
+            return s;
+        });
+        subscription.ensureStarted();
+        return subscription;
+    }
+
+    private void closeIdle() {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        for (String party : subscriptions.keySet()) {
+            // Decided under the map's lock for the party, which acquire() also takes
+            subscriptions.computeIfPresent(party, (p, s) -> {
+                if (s.users.get() > 0 || now - s.lastUsed < idleNanos) return s;
+                logger.debug("Closing idle completion stream for {}", p);
+                s.cancel();
+                return null;
+            });
+        }
+    }
+
+    void stop() {
+        running = false;
+        subscriptions.values().forEach(Subscription::cancel);
+        scheduler.shutdownNow();
+    }
+
+    private final class Subscription {
+        final String party;
+        final Map<String, CompletableFuture<Committed<String>>> pending = new ConcurrentHashMap<>();
+        final CompletableFuture<Void> started = new CompletableFuture<>();
+        final AtomicBoolean starting = new AtomicBoolean();
+        // Callers of track() and watch() that are still waiting on this stream
+        final AtomicInteger users = new AtomicInteger();
+        volatile long lastUsed = System.nanoTime();
+        volatile boolean closed;
+        volatile long offset;
+        volatile Context.CancellableContext context;
+
+        Subscription(String party) {
+            this.party = party;
+        }
+
+        void ensureStarted() {
+            if (starting.compareAndSet(false, true)) startAtLedgerEnd();
+        }
+
+        void release() {
+            lastUsed = System.nanoTime();
+            users.decrementAndGet();
+        }
+
+        private void startAtLedgerEnd() {
+            if (!running || closed) return;
+            LedgerApi.toCompletableFuture(StateServiceGrpc.newFutureStub(channel)
+                            .getLedgerEnd(StateServiceOuterClass.GetLedgerEndRequest.getDefaultInstance()))
+                    .whenComplete((end, t) -> {
+                        if (t != null) {
+                            logger.warn("Could not determine ledger end for completion stream of {}", party, t);
+                            if (!started.isDone()) {
+                                // Let the next submission for this party try again
+                                subscriptions.remove(party, this);
+                                started.completeExceptionally(t);
+                            } else {
+                                scheduler.schedule(this::startAtLedgerEnd, config.getReconnectDelayMillis(), TimeUnit.MILLISECONDS);
+                            }
+                            return;
+                        }
+                        offset = end.getOffset();
+                        subscribe();
+                        started.complete(null);
+                    });
+        }
+
+        private void subscribe() {
+            if (!running || closed) return;
+            var request = CommandCompletionServiceOuterClass.CompletionStreamRequest.newBuilder()
+                    .addParties(party)
+                    .setBeginExclusive(offset)
+                    .build();
+            var ctx = Context.current().withCancellation();
+            context = ctx;
+            if (closed) {
+                // Closed while resubscribing: cancel() may not have seen this context
+                ctx.cancel(null);
+                return;
+            }
+            ctx.run(() -> CommandCompletionServiceGrpc.newStub(channel).completionStream(request, new StreamObserver<>() {
+                @Override
+                public void onNext(CommandCompletionServiceOuterClass.CompletionStreamResponse response) {
+                    if (response.hasCompletion()) {
+                        onCompletion(response.getCompletion());
+                    } else if (response.hasOffsetCheckpoint()) {
+                        offset = response.getOffsetCheckpoint().getOffset();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    if (!running || closed) return;
+                    var code = Status.fromThrowable(t).getCode();
+                    // Completions before a pruned offset are lost either way; affected commands run into their timeout
+                    boolean restart = code == Status.Code.FAILED_PRECONDITION || code == Status.Code.OUT_OF_RANGE;
+                    logger.warn("Completion stream for {} failed at offset {} ({}), resubscribing", party, offset, code, t);
+                    scheduler.schedule(restart ? Subscription.this::startAtLedgerEnd : Subscription.this::subscribe,
+                            config.getReconnectDelayMillis(), TimeUnit.MILLISECONDS);
+                }
+
+                @Override
+                public void onCompleted() {
+                    if (!running || closed) return;
+                    scheduler.execute(Subscription.this::subscribe);
+                }
+            }));
+        }
+
+        private void onCompletion(CompletionOuterClass.Completion completion) {
+            if (completion.getOffset() > 0) {
+                offset = completion.getOffset();
+            }
+            var future = pending.remove(completion.getCommandId());
+            if (future == null) return;
+            if (completion.getStatus().getCode() == Status.Code.OK.value()) {
+                future.complete(new Committed<>(completion.getUpdateId(), completion.getOffset()));
+            } else {
+                future.completeExceptionally(StatusProto.toStatusRuntimeException(completion.getStatus()));
+            }
+        }
+
+        void cancel() {
+            closed = true;
+            var current = context;
+            if (current != null) current.cancel(null);
+            pending.values().forEach(f -> f.cancel(false));
+        }
+    }
+}
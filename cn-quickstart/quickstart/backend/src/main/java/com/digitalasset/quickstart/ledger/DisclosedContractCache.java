@@ -0,0 +1,106 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.CommandsOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.digitalasset.quickstart.tokenstandard.openapi.allocation.model.DisclosedContract;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.protobuf.UnsafeByteOperations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Base64;
+
+/**
+ * Ledger API form of the disclosed contracts returned by the token registry, cached by contract id.
+ *
+ * <p>Settlements within one mining round share the same {@code AmuletRules} and {@code OpenMiningRound} disclosures,
+ * so those are decoded once and reused. The decoded blob is wrapped without a further copy; the cached messages are
+ * immutable. A contract id always refers to the same contract, so entries never go stale, but most of them are useless
+ * once the round has rotated: the first disclosure of a mining round not seen before clears the cache.
+ */
+@Component
+public class DisclosedContractCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DisclosedContractCache.class);
+
+    private static final String OPEN_MINING_ROUND = "OpenMiningRound";
+    // Several rounds are open at a time, so disclosures alternate between a few recent ones
+    private static final int RECENT_ROUNDS = 8;
+
+    private final Cache<String, CommandsOuterClass.DisclosedContract> contracts;
+    private final ArrayDeque<String> recentRounds = new ArrayDeque<>();
+    private final MeterRegistry meterRegistry;
+
+    public DisclosedContractCache(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.contracts = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, contracts, "ledger.disclosed_contracts");
+    }
+
+    /**
+     * The Ledger API form of {@code disclosedContract}, decoded only if it is not cached yet.
+     */
+    public CommandsOuterClass.DisclosedContract get(DisclosedContract disclosedContract) {
+        var cached = contracts.getIfPresent(disclosedContract.getContractId());
+        if (cached != null) {
+            return cached;
+        }
+        var decoded = decode(disclosedContract);
+        if (OPEN_MINING_ROUND.equals(decoded.getTemplateId().getEntityName())) {
+            onRound(decoded.getContractId());
+        }
+        contracts.put(decoded.getContractId(), decoded);
+        return decoded;
+    }
+
+    private void onRound(String roundContractId) {
+        synchronized (recentRounds) {
+            if (recentRounds.contains(roundContractId)) return;
+            boolean rotated = !recentRounds.isEmpty();
+            recentRounds.addFirst(roundContractId);
+            if (recentRounds.size() > RECENT_ROUNDS) recentRounds.removeLast();
+            if (!rotated) return;
+        }
+        contracts.invalidateAll();
+        meterRegistry.counter("ledger.disclosed_contracts.round_rotations").increment();
+        logger.info("Mining round {} seen, cleared cached disclosed contracts", roundContractId);
+    }
+
+    private static CommandsOuterClass.DisclosedContract decode(DisclosedContract dc) {
+        byte[] blob = Base64.getDecoder().decode(dc.getCreatedEventBlob());
+        return CommandsOuterClass.DisclosedContract.newBuilder()
+                .setTemplateId(parseTemplateIdentifier(dc.getTemplateId()))
+                .setContractId(dc.getContractId())
+                // blob is not shared or modified, so the ByteString can wrap it instead of copying it
+                .setCreatedEventBlob(UnsafeByteOperations.unsafeWrap(blob))
+                .build();
+    }
+
+    private static ValueOuterClass.Identifier parseTemplateIdentifier(String templateIdStr) {
+        String[] parts = templateIdStr.split(":");
+        if (parts.length < 3) throw new IllegalArgumentException("Invalid templateId format: " + templateIdStr);
+        String packageId = parts[0];
+        String moduleName = parts[1];
+        StringBuilder entityNameBuilder = new StringBuilder();
+        for (int i = 2; i < parts.length; i++) {
+            if (i > 2) entityNameBuilder.append(":");
+            entityNameBuilder.append(parts[i]);
+        }
+        return ValueOuterClass.Identifier.newBuilder()
+                .setPackageId(packageId)
+                .setModuleName(moduleName)
+                .setEntityName(entityNameBuilder.toString())
+                .build();
+    }
+}
@@ -6,7 +6,7 @@ package com.digitalasset.quickstart.ledger;
 import com.daml.ledger.api.v2.*;
 import com.digitalasset.quickstart.config.LedgerConfig;
 import com.digitalasset.quickstart.security.AuthUtils;
-import com.digitalasset.quickstart.security.TokenProvider;
+import com.digitalasset.quickstart.security.TokenCache;
 import com.digitalasset.transcode.Converter;
 import com.digitalasset.transcode.codec.proto.ProtobufCodec;
 import com.digitalasset.transcode.java.Choice;
@@ -21,8 +21,10 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import daml.Daml;
 import io.grpc.*;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,14 +33,24 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import static com.digitalasset.quickstart.utility.TracingUtils.*;
 
 @Component
 public class LedgerApi {
     private final String APP_ID;
+    private final LedgerChannelPool channel;
     private final CommandSubmissionServiceGrpc.CommandSubmissionServiceFutureStub submission;
     private final CommandServiceGrpc.CommandServiceFutureStub commands;
+    private final UpdateServiceGrpc.UpdateServiceFutureStub updates;
+    private final CommandCompletionTracker completions;
+    private final LedgerConfig.Submission submissionConfig;
+    private final SubmissionHedger hedger;
+    private final AdmissionControl admission;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TransactionFilterOuterClass.TransactionFormat> resultFormats = new ConcurrentHashMap<>();
     private final Dictionary<Converter<Object, ValueOuterClass.Value>> dto2Proto;
     private final Dictionary<Converter<ValueOuterClass.Value, Object>> proto2Dto;
 
@@ -46,17 +58,13 @@ public class LedgerApi {
     private final String appProviderParty;
 
     @Autowired
-    public LedgerApi(LedgerConfig ledgerConfig, Optional<TokenProvider> tokenProvider, AuthUtils authUtils) {
+    public LedgerApi(LedgerConfig ledgerConfig, TokenCache tokenCache, AuthUtils authUtils, MeterRegistry meterRegistry) {
         APP_ID = ledgerConfig.getApplicationId();
         appProviderParty = authUtils.getAppProviderPartyId();
-        ManagedChannelBuilder<?> builder = ManagedChannelBuilder
-                .forAddress(ledgerConfig.getHost(), ledgerConfig.getPort())
-                .usePlaintext();
-        if (tokenProvider.isEmpty()) {
+        if (!tokenCache.isAvailable()) {
             throw new IllegalStateException("TokenProvider is required for authentication");
         }
-        builder.intercept(new Interceptor(tokenProvider.get()));
-        ManagedChannel channel = builder.build();
+        channel = new LedgerChannelPool(ledgerConfig, List.of(new Interceptor(tokenCache)), meterRegistry);
 
         // Single log statement, not duplicating attributes for spans, so leaving as-is:
         logger.atInfo()
@@ -66,12 +74,41 @@ public class LedgerApi {
 
         submission = CommandSubmissionServiceGrpc.newFutureStub(channel);
         commands = CommandServiceGrpc.newFutureStub(channel);
+        updates = UpdateServiceGrpc.newFutureStub(channel);
+        completions = new CommandCompletionTracker(channel, ledgerConfig.getCompletions(), meterRegistry);
+        submissionConfig = ledgerConfig.getSubmission();
+        hedger = new SubmissionHedger(submissionConfig, meterRegistry);
+        admission = new AdmissionControl(ledgerConfig.getAdmission(), meterRegistry);
+        this.meterRegistry = meterRegistry;
 
         ProtobufCodec protoCodec = new ProtobufCodec();
         dto2Proto = Utils.getConverters(Daml.ENTITIES, protoCodec);
         proto2Dto = Utils.getConverters(protoCodec, Daml.ENTITIES);
     }
 
+    @PreDestroy
+    public void close() {
+        completions.stop();
+        hedger.stop();
+        admission.stop();
+        channel.shutdown();
+    }
+
+    /**
+     * Authenticated channel to the participant, for components that need services beyond command submission.
+     */
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public Dictionary<Converter<ValueOuterClass.Value, Object>> getProto2Dto() {
+        return proto2Dto;
+    }
+
+    public String getAppProviderParty() {
+        return appProviderParty;
+    }
+
     @WithSpan
     public <T extends Template> CompletableFuture<Void> create(
             T entity,
@@ -99,6 +136,44 @@ public class LedgerApi {
         });
     }
 
+    /**
+     * Creates a contract and completes once the command's completion has been observed, with the update id and
+     * offset of the resulting transaction.
+     */
+    @WithSpan
+    public <T extends Template> CompletableFuture<Committed<String>> createAndTrack(
+            T entity,
+            String commandId
+    ) {
+        return createAndTrack(entity, commandId, appProviderParty);
+    }
+
+    @WithSpan
+    public <T extends Template> CompletableFuture<Committed<String>> createAndTrack(
+            T entity,
+            String commandId,
+            String actingParty
+    ) {
+        var ctx = tracingCtx(logger, "Creating contract",
+                "commandId", commandId,
+                "templateId", entity.templateId().toString(),
+                "applicationId", APP_ID
+        );
+        return traceWithStartEvent(ctx, () -> {
+            CommandsOuterClass.Command.Builder command = CommandsOuterClass.Command.newBuilder();
+            ValueOuterClass.Value payload = dto2Proto.template(entity.templateId()).convert(entity);
+            command.getCreateBuilder().setTemplateId(toIdentifier(entity.templateId())).setCreateArguments(payload.getRecord());
+            return submitAndTrack(List.of(command.build()), commandId, List.of(), actingParty);
+        });
+    }
+
+    /**
+     * Result of a committed command along with the ledger offset it was committed at. The offset can be handed
+     * to clients as a consistency token for subsequent reads.
+     */
+    public record Committed<R>(R result, long offset) {
+    }
+
     @WithSpan
     public <T extends Template, Result, C extends Choice<T, Result>>
     CompletableFuture<Result> exerciseAndGetResult(
@@ -139,6 +214,51 @@ public class LedgerApi {
             String commandId,
             List<CommandsOuterClass.DisclosedContract> disclosedContracts,
             String actingParty
+    ) {
+        return exerciseAndGetCommitted(contractId, choice, commandId, disclosedContracts, actingParty)
+                .thenApply(Committed::result);
+    }
+
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<Committed<Result>> exerciseAndGetCommitted(
+            ContractId<T> contractId,
+            C choice,
+            String commandId
+    ) {
+        return exerciseAndGetCommitted(contractId, choice, commandId, List.of(), appProviderParty);
+    }
+
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<Committed<Result>> exerciseAndGetCommitted(
+            ContractId<T> contractId,
+            C choice,
+            String commandId,
+            String actingParty
+    ) {
+        return exerciseAndGetCommitted(contractId, choice, commandId, List.of(), actingParty);
+    }
+
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<Committed<Result>> exerciseAndGetCommitted(
+            ContractId<T> contractId,
+            C choice,
+            String commandId,
+            List<CommandsOuterClass.DisclosedContract> disclosedContracts
+    ) {
+        return exerciseAndGetCommitted(contractId, choice, commandId, disclosedContracts, appProviderParty);
+    }
+
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<Committed<Result>> exerciseAndGetCommitted(
+            ContractId<T> contractId,
+            C choice,
+            String commandId,
+            List<CommandsOuterClass.DisclosedContract> disclosedContracts,
+            String actingParty
     ) {
         var ctx = tracingCtx(logger, "Exercising choice",
                 "commandId", commandId,
@@ -148,50 +268,26 @@ public class LedgerApi {
                 "applicationId", APP_ID
         );
         return trace(ctx, () -> {
-            CommandsOuterClass.Command.Builder cmdBuilder = CommandsOuterClass.Command.newBuilder();
-            ValueOuterClass.Value payload =
-                    dto2Proto.choiceArgument(choice.templateId(), choice.choiceName()).convert(choice);
-
-            cmdBuilder.getExerciseBuilder()
-                    .setTemplateId(toIdentifier(choice.templateId()))
-                    .setContractId(contractId.getContractId)
-                    .setChoice(choice.choiceName())
-                    .setChoiceArgument(payload);
-
-            CommandsOuterClass.Commands.Builder commandsBuilder = CommandsOuterClass.Commands.newBuilder()
-                    .setCommandId(commandId)
-                    .addActAs(actingParty)
-                    .addReadAs(actingParty)
-                    .addCommands(cmdBuilder.build());
-
-            if (disclosedContracts != null && !disclosedContracts.isEmpty()) {
-                commandsBuilder.addAllDisclosedContracts(disclosedContracts);
-            }
-
-            var eventFormat = TransactionFilterOuterClass.EventFormat.newBuilder()
-                    .putFiltersByParty(actingParty, TransactionFilterOuterClass.Filters.newBuilder().build())
-                    .build();
-            var transactionShape = TransactionFilterOuterClass.TransactionShape.TRANSACTION_SHAPE_LEDGER_EFFECTS;
-            var transactionFormat =
-                    TransactionFilterOuterClass.TransactionFormat.newBuilder()
-                            .setEventFormat(eventFormat)
-                            .setTransactionShape(transactionShape)
-                            .build();
             CommandServiceOuterClass.SubmitAndWaitForTransactionRequest request =
                     CommandServiceOuterClass.SubmitAndWaitForTransactionRequest.newBuilder()
-                            .setCommands(commandsBuilder.build())
-                            .setTransactionFormat(transactionFormat)
+                            .setCommands(exerciseCommands(contractId, choice, commandId, disclosedContracts, actingParty))
+                            .setTransactionFormat(resultFormat(actingParty, choice.templateId()))
                             .build();
 
             addEventWithAttributes(Span.current(), "built ledger submit request", Map.of());
             logger.info("Submitting ledger command");
-            return toCompletableFuture(commands.submitAndWaitForTransaction(request))
+            return admission.admit(actingParty, () -> submitAndWait("submitAndWaitForTransaction", actingParty, commandId,
+                            deadline -> commands.withDeadline(deadline).submitAndWaitForTransaction(request),
+                            committed -> transactionById(committed.result(), request.getTransactionFormat())))
                     .thenApply(response -> {
+                        recordResponseSize("submitAndWaitForTransaction", response.getSerializedSize());
                         TransactionOuterClass.Transaction txTree = response.getTransaction();
                         long offset = txTree.getOffset();
                         String workflowId = txTree.getWorkflowId();
-                        int eventCount = txTree.getEventsCount();
-                        EventOuterClass.Event event = eventCount != 0 ? txTree.getEvents(0) : null;
+                        EventOuterClass.Event event = txTree.getEventsList().stream()
+                                .filter(EventOuterClass.Event::hasExercised)
+                                .findFirst()
+                                .orElse(null);
 
                         Map<String, Object> completionAttrs = new HashMap<>();
                         completionAttrs.put("ledgerOffset", offset);
@@ -204,11 +300,185 @@ public class LedgerApi {
 
                         @SuppressWarnings("unchecked")
                         Result result = (Result) proto2Dto.choiceResult(choice.templateId(), choice.choiceName()).convert(resultPayload);
-                        return result;
+                        return new Committed<>(result, offset);
+                    });
+        });
+    }
+
+    /**
+     * Exercises a choice whose result the caller does not need. Waits for the command to be committed without
+     * requesting the transaction, so no events are shipped or decoded.
+     */
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<Committed<String>> exercise(
+            ContractId<T> contractId,
+            C choice,
+            String commandId
+    ) {
+        return exercise(contractId, choice, commandId, List.of(), appProviderParty);
+    }
+
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<Committed<String>> exercise(
+            ContractId<T> contractId,
+            C choice,
+            String commandId,
+            String actingParty
+    ) {
+        return exercise(contractId, choice, commandId, List.of(), actingParty);
+    }
+
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<Committed<String>> exercise(
+            ContractId<T> contractId,
+            C choice,
+            String commandId,
+            List<CommandsOuterClass.DisclosedContract> disclosedContracts
+    ) {
+        return exercise(contractId, choice, commandId, disclosedContracts, appProviderParty);
+    }
+
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<Committed<String>> exercise(
+            ContractId<T> contractId,
+            C choice,
+            String commandId,
+            List<CommandsOuterClass.DisclosedContract> disclosedContracts,
+            String actingParty
+    ) {
+        var ctx = tracingCtx(logger, "Exercising choice",
+                "commandId", commandId,
+                "contractId", contractId.getContractId,
+                "choiceName", choice.choiceName(),
+                "templateId", choice.templateId().toString(),
+                "applicationId", APP_ID
+        );
+        return trace(ctx, () -> {
+            CommandServiceOuterClass.SubmitAndWaitRequest request =
+                    CommandServiceOuterClass.SubmitAndWaitRequest.newBuilder()
+                            .setCommands(exerciseCommands(contractId, choice, commandId, disclosedContracts, actingParty))
+                            .build();
+            logger.info("Submitting ledger command");
+            return admission.admit(actingParty, () -> submitAndWait("submitAndWait", actingParty, commandId,
+                            deadline -> commands.withDeadline(deadline).submitAndWait(request),
+                            committed -> CompletableFuture.completedFuture(
+                                    CommandServiceOuterClass.SubmitAndWaitResponse.newBuilder()
+                                            .setUpdateId(committed.result())
+                                            .setCompletionOffset(committed.offset())
+                                            .build())))
+                    .thenApply(response -> {
+                        recordResponseSize("submitAndWait", response.getSerializedSize());
+                        Map<String, Object> completionAttrs = new HashMap<>();
+                        completionAttrs.put("ledgerOffset", response.getCompletionOffset());
+                        completionAttrs.put("updateId", response.getUpdateId());
+                        setSpanAttributes(Span.current(), completionAttrs);
+                        logInfo(logger, "Exercised choice", completionAttrs);
+                        return new Committed<>(response.getUpdateId(), response.getCompletionOffset());
                     });
         });
     }
 
+    /**
+     * Runs a synchronous submission through the hedger. A retry or hedge of a command that already reached the
+     * participant is rejected as a duplicate; when no earlier attempt is left to answer, the command's outcome is
+     * read from the completion stream, which is therefore watched for the command while retries are possible.
+     */
+    private <R> CompletableFuture<R> submitAndWait(
+            String operation,
+            String actingParty,
+            String commandId,
+            Function<Deadline, ListenableFuture<R>> call,
+            Function<Committed<String>, CompletableFuture<R>> fromCompletion
+    ) {
+        long deadlineMillis = submissionConfig.getSubmitAndWaitDeadlineMillis();
+        if (submissionConfig.getMaxAttempts() <= 1) {
+            // Duplicates are only reported for resubmissions, so the outcome is never asked for
+            return hedger.execute(operation, deadlineMillis, call, () -> CompletableFuture.failedFuture(
+                    new IllegalStateException("No resubmission with a single attempt")));
+        }
+        return completions.watch(actingParty, commandId, completion -> hedger.execute(operation, deadlineMillis, call,
+                () -> completion.thenCompose(fromCompletion)));
+    }
+
+    // The answer submitAndWaitForTransaction would have given, for a transaction committed by an earlier attempt
+    private CompletableFuture<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse> transactionById(
+            String updateId,
+            TransactionFilterOuterClass.TransactionFormat format
+    ) {
+        var request = UpdateServiceOuterClass.GetUpdateByIdRequest.newBuilder()
+                .setUpdateId(updateId)
+                .setUpdateFormat(TransactionFilterOuterClass.UpdateFormat.newBuilder().setIncludeTransactions(format))
+                .build();
+        return toCompletableFuture(updates.getUpdateById(request))
+                .thenApply(response -> CommandServiceOuterClass.SubmitAndWaitForTransactionResponse.newBuilder()
+                        .setTransaction(response.getTransaction())
+                        .build());
+    }
+
+    private <T extends Template, Result, C extends Choice<T, Result>> CommandsOuterClass.Commands exerciseCommands(
+            ContractId<T> contractId,
+            C choice,
+            String commandId,
+            List<CommandsOuterClass.DisclosedContract> disclosedContracts,
+            String actingParty
+    ) {
+        CommandsOuterClass.Command.Builder cmdBuilder = CommandsOuterClass.Command.newBuilder();
+        ValueOuterClass.Value payload =
+                dto2Proto.choiceArgument(choice.templateId(), choice.choiceName()).convert(choice);
+
+        cmdBuilder.getExerciseBuilder()
+                .setTemplateId(toIdentifier(choice.templateId()))
+                .setContractId(contractId.getContractId)
+                .setChoice(choice.choiceName())
+                .setChoiceArgument(payload);
+
+        CommandsOuterClass.Commands.Builder commandsBuilder = CommandsOuterClass.Commands.newBuilder()
+                .setCommandId(commandId)
+                .addActAs(actingParty)
+                .addReadAs(actingParty)
+                .addCommands(cmdBuilder.build());
+
+        if (disclosedContracts != null && !disclosedContracts.isEmpty()) {
+            commandsBuilder.addAllDisclosedContracts(disclosedContracts);
+        }
+        return commandsBuilder.build();
+    }
+
+    // Size of exercise responses per operation, so lean and full result formats can be compared on a running ledger
+    private void recordResponseSize(String operation, int bytes) {
+        meterRegistry.summary("ledger.exercise.response_bytes", "operation", operation,
+                "format", submissionConfig.isLeanResultFormat() ? "lean" : "full").record(bytes);
+    }
+
+    /**
+     * Smallest transaction that still carries the exercise result: ledger effects restricted to the exercised
+     * template, so events on other templates (and their create payloads) are neither shipped nor decoded.
+     * Formats are immutable and cached per acting party and template. With {@code leanResultFormat} off, all
+     * templates are included, as before, for comparison.
+     */
+    private TransactionFilterOuterClass.TransactionFormat resultFormat(String actingParty, Identifier templateId) {
+        boolean lean = submissionConfig.isLeanResultFormat();
+        return resultFormats.computeIfAbsent(actingParty + "|" + (lean ? templateId : "*"), k -> {
+            var filters = lean
+                    ? TransactionFilterOuterClass.Filters.newBuilder()
+                            .addCumulative(TransactionFilterOuterClass.CumulativeFilter.newBuilder()
+                                    .setTemplateFilter(TransactionFilterOuterClass.TemplateFilter.newBuilder()
+                                            .setTemplateId(toIdentifier(templateId))))
+                            .build()
+                    // empty filters select all templates
+                    : TransactionFilterOuterClass.Filters.newBuilder().build();
+            return TransactionFilterOuterClass.TransactionFormat.newBuilder()
+                    .setEventFormat(TransactionFilterOuterClass.EventFormat.newBuilder()
+                            .putFiltersByParty(actingParty, filters))
+                    .setTransactionShape(TransactionFilterOuterClass.TransactionShape.TRANSACTION_SHAPE_LEDGER_EFFECTS)
+                    .build();
+        });
+    }
+
     @WithSpan
     public CompletableFuture<CommandSubmissionServiceOuterClass.SubmitResponse> submitCommands(
             List<CommandsOuterClass.Command> cmds,
@@ -254,12 +524,40 @@ public class LedgerApi {
                             .setCommands(commandsBuilder.build())
                             .build();
 
-            return toCompletableFuture(submission.submit(request));
+            // A resubmission rejected as a duplicate means an earlier attempt was accepted, which is all submit reports
+            return admission.admit(actingParty, () -> hedger.execute("submit",
+                    submissionConfig.getSubmitDeadlineMillis(),
+                    deadline -> submission.withDeadline(deadline).submit(request),
+                    () -> CompletableFuture.completedFuture(
+                            CommandSubmissionServiceOuterClass.SubmitResponse.getDefaultInstance())));
         });
     }
 
+    /**
+     * Submits commands without holding a call open until they are committed. The returned future completes when the
+     * completion arrives on the completion stream, with the update id and offset of the transaction, or fails with
+     * the rejection status. Fails immediately with {@code RESOURCE_EXHAUSTED} when too many commands are in flight.
+     */
+    @WithSpan
+    public CompletableFuture<Committed<String>> submitAndTrack(
+            List<CommandsOuterClass.Command> cmds,
+            String commandId,
+            List<CommandsOuterClass.DisclosedContract> disclosedContracts,
+            String actingParty
+    ) {
+        return completions.track(actingParty, commandId,
+                () -> submitCommands(cmds, commandId, disclosedContracts, actingParty));
+    }
+
+    /**
+     * Whether {@code error} rejects a submission because a command with the same command id already reached the
+     * participant, either while it is still being processed or once it has completed.
+     */
+    public static boolean isDuplicate(Throwable error) {
+        return SubmissionHedger.isDuplicate(error);
+    }
 
-    private static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> listenableFuture) {
+    static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> listenableFuture) {
         CompletableFuture<T> completableFuture = new CompletableFuture<>();
         Futures.addCallback(listenableFuture, new FutureCallback<>() {
             @Override
@@ -275,7 +573,7 @@ public class LedgerApi {
         return completableFuture;
     }
 
-    private static ValueOuterClass.Identifier toIdentifier(Identifier id) {
+    static ValueOuterClass.Identifier toIdentifier(Identifier id) {
         return ValueOuterClass.Identifier.newBuilder()
                 .setPackageId(id.packageNameAsPackageId())
                 .setModuleName(id.moduleName())
@@ -286,10 +584,10 @@ public class LedgerApi {
 
     private static class Interceptor implements ClientInterceptor {
         private final Metadata.Key<String> AUTHORIZATION_HEADER = Metadata.Key.of("Authorization", Metadata.ASCII_STRING_MARSHALLER);
-        private final TokenProvider tokenProvider;
+        private final TokenCache tokenCache;
 
-        public Interceptor(TokenProvider tokenProvider) {
-            this.tokenProvider = tokenProvider;
+        public Interceptor(TokenCache tokenCache) {
+            this.tokenCache = tokenCache;
         }
 
         @Override
@@ -298,7 +596,7 @@ public class LedgerApi {
             return new ForwardingClientCall.SimpleForwardingClientCall<>(clientCall) {
                 @Override
                 public void start(Listener<RespT> responseListener, Metadata headers) {
-                    headers.put(AUTHORIZATION_HEADER, "Bearer " + tokenProvider.getToken());
+                    headers.put(AUTHORIZATION_HEADER, tokenCache.getAuthorizationHeader());
                     super.start(responseListener, headers);
                 }
             };
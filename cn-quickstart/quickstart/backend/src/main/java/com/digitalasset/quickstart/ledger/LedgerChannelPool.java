@@ -0,0 +1,163 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.digitalasset.quickstart.config.LedgerConfig;
+import io.grpc.*;
+import io.grpc.netty.NettyChannelBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of channels to the participant that spreads calls across several HTTP/2 connections, so that
+ * concurrent commands are not limited by the stream limit of a single connection.
+ *
+ * <p>All channels share one Netty event loop, using the epoll transport when it is available. Channels are picked
+ * round-robin or by the lowest number of calls in flight; long-lived streams count as in flight for their whole
+ * lifetime, so least-loaded selection steers unary calls away from the channels carrying them. Unary calls without
+ * an explicit deadline get the configured default deadline.
+ */
+public class LedgerChannelPool extends Channel {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerChannelPool.class);
+
+    private final LedgerConfig.Grpc config;
+    private final EventLoopGroup eventLoopGroup;
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private final List<Channel> intercepted = new ArrayList<>();
+    private final AtomicInteger[] inFlight;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public LedgerChannelPool(LedgerConfig ledgerConfig, List<ClientInterceptor> interceptors, MeterRegistry meterRegistry) {
+        this.config = ledgerConfig.getGrpc();
+        boolean epoll = config.isNativeTransport() && Epoll.isAvailable();
+        var threadFactory = new DefaultThreadFactory("ledger-grpc", true);
+        this.eventLoopGroup = epoll
+                ? new EpollEventLoopGroup(config.getEventLoopThreads(), threadFactory)
+                : new NioEventLoopGroup(config.getEventLoopThreads(), threadFactory);
+
+        int size = Math.max(1, config.getPoolSize());
+        this.inFlight = new AtomicInteger[size];
+        for (int i = 0; i < size; i++) {
+            var builder = NettyChannelBuilder.forAddress(ledgerConfig.getHost(), ledgerConfig.getPort())
+                    .usePlaintext()
+                    .eventLoopGroup(eventLoopGroup)
+                    .channelType(epoll ? EpollSocketChannel.class : NioSocketChannel.class)
+                    .keepAliveTime(config.getKeepAliveTimeMillis(), TimeUnit.MILLISECONDS)
+                    .keepAliveTimeout(config.getKeepAliveTimeoutMillis(), TimeUnit.MILLISECONDS)
+                    .keepAliveWithoutCalls(config.isKeepAliveWithoutCalls())
+                    .maxInboundMessageSize(config.getMaxInboundMessageSizeBytes())
+                    .intercept(interceptors);
+            ManagedChannel channel = builder.build();
+            channels.add(channel);
+            inFlight[i] = new AtomicInteger();
+            intercepted.add(ClientInterceptors.intercept(channel, new CallDefaults(), new InFlight(inFlight[i])));
+            Gauge.builder("ledger.channel.in_flight", inFlight[i], AtomicInteger::get)
+                    .tag("channel", Integer.toString(i))
+                    .register(meterRegistry);
+        }
+        logger.atInfo()
+                .addKeyValue("channels", size)
+                .addKeyValue("transport", epoll ? "epoll" : "nio")
+                .addKeyValue("selection", config.getSelection())
+                .log("Ledger channel pool created");
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+        return intercepted.get(select()).newCall(method, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return channels.get(0).authority();
+    }
+
+    public void shutdown() {
+        channels.forEach(ManagedChannel::shutdown);
+        for (ManagedChannel channel : channels) {
+            try {
+                if (!channel.awaitTermination(5, TimeUnit.SECONDS)) channel.shutdownNow();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                channel.shutdownNow();
+            }
+        }
+        eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+    }
+
+    private int select() {
+        if (inFlight.length == 1) return 0;
+        if (config.getSelection() == LedgerConfig.ChannelSelection.ROUND_ROBIN) {
+            return Math.floorMod(next.getAndIncrement(), inFlight.length);
+        }
+        // Start the scan at a rotating index so that ties do not always land on the first channel
+        int start = Math.floorMod(next.getAndIncrement(), inFlight.length);
+        int best = start;
+        for (int i = 1; i < inFlight.length; i++) {
+            int candidate = (start + i) % inFlight.length;
+            if (inFlight[candidate].get() < inFlight[best].get()) best = candidate;
+        }
+        return best;
+    }
+
+    private final class CallDefaults implements ClientInterceptor {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+            if (method.getType() == MethodDescriptor.MethodType.UNARY
+                    && callOptions.getDeadline() == null
+                    && config.getDefaultDeadlineMillis() > 0) {
+                callOptions = callOptions.withDeadlineAfter(config.getDefaultDeadlineMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (config.getCompression() != null && !config.getCompression().isBlank()) {
+                callOptions = callOptions.withCompression(config.getCompression());
+            }
+            return next.newCall(method, callOptions);
+        }
+    }
+
+    private static final class InFlight implements ClientInterceptor {
+        private final AtomicInteger counter;
+
+        InFlight(AtomicInteger counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+            return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    counter.incrementAndGet();
+                    try {
+                        super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                            @Override
+                            public void onClose(Status status, Metadata trailers) {
+                                counter.decrementAndGet();
+                                super.onClose(status, trailers);
+                            }
+                        }, headers);
+                    } catch (RuntimeException e) {
+                        counter.decrementAndGet();
+                        throw e;
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,227 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.digitalasset.quickstart.config.LedgerConfig;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs ledger submissions under a deadline, retrying retryable failures and optionally hedging slow calls.
+ *
+ * <p>Sending the same command again does not return the first answer: once an attempt has reached the participant,
+ * a resubmission under the same command id is rejected, with {@code SUBMISSION_ALREADY_IN_FLIGHT} while the command
+ * is processed and {@code ALREADY_EXISTS} once it has completed. Such a rejection of a retry or hedge only means that
+ * an earlier attempt got through, so it leaves the outcome pending: the earlier attempt answers if it is still
+ * outstanding, otherwise the outcome is resolved through the supplier given to {@link #execute}. A hedge is sent when
+ * an attempt has not answered within the recent p95 latency of the operation, and only wins if the earlier attempt
+ * never reached the participant. Failures of one attempt are only reported once no other attempt is outstanding. All
+ * attempts of one submission share a single deadline.
+ */
+final class SubmissionHedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionHedger.class);
+    private static final int MIN_SAMPLES_FOR_P95 = 20;
+
+    private final LedgerConfig.Submission config;
+    private final MeterRegistry meterRegistry;
+    private final Set<Status.Code> retryable;
+    private final Map<String, Timer> latencies = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ledger-hedging");
+        t.setDaemon(true);
+        return t;
+    });
+
+    SubmissionHedger(LedgerConfig.Submission config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.retryable = config.getRetryableStatuses().stream().map(Status.Code::valueOf).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Runs {@code call} with retries and hedges. {@code outcome} supplies the result of the command when a retry or
+     * hedge was rejected as a duplicate and no earlier attempt is left to answer.
+     */
+    <T> CompletableFuture<T> execute(
+            String operation,
+            long deadlineMillis,
+            Function<Deadline, ListenableFuture<T>> call,
+            Supplier<CompletableFuture<T>> outcome
+    ) {
+        var deadline = deadlineMillis > 0 ? Deadline.after(deadlineMillis, TimeUnit.MILLISECONDS) : null;
+        var attempts = new Attempts<>(operation, deadline, call, outcome);
+        attempts.launch(false);
+        if (config.getHedging().isEnabled() && config.getMaxAttempts() > 1) {
+            scheduler.schedule(attempts::hedge, hedgeDelayMillis(operation), TimeUnit.MILLISECONDS);
+        }
+        return attempts.result;
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    // DUPLICATE_COMMAND maps to ALREADY_EXISTS; SUBMISSION_ALREADY_IN_FLIGHT shares ABORTED with contention errors
+    static boolean isDuplicate(Throwable error) {
+        Status status = Status.fromThrowable(error);
+        return status.getCode() == Status.Code.ALREADY_EXISTS
+                || status.getCode() == Status.Code.ABORTED
+                && status.getDescription() != null
+                && status.getDescription().startsWith("SUBMISSION_ALREADY_IN_FLIGHT");
+    }
+
+    private long hedgeDelayMillis(String operation) {
+        var hedging = config.getHedging();
+        Timer timer = latency(operation);
+        long delay = hedging.getInitialDelayMillis();
+        if (timer.count() >= MIN_SAMPLES_FOR_P95) {
+            for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+                if (value.percentile() == 0.95) delay = (long) value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Math.min(Math.max(delay, hedging.getMinDelayMillis()), hedging.getMaxDelayMillis());
+    }
+
+    private Timer latency(String operation) {
+        return latencies.computeIfAbsent(operation, op -> Timer.builder("ledger.submission.latency")
+                .tag("operation", op)
+                .publishPercentiles(0.95)
+                .register(meterRegistry));
+    }
+
+    private final class Attempts<T> {
+        final String operation;
+        final Deadline deadline;
+        final Function<Deadline, ListenableFuture<T>> call;
+        final Supplier<CompletableFuture<T>> outcome;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final List<ListenableFuture<T>> inFlight = new ArrayList<>();
+        int launched = 0;
+        // The submission's latency runs from the first launch, whichever attempt answers
+        long firstLaunch;
+        Throwable lastError;
+        // A retry or hedge was rejected as a duplicate, so an earlier attempt reached the participant
+        boolean duplicate;
+        boolean resolving;
+
+        Attempts(
+                String operation,
+                Deadline deadline,
+                Function<Deadline, ListenableFuture<T>> call,
+                Supplier<CompletableFuture<T>> outcome
+        ) {
+            this.operation = operation;
+            this.deadline = deadline;
+            this.call = call;
+            this.outcome = outcome;
+            result.whenComplete((r, t) -> cancelOutstanding());
+        }
+
+        /**
+         * Launches an attempt; {@code hedged} marks one launched by {@link #hedge()} rather than as the first attempt
+         * or a retry.
+         */
+        synchronized void launch(boolean hedged) {
+            if (result.isDone() || resolving) return;
+            if (duplicate || launched >= config.getMaxAttempts()) {
+                // A hedge took the slot of a scheduled retry, or a duplicate showed that no retry is needed
+                if (inFlight.isEmpty()) giveUp();
+                return;
+            }
+            int attempt = launched++;
+            if (attempt == 0) firstLaunch = System.nanoTime();
+            ListenableFuture<T> future;
+            try {
+                future = call.apply(deadline);
+            } catch (RuntimeException e) {
+                // Same as an attempt that failed right away: other attempts may still be outstanding
+                onFailure(null, attempt, e);
+                return;
+            }
+            inFlight.add(future);
+            LedgerApi.toCompletableFuture(future).whenComplete((value, error) -> {
+                if (error == null) {
+                    if (result.complete(value)) {
+                        latency(operation).record(System.nanoTime() - firstLaunch, TimeUnit.NANOSECONDS);
+                        if (hedged) meterRegistry.counter("ledger.submission.hedge_wins", "operation", operation).increment();
+                    }
+                } else {
+                    onFailure(future, attempt, error);
+                }
+            });
+        }
+
+        synchronized void hedge() {
+            if (result.isDone() || duplicate || launched >= config.getMaxAttempts() || expired()) return;
+            meterRegistry.counter("ledger.submission.hedges", "operation", operation).increment();
+            launch(true);
+        }
+
+        // future is null for an attempt whose call threw instead of returning a future
+        private synchronized void onFailure(ListenableFuture<T> future, int attempt, Throwable error) {
+            if (future != null) inFlight.remove(future);
+            if (result.isDone() || resolving) return;
+            if (attempt > 0 && isDuplicate(error)) {
+                logger.debug("Resubmission of {} rejected as a duplicate, awaiting the earlier attempt", operation);
+                meterRegistry.counter("ledger.submission.duplicates", "operation", operation).increment();
+                duplicate = true;
+                if (inFlight.isEmpty()) giveUp();
+                return;
+            }
+            lastError = error;
+            var code = Status.fromThrowable(error).getCode();
+            if (!duplicate && retryable.contains(code) && launched < config.getMaxAttempts() && !expired()) {
+                logger.debug("Retrying {} after {}", operation, code);
+                meterRegistry.counter("ledger.submission.retries", "operation", operation).increment();
+                scheduler.schedule(() -> launch(false), config.getRetryBackoffMillis(), TimeUnit.MILLISECONDS);
+            } else if (inFlight.isEmpty()) {
+                giveUp();
+            }
+        }
+
+        // Nothing is outstanding and nothing more will be launched
+        private void giveUp() {
+            if (!duplicate) {
+                result.completeExceptionally(lastError);
+                return;
+            }
+            // The failures seen belong to attempts that may have lost the answer, not the command
+            resolving = true;
+            meterRegistry.counter("ledger.submission.resolved", "operation", operation).increment();
+            outcome.get().whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+
+        private boolean expired() {
+            return deadline != null && deadline.isExpired();
+        }
+
+        private synchronized void cancelOutstanding() {
+            var outstanding = List.copyOf(inFlight);
+            inFlight.clear();
+            outstanding.forEach(f -> f.cancel(true));
+        }
+    }
+}
@@ -4,6 +4,7 @@
 package com.digitalasset.quickstart.ledger;
 
 import com.digitalasset.quickstart.config.LedgerConfig;
+import com.digitalasset.quickstart.security.TokenCache;
 import com.digitalasset.quickstart.tokenstandard.openapi.ApiClient;
 import com.digitalasset.quickstart.tokenstandard.openapi.ApiException;
 import com.digitalasset.quickstart.tokenstandard.openapi.allocation.DefaultAllocationApi;
@@ -13,8 +14,14 @@ import com.digitalasset.quickstart.tokenstandard.openapi.metadata.DefaultMetadat
 import com.digitalasset.quickstart.tokenstandard.openapi.metadata.model.GetRegistryInfoResponse;
 import com.digitalasset.quickstart.utility.TracingUtils;
 import com.digitalasset.quickstart.utility.TracingUtils.TracingContext;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -25,28 +32,67 @@ import org.springframework.stereotype.Component;
 
 import static com.digitalasset.quickstart.utility.TracingUtils.tracingCtx;
 
+/**
+ * Client of the token registry's off-ledger APIs.
+ *
+ * <p>Registry info rarely changes, so it is cached, see {@link LedgerConfig.RegistryInfo}: concurrent misses share
+ * one registry call, reads after the refresh interval trigger a background refresh while they get the cached info,
+ * and a failed refresh keeps serving the previous info. Cache hits and misses are exposed as
+ * {@code cache.gets{cache=registry.info}}, and each registry call is timed by {@code registry.info.load}.
+ */
 @Component
 public class TokenStandardProxy {
     private final DefaultAllocationApi allocationApi;
     private final DefaultMetadataApi metadataApi;
+    private final AsyncLoadingCache<String, GetRegistryInfoResponse> registryInfo;
 
     private static final Logger logger = LoggerFactory.getLogger(TokenStandardProxy.class);
 
-    public TokenStandardProxy(LedgerConfig ledgerConfig) {
+    // The registry info cache holds a single entry
+    private static final String REGISTRY_INFO_KEY = "registry";
+
+    public TokenStandardProxy(LedgerConfig ledgerConfig, TokenCache tokenCache, MeterRegistry meterRegistry) {
         ApiClient apiClient = new ApiClient();
         apiClient.updateBaseUri(ledgerConfig.getRegistryBaseUri());
+        if (tokenCache.isAvailable()) {
+            apiClient.setRequestInterceptor(request -> request.header("Authorization", tokenCache.getAuthorizationHeader()));
+        }
         this.allocationApi = new DefaultAllocationApi(apiClient);
         this.metadataApi = new DefaultMetadataApi(apiClient);
+        LedgerConfig.RegistryInfo cacheConfig = ledgerConfig.getRegistryInfo();
+        Timer loadTimer = Timer.builder("registry.info.load").register(meterRegistry);
+        this.registryInfo = Caffeine.newBuilder()
+                .refreshAfterWrite(Duration.ofMillis(cacheConfig.getRefreshAfterMillis()))
+                .expireAfterWrite(Duration.ofMillis(cacheConfig.getMaxStaleMillis()))
+                .recordStats()
+                .buildAsync((key, executor) -> loadRegistryInfo(loadTimer));
+        CaffeineCacheMetrics.monitor(meterRegistry, registryInfo.synchronous(), "registry.info");
     }
 
     @WithSpan
     public CompletableFuture<String> getRegistryAdminId() {
         var ctx = tracingCtx(logger, "getRegistryAdminId");
         return trace(ctx, () ->
-                metadataApi.getRegistryInfo().thenApply(GetRegistryInfoResponse::getAdminId)
+                registryInfo.get(REGISTRY_INFO_KEY).thenApply(GetRegistryInfoResponse::getAdminId)
         );
     }
 
+    private CompletableFuture<GetRegistryInfoResponse> loadRegistryInfo(Timer loadTimer) {
+        var sample = Timer.start();
+        CompletableFuture<GetRegistryInfoResponse> info;
+        try {
+            info = metadataApi.getRegistryInfo();
+        } catch (ApiException e) {
+            info = CompletableFuture.failedFuture(e);
+        }
+        return info.whenComplete((r, t) -> {
+            sample.stop(loadTimer);
+            if (t != null) {
+                logger.warn("Failed to load registry info", t);
+            }
+        });
+    }
+
     @WithSpan
     public CompletableFuture<Optional<ChoiceContext>> getAllocationTransferContext(String allocationId) {
         var ctx = tracingCtx(logger, "getAllocationTransferContext",
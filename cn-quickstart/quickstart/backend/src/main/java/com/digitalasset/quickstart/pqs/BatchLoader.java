@@ -0,0 +1,115 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single-key lookups into batched loads.
+ *
+ * <p>Keys requested while a batch is open are collected until either {@code maxDelayMillis} has passed since the
+ * first one or {@code maxBatchSize} distinct keys are waiting; then the whole batch is loaded with one call and each
+ * waiting future is completed with its own entry of the result. Keys missing from the result complete empty, and a
+ * failed load fails every future of the batch.
+ */
+final class BatchLoader<K, V> {
+
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final Function<List<K>, CompletableFuture<Map<K, V>>> loader;
+    private final ScheduledExecutorService scheduler;
+    private final DistributionSummary batchSize;
+    private final Timer batchDelay;
+
+    private Map<K, List<CompletableFuture<Optional<V>>>> pending = new LinkedHashMap<>();
+    private long openedAt;
+    private ScheduledFuture<?> scheduledFlush;
+
+    BatchLoader(String name,
+                int maxBatchSize,
+                long maxDelayMillis,
+                Function<List<K>, CompletableFuture<Map<K, V>>> loader,
+                ScheduledExecutorService scheduler,
+                MeterRegistry meterRegistry) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayMillis = maxDelayMillis;
+        this.loader = loader;
+        this.scheduler = scheduler;
+        this.batchSize = DistributionSummary.builder("pqs.batch.size")
+                .tag("template", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchDelay = Timer.builder("pqs.batch.delay")
+                .tag("template", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    CompletableFuture<Optional<V>> load(K key) {
+        var future = new CompletableFuture<Optional<V>>();
+        Map<K, List<CompletableFuture<Optional<V>>>> full = null;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                openedAt = System.nanoTime();
+                scheduledFlush = scheduler.schedule(this::flush, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            pending.computeIfAbsent(key, k -> new ArrayList<>(1)).add(future);
+            if (pending.size() >= maxBatchSize) {
+                full = take();
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    private void flush() {
+        Map<K, List<CompletableFuture<Optional<V>>>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = take();
+        }
+        dispatch(batch);
+    }
+
+    private Map<K, List<CompletableFuture<Optional<V>>>> take() {
+        var batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        batchDelay.record(System.nanoTime() - openedAt, TimeUnit.NANOSECONDS);
+        batchSize.record(batch.size());
+        return batch;
+    }
+
+    private void dispatch(Map<K, List<CompletableFuture<Optional<V>>>> batch) {
+        CompletableFuture<Map<K, V>> result;
+        try {
+            result = loader.apply(List.copyOf(batch.keySet()));
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((values, error) -> batch.forEach((key, futures) -> {
+            for (var future : futures) {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(Optional.ofNullable(values.get(key)));
+                }
+            }
+        }));
+    }
+}
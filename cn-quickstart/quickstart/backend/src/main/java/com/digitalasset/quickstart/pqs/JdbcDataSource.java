@@ -3,14 +3,18 @@
 
 package com.digitalasset.quickstart.pqs;
 
+import com.digitalasset.quickstart.config.ExecutorConfig;
 import com.digitalasset.quickstart.config.PostgresConfig;
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 import javax.sql.DataSource;
 
@@ -20,28 +24,64 @@ import javax.sql.DataSource;
 @Configuration
 public class JdbcDataSource {
 
+    // Single-threaded tasks that read PQS outside its executor: watermark polling, slow query EXPLAIN, result cache
+    // polling, read model updates, and index builds along with their progress reports
+    static final int BACKGROUND_CONNECTIONS = 6;
+
     private Logger logger = LoggerFactory.getLogger(JdbcDataSource.class);
 
     @Autowired
     private PostgresConfig postgresConfig;
 
+    @Autowired
+    private PqsConfig pqsConfig;
+
     /**
-     * Creates a DataSource that connects to a PostgreSQL database using the configuration provided by PostgresConfig.
+     * Creates a pooled DataSource that connects to a PostgreSQL database using the configuration provided by PostgresConfig.
+     * Pool metrics (pending threads, active/idle connections, acquire latency) are published as {@code hikaricp.*} meters.
      *
      * @return A DataSource connected to the PostgreSQL database.
      */
-    @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource(MeterRegistry meterRegistry) {
+        PostgresConfig.Pool pool = postgresConfig.getPool();
+        int maximumPoolSize = maximumPoolSize(pool, pqsConfig.getExecutor());
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("pqs");
         dataSource.setDriverClassName("org.postgresql.Driver");
         String url = String.format("jdbc:postgresql://%s:%d/%s", postgresConfig.getHost(), postgresConfig.getPort(), postgresConfig.getDatabase());
-        logger.info("Connecting to {} as {}", url, postgresConfig.getUsername());
-        dataSource.setUrl(url);
+        logger.info("Connecting to {} as {} (pool size {})", url, postgresConfig.getUsername(), maximumPoolSize);
+        dataSource.setJdbcUrl(url);
         dataSource.setUsername(postgresConfig.getUsername());
         dataSource.setPassword(postgresConfig.getPassword()); // TODO: Make password optional
+
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setMinimumIdle(pool.getMinimumIdle());
+        dataSource.setConnectionTimeout(pool.getConnectionTimeout());
+        dataSource.setIdleTimeout(pool.getIdleTimeout());
+        dataSource.setMaxLifetime(pool.getMaxLifetime());
+        dataSource.setValidationTimeout(pool.getValidationTimeout());
+        dataSource.setLeakDetectionThreshold(pool.getLeakDetectionThreshold());
+
+        dataSource.addDataSourceProperty("prepareThreshold", pool.getPrepareThreshold());
+        dataSource.addDataSourceProperty("preparedStatementCacheQueries", pool.getPreparedStatementCacheQueries());
+        dataSource.addDataSourceProperty("preparedStatementCacheSizeMiB", pool.getPreparedStatementCacheSizeMiB());
+        dataSource.addDataSourceProperty("ApplicationName", "quickstart-backend");
+
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
         return dataSource;
     }
 
+    /**
+     * The configured pool size, or else one connection for each PQS executor thread, which also run the cursor
+     * streams, plus one for each background task. With a virtual-thread executor the pool is what bounds concurrent
+     * queries, so the configured executor pool size is used as that bound.
+     */
+    static int maximumPoolSize(PostgresConfig.Pool pool, ExecutorConfig executor) {
+        if (pool.getMaximumPoolSize() > 0) return pool.getMaximumPoolSize();
+        return Math.max(1, executor.getPoolSize()) + BACKGROUND_CONNECTIONS;
+    }
+
     @Bean
     public JdbcTemplate jdbcTemplate(DataSource dataSource) {
         return new JdbcTemplate(dataSource);
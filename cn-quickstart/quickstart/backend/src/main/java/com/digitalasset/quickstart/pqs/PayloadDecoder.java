@@ -0,0 +1,207 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.digitalasset.transcode.Converter;
+import com.digitalasset.transcode.java.Template;
+import com.digitalasset.transcode.java.Utils;
+import com.digitalasset.transcode.schema.Dictionary;
+import com.digitalasset.transcode.schema.Identifier;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.protobuf.Empty;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes PQS JSON payloads from the bytes the Postgres driver received, without building a String of the whole
+ * payload first. A streaming parser reads the bytes as UTF-8 and, guided by the template's {@link PayloadSchema},
+ * builds the Ledger API value of the payload, which the transcode {@code ProtobufCodec} converters turn into the
+ * generated class, as they do for payloads read from the Ledger API.
+ *
+ * <p>Only templates with a schema can be decoded this way, see {@link #supports(Identifier)}. A payload that does not
+ * match its schema fails with a {@link JsonParseException}.
+ */
+final class PayloadDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Dictionary<Converter<ValueOuterClass.Value, Object>> proto2Dto;
+    // by qualified template name
+    private final Map<String, PayloadSchema.RecordOf> schemas = new HashMap<>();
+
+    PayloadDecoder(Dictionary<Converter<ValueOuterClass.Value, Object>> proto2Dto,
+                   Map<Class<? extends Template>, PayloadSchema.RecordOf> schemas) {
+        this.proto2Dto = proto2Dto;
+        schemas.forEach((clazz, schema) -> this.schemas.put(Utils.getTemplateIdByClass(clazz).qualifiedName(), schema));
+    }
+
+    boolean supports(Identifier templateId) {
+        return schemas.containsKey(templateId.qualifiedName());
+    }
+
+    Object decode(Identifier templateId, byte[] json) throws IOException {
+        PayloadSchema.RecordOf schema = schemas.get(templateId.qualifiedName());
+        if (schema == null) throw new IllegalArgumentException("No payload schema for " + templateId.qualifiedName());
+        ValueOuterClass.Value value;
+        try (JsonParser parser = JSON.createParser(json)) {
+            parser.nextToken();
+            value = read(parser, schema);
+        }
+        return proto2Dto.template(templateId).convert(value);
+    }
+
+    // Reads the value starting at the current token; leaves the parser on its last token
+    private static ValueOuterClass.Value read(JsonParser parser, PayloadSchema type) throws IOException {
+        var value = ValueOuterClass.Value.newBuilder();
+        if (type instanceof PayloadSchema.Primitive primitive) {
+            readPrimitive(parser, primitive, value);
+        } else if (type instanceof PayloadSchema.RecordOf record) {
+            value.setRecord(readRecord(parser, record));
+        } else if (type instanceof PayloadSchema.ListOf list) {
+            expect(parser, JsonToken.START_ARRAY, type);
+            var elements = ValueOuterClass.List.newBuilder();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                elements.addElements(read(parser, list.element()));
+            }
+            value.setList(elements);
+        } else if (type instanceof PayloadSchema.OptionalOf optional) {
+            var present = ValueOuterClass.Optional.newBuilder();
+            if (parser.currentToken() != JsonToken.VALUE_NULL) {
+                present.setValue(read(parser, optional.value()));
+            }
+            value.setOptional(present);
+        } else if (type instanceof PayloadSchema.TextMapOf map) {
+            expect(parser, JsonToken.START_OBJECT, type);
+            var entries = ValueOuterClass.TextMap.newBuilder();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.currentName();
+                parser.nextToken();
+                entries.addEntries(ValueOuterClass.TextMap.Entry.newBuilder().setKey(key).setValue(read(parser, map.value())));
+            }
+            value.setTextMap(entries);
+        }
+        return value.build();
+    }
+
+    // Fields may come in any order (jsonb orders them by length), the value lists them in declaration order
+    private static ValueOuterClass.Record readRecord(JsonParser parser, PayloadSchema.RecordOf schema) throws IOException {
+        expect(parser, JsonToken.START_OBJECT, schema);
+        var values = new ValueOuterClass.Value[schema.fields.size()];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Integer position = schema.positions.get(parser.currentName());
+            if (position == null) {
+                throw new JsonParseException(parser, "Field " + parser.currentName() + " is not in the payload schema");
+            }
+            parser.nextToken();
+            values[position] = read(parser, schema.fields.get(position).type());
+        }
+        var record = ValueOuterClass.Record.newBuilder();
+        for (int i = 0; i < values.length; i++) {
+            PayloadSchema.Field field = schema.fields.get(i);
+            ValueOuterClass.Value value = values[i];
+            if (value == null) {
+                if (!(field.type() instanceof PayloadSchema.OptionalOf)) {
+                    throw new JsonParseException(parser, "Field " + field.name() + " is missing");
+                }
+                value = ValueOuterClass.Value.newBuilder().setOptional(ValueOuterClass.Optional.getDefaultInstance()).build();
+            }
+            record.addFields(ValueOuterClass.RecordField.newBuilder().setLabel(field.name()).setValue(value));
+        }
+        return record.build();
+    }
+
+    private static void readPrimitive(JsonParser parser, PayloadSchema.Primitive type, ValueOuterClass.Value.Builder value)
+            throws IOException {
+        switch (type) {
+            case BOOL -> {
+                if (!parser.currentToken().isBoolean()) throw unexpected(parser, type);
+                value.setBool(parser.currentToken() == JsonToken.VALUE_TRUE);
+            }
+            case UNIT -> {
+                expect(parser, JsonToken.START_OBJECT, type);
+                parser.skipChildren();
+                value.setUnit(Empty.getDefaultInstance());
+            }
+            // Int64 is a string, but accept a number as well
+            case INT64 -> value.setInt64(parser.currentToken() == JsonToken.VALUE_NUMBER_INT
+                    ? parser.getLongValue()
+                    : parseLong(parser, text(parser, type)));
+            default -> {
+                String text = text(parser, type);
+                switch (type) {
+                    case TEXT -> value.setText(text);
+                    case PARTY -> value.setParty(text);
+                    case CONTRACT_ID -> value.setContractId(text);
+                    case NUMERIC -> value.setNumeric(text);
+                    case ENUM -> value.setEnum(ValueOuterClass.Enum.newBuilder().setConstructor(text));
+                    case TIMESTAMP -> value.setTimestamp(micros(parser, text));
+                    case DATE -> value.setDate(days(parser, text));
+                    default -> throw unexpected(parser, type);
+                }
+            }
+        }
+    }
+
+    // Numeric is a string, but accept a number as well
+    private static String text(JsonParser parser, PayloadSchema type) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING
+                || (type == PayloadSchema.Primitive.NUMERIC && token != null && token.isNumeric())) {
+            return parser.getText();
+        }
+        throw unexpected(parser, type);
+    }
+
+    private static long parseLong(JsonParser parser, String text) throws JsonParseException {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new JsonParseException(parser, "Not an Int: " + text, e);
+        }
+    }
+
+    // Ledger API timestamps are microseconds since the epoch
+    private static long micros(JsonParser parser, String text) throws JsonParseException {
+        try {
+            Instant instant = Instant.parse(text);
+            return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+        } catch (DateTimeParseException | ArithmeticException e) {
+            throw new JsonParseException(parser, "Not a Time: " + text, e);
+        }
+    }
+
+    // Ledger API dates are days since the epoch
+    private static int days(JsonParser parser, String text) throws JsonParseException {
+        try {
+            return Math.toIntExact(LocalDate.parse(text).toEpochDay());
+        } catch (DateTimeParseException | ArithmeticException e) {
+            throw new JsonParseException(parser, "Not a Date: " + text, e);
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, PayloadSchema type) throws JsonParseException {
+        if (parser.currentToken() != token) throw unexpected(parser, type);
+    }
+
+    private static JsonParseException unexpected(JsonParser parser, PayloadSchema type) {
+        return new JsonParseException(parser, "Unexpected " + parser.currentToken() + " for " + describe(type));
+    }
+
+    private static String describe(PayloadSchema type) {
+        if (type instanceof PayloadSchema.Primitive primitive) return primitive.name();
+        if (type instanceof PayloadSchema.RecordOf) return "a record";
+        if (type instanceof PayloadSchema.ListOf) return "a list";
+        if (type instanceof PayloadSchema.OptionalOf) return "an optional";
+        return "a text map";
+    }
+}
@@ -0,0 +1,78 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Daml type of a contract payload, as far as {@link PayloadDecoder} needs it to read the PQS JSON encoding. PQS
+ * writes Text, Party, ContractId, Numeric, Int, Time, Date and enum constructors all as JSON strings, so the JSON
+ * alone does not say which Ledger API value to build.
+ */
+sealed interface PayloadSchema {
+
+    enum Primitive implements PayloadSchema {
+        TEXT, PARTY, CONTRACT_ID, NUMERIC, INT64, TIMESTAMP, DATE, BOOL, UNIT,
+        /** A constructor of a Daml enum, e.g. {@code Issued}. */
+        ENUM
+    }
+
+    /**
+     * A record, fields in declaration order. Fields missing from the JSON must be optional.
+     */
+    final class RecordOf implements PayloadSchema {
+        final List<Field> fields;
+        final Map<String, Integer> positions = new HashMap<>();
+
+        private RecordOf(List<Field> fields) {
+            this.fields = fields;
+            for (int i = 0; i < fields.size(); i++) {
+                positions.put(fields.get(i).name(), i);
+            }
+        }
+    }
+
+    record Field(String name, PayloadSchema type) {
+    }
+
+    record ListOf(PayloadSchema element) implements PayloadSchema {
+    }
+
+    /**
+     * An optional value, {@code null} when empty. Nested optionals use another encoding and are not supported.
+     */
+    record OptionalOf(PayloadSchema value) implements PayloadSchema {
+        public OptionalOf {
+            if (value instanceof OptionalOf) throw new IllegalArgumentException("Nested optionals are not supported");
+        }
+    }
+
+    /**
+     * A {@code TextMap}, encoded as a JSON object.
+     */
+    record TextMapOf(PayloadSchema value) implements PayloadSchema {
+    }
+
+    static RecordOf record(Field... fields) {
+        return new RecordOf(List.of(fields));
+    }
+
+    static Field field(String name, PayloadSchema type) {
+        return new Field(name, type);
+    }
+
+    static PayloadSchema list(PayloadSchema element) {
+        return new ListOf(element);
+    }
+
+    static PayloadSchema optional(PayloadSchema value) {
+        return new OptionalOf(value);
+    }
+
+    static PayloadSchema textMap(PayloadSchema value) {
+        return new TextMapOf(value);
+    }
+}
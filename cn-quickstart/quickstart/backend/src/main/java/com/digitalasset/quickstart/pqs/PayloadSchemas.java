@@ -0,0 +1,164 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import static com.digitalasset.quickstart.pqs.PayloadSchema.Primitive.*;
+import static com.digitalasset.quickstart.pqs.PayloadSchema.field;
+import static com.digitalasset.quickstart.pqs.PayloadSchema.list;
+import static com.digitalasset.quickstart.pqs.PayloadSchema.optional;
+import static com.digitalasset.quickstart.pqs.PayloadSchema.record;
+import static com.digitalasset.quickstart.pqs.PayloadSchema.textMap;
+
+import com.digitalasset.transcode.java.Template;
+import quickstart_invoicing.invoicing.disclosure.BookkeeperView;
+import quickstart_invoicing.invoicing.disclosure.LogisticsView;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+import quickstart_invoicing.invoicing.invoice.InvoicePaymentRequest;
+
+import java.util.Map;
+
+/**
+ * Payload schemas of the invoicing templates, mirroring daml/invoicing (Invoicing.Types, Invoicing.Invoice and
+ * Invoicing.Disclosure) and the token standard types they use. Keep them in step with the Daml model: a payload that
+ * no longer matches is decoded from its JSON text instead, see {@link Pqs}.
+ */
+final class PayloadSchemas {
+
+    private PayloadSchemas() {
+    }
+
+    private static final PayloadSchema METADATA = record(
+            field("values", textMap(TEXT)));
+
+    private static final PayloadSchema INSTRUMENT_ID = record(
+            field("admin", PARTY),
+            field("id", TEXT));
+
+    private static final PayloadSchema ADDRESS = record(
+            field("street", TEXT),
+            field("city", TEXT),
+            field("state", TEXT),
+            field("postalCode", TEXT),
+            field("country", TEXT));
+
+    private static final PayloadSchema CONTACT = record(
+            field("name", TEXT),
+            field("email", TEXT),
+            field("phone", TEXT));
+
+    private static final PayloadSchema PARTY_INFO = record(
+            field("partyName", TEXT),
+            field("regNumber", TEXT),
+            field("taxNumber", TEXT),
+            field("address", ADDRESS),
+            field("contact", CONTACT));
+
+    private static final PayloadSchema LINE_ITEM = record(
+            field("itemName", TEXT),
+            field("sku", TEXT),
+            field("quantity", NUMERIC),
+            field("unitOfMeasure", TEXT),
+            field("unitPrice", NUMERIC),
+            field("discount", NUMERIC),
+            field("taxRate", NUMERIC),
+            field("lineSubtotal", NUMERIC),
+            field("batchInfo", TEXT),
+            field("deliveryDate", TEXT));
+
+    private static final PayloadSchema TAX_ENTRY = record(
+            field("taxName", TEXT),
+            field("taxRate", NUMERIC),
+            field("taxAmount", NUMERIC));
+
+    private static final PayloadSchema LOGISTICS_ITEM = record(
+            field("itemName", TEXT),
+            field("sku", TEXT),
+            field("quantity", NUMERIC),
+            field("unitOfMeasure", TEXT),
+            field("batchInfo", TEXT),
+            field("deliveryDate", TEXT));
+
+    static final PayloadSchema.RecordOf INVOICE = record(
+            field("seller", PARTY),
+            field("buyer", PARTY),
+            field("provider", PARTY),
+            field("invoiceNum", INT64),
+            field("invoiceDate", TIMESTAMP),
+            field("dueDate", TIMESTAMP),
+            field("currency", TEXT),
+            field("sellerInfo", PARTY_INFO),
+            field("buyerInfo", PARTY_INFO),
+            field("shippingAddress", ADDRESS),
+            field("lineItems", list(LINE_ITEM)),
+            field("subtotal", NUMERIC),
+            field("totalDiscount", NUMERIC),
+            field("taxBreakdown", list(TAX_ENTRY)),
+            field("totalTax", NUMERIC),
+            field("grandTotal", NUMERIC),
+            field("amountPaid", NUMERIC),
+            field("balanceDue", NUMERIC),
+            field("instrumentId", INSTRUMENT_ID),
+            field("paymentTerms", TEXT),
+            field("poNumber", TEXT),
+            field("salesOrderNumber", TEXT),
+            field("notes", TEXT),
+            field("deliveryTerms", TEXT),
+            field("description", TEXT),
+            field("status", ENUM),
+            field("meta", METADATA));
+
+    static final PayloadSchema.RecordOf INVOICE_PAYMENT_REQUEST = record(
+            field("requestId", TEXT),
+            field("seller", PARTY),
+            field("buyer", PARTY),
+            field("provider", PARTY),
+            field("invoiceNum", INT64),
+            field("amount", NUMERIC),
+            field("instrumentId", INSTRUMENT_ID),
+            field("description", TEXT),
+            field("prepareUntil", TIMESTAMP),
+            field("settleBefore", TIMESTAMP),
+            field("requestedAt", TIMESTAMP),
+            field("invoiceId", optional(CONTRACT_ID)));
+
+    static final PayloadSchema.RecordOf LOGISTICS_VIEW = record(
+            field("grantor", PARTY),
+            field("carrier", PARTY),
+            field("provider", PARTY),
+            field("invoiceRef", TEXT),
+            field("orderRef", TEXT),
+            field("shipFromAddress", ADDRESS),
+            field("shipToAddress", ADDRESS),
+            field("sellerContact", CONTACT),
+            field("buyerContact", CONTACT),
+            field("items", list(LOGISTICS_ITEM)),
+            field("deliveryTerms", TEXT),
+            field("notes", TEXT),
+            field("meta", METADATA));
+
+    static final PayloadSchema.RecordOf BOOKKEEPER_VIEW = record(
+            field("grantor", PARTY),
+            field("bookkeeper", PARTY),
+            field("provider", PARTY),
+            field("invoiceNum", INT64),
+            field("invoiceDate", TIMESTAMP),
+            field("sellerName", TEXT),
+            field("buyerName", TEXT),
+            field("currency", TEXT),
+            field("status", ENUM),
+            field("subtotal", NUMERIC),
+            field("totalDiscount", NUMERIC),
+            field("taxBreakdown", list(TAX_ENTRY)),
+            field("grandTotal", NUMERIC),
+            field("amountPaid", NUMERIC),
+            field("balanceDue", NUMERIC),
+            field("itemCategories", list(TEXT)),
+            field("meta", METADATA));
+
+    static final Map<Class<? extends Template>, PayloadSchema.RecordOf> INVOICING = Map.of(
+            Invoice.class, INVOICE,
+            InvoicePaymentRequest.class, INVOICE_PAYMENT_REQUEST,
+            LogisticsView.class, LOGISTICS_VIEW,
+            BookkeeperView.class, BOOKKEEPER_VIEW);
+}
@@ -5,30 +5,59 @@ package com.digitalasset.quickstart.pqs;
 
 import static com.digitalasset.quickstart.utility.TracingUtils.*;
 
+import com.digitalasset.quickstart.config.PqsConfig;
 import com.digitalasset.transcode.Converter;
 import com.digitalasset.transcode.codec.json.JsonStringCodec;
+import com.digitalasset.transcode.codec.proto.ProtobufCodec;
 import com.digitalasset.transcode.java.ContractId;
 import com.digitalasset.transcode.java.Template;
 import com.digitalasset.transcode.java.Utils;
 import com.digitalasset.transcode.schema.Dictionary;
 import com.digitalasset.transcode.schema.Identifier;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import daml.Daml;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import jakarta.annotation.PreDestroy;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * PQS adapter that provides access to Daml contracts from a Postgres database.
@@ -39,12 +68,82 @@ public class Pqs {
     private static final Logger logger = LoggerFactory.getLogger(Pqs.class);
 
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate cursorTransaction;
+    // Each open stream holds a connection for as long as its consumer keeps reading
+    private final Semaphore streams;
     private final Dictionary<Converter<String, Object>> json2Dto;
+    // null unless binary decoding is enabled
+    private final PayloadDecoder payloadDecoder;
+    private final Set<String> binaryFallbacks = ConcurrentHashMap.newKeySet();
+    private final Executor executor;
+    // Contract payloads are immutable, so a decoded payload stays valid for the lifetime of its contract id
+    private final Cache<DecodeKey, DecodedPayload> decodeCache;
+    private final PqsConfig.Batching batching;
+    private final MeterRegistry meterRegistry;
+    private final QueryInstrumentation instrumentation;
+    private final Map<String, BatchLoader<String, Contract<?>>> byIdLoaders = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService batchScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pqs-batch");
+        t.setDaemon(true);
+        return t;
+    });
+    private final int parallelDecodeThreshold;
+    private final int decodeParallelism;
+    // null unless parallel decoding is enabled
+    private final ExecutorService decodePool;
 
     @Autowired
-    public Pqs(JdbcTemplate jdbcTemplate) {
+    public Pqs(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier(PqsExecutor.BEAN_NAME) Executor executor,
+            PqsConfig pqsConfig,
+            MeterRegistry meterRegistry,
+            QueryInstrumentation instrumentation
+    ) {
         this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.batching = pqsConfig.getBatching();
+        this.meterRegistry = meterRegistry;
+        this.instrumentation = instrumentation;
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(pqsConfig.getStreaming().getFetchSize());
+        this.cursorTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.cursorTransaction.setReadOnly(true);
+        if (pqsConfig.getStreaming().getStatementTimeoutSeconds() > 0) {
+            this.cursorTransaction.setTimeout(pqsConfig.getStreaming().getStatementTimeoutSeconds());
+        }
+        this.streams = new Semaphore(Math.max(1, pqsConfig.getStreaming().getMaxConcurrentStreams()));
         this.json2Dto = Utils.getConverters(new JsonStringCodec(true, true, false), Daml.ENTITIES);
+        this.payloadDecoder = pqsConfig.getBinaryDecode().isEnabled()
+                ? new PayloadDecoder(Utils.getConverters(new ProtobufCodec(), Daml.ENTITIES), PayloadSchemas.INVOICING)
+                : null;
+        PqsConfig.DecodeCache cacheConfig = pqsConfig.getDecodeCache();
+        if (cacheConfig.isEnabled()) {
+            this.decodeCache = Caffeine.newBuilder()
+                    .maximumWeight(cacheConfig.getMaxWeight())
+                    .<DecodeKey, DecodedPayload>weigher((key, value) -> value.weight())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, decodeCache, "pqs.decode");
+        } else {
+            this.decodeCache = null;
+        }
+        PqsConfig.ParallelDecode parallelDecode = pqsConfig.getParallelDecode();
+        this.parallelDecodeThreshold = Math.max(2, parallelDecode.getThreshold());
+        this.decodeParallelism = parallelDecode.getParallelism();
+        if (parallelDecode.isEnabled() && parallelDecode.getParallelism() > 1) {
+            var threadId = new AtomicInteger();
+            // The calling thread decodes one chunk itself, so the pool gets one thread less
+            this.decodePool = Executors.newFixedThreadPool(parallelDecode.getParallelism() - 1, r -> {
+                Thread t = new Thread(r, "pqs-decode-" + threadId.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            this.decodePool = null;
+        }
     }
 
     /**
@@ -56,8 +155,8 @@ public class Pqs {
         var ctx = tracingCtx(logger, "active", "templateId", identifier.qualifiedName());
         return runAndTraceAsync(ctx, () -> {
             String sql = "select contract_id, payload from active(?)";
-            return jdbcTemplate.query(sql, new PqsContractRowMapper<>(identifier), identifier.qualifiedName());
-        });
+            return queryContracts("active", identifier, sql, identifier.qualifiedName());
+        }, executor);
     }
 
     /**
@@ -77,14 +176,16 @@ public class Pqs {
         );
         return runAndTraceAsync(ctx, () -> {
             String sql = "select contract_id, payload from active(?) where " + whereClause;
-            return jdbcTemplate.query(sql, new PqsContractRowMapper<>(identifier), combineParams(identifier.qualifiedName(), params));
-        });
+            return queryContracts("activeWhere", identifier, sql, combineParams(identifier.qualifiedName(), params));
+        }, executor);
     }
 
     /**
-     * Retrieves a contract by its contract ID from the underlying store.
+     * Retrieves a contract by its contract ID from the underlying store. Concurrent lookups of the same template
+     * are coalesced into a single {@code contract_id = any(?)} query, see {@link PqsConfig.Batching}.
      */
     @WithSpan
+    @SuppressWarnings("unchecked")
     public <T extends Template> CompletableFuture<Optional<Contract<T>>> contractByContractId(
             Class<T> clazz,
             Object... params
@@ -94,26 +195,180 @@ public class Pqs {
                 "templateId", identifier.qualifiedName(),
                 "params", params
         );
+        if (batching.isEnabled() && params.length == 1 && params[0] instanceof String contractId) {
+            var loader = byIdLoaders.computeIfAbsent(identifier.qualifiedName(), name -> new BatchLoader<>(name,
+                    batching.getMaxBatchSize(), batching.getMaxDelayMillis(),
+                    contractIds -> contractsByContractIds(identifier, contractIds),
+                    batchScheduler, meterRegistry));
+            return trace(ctx, () -> loader.load(contractId).thenApply(c -> c.map(contract -> (Contract<T>) contract)));
+        }
         return runAndTraceAsync(ctx, () -> {
             String sql = "select contract_id, payload from active(?) where contract_id = ?";
-            try {
-                return Optional.ofNullable(jdbcTemplate.queryForObject(sql, new PqsContractRowMapper<>(identifier),
-                    combineParams(identifier.qualifiedName(), params)));
-            } catch (EmptyResultDataAccessException e) {
-                return Optional.empty();
+            Object[] combined = combineParams(identifier.qualifiedName(), params);
+            return instrumentation.run("contractByContractId", sql, combined, () -> {
+                try {
+                    return Optional.ofNullable(jdbcTemplate.queryForObject(sql, new PqsContractRowMapper<>(identifier), combined));
+                } catch (EmptyResultDataAccessException e) {
+                    return Optional.<Contract<T>>empty();
+                }
+            });
+        }, executor);
+    }
+
+    private CompletableFuture<Map<String, Contract<?>>> contractsByContractIds(Identifier identifier, List<String> contractIds) {
+        var ctx = tracingCtx(logger, "PQS contractsByContractIds",
+                "templateId", identifier.qualifiedName(),
+                "batchSize", contractIds.size()
+        );
+        String sql = "select contract_id, payload from active(?) where contract_id = any(?)";
+        // The array parameter is bound through the connection, so these can not be explained
+        return runAndTraceAsync(ctx, () -> instrumentation.run("contractsByContractIds", sql, null, () -> {
+            Map<String, Contract<?>> contracts = new HashMap<>();
+            var rowMapper = new PqsContractRowMapper<>(identifier);
+            jdbcTemplate.query(sql,
+                    ps -> {
+                        ps.setString(1, identifier.qualifiedName());
+                        ps.setArray(2, ps.getConnection().createArrayOf("text", contractIds.toArray()));
+                    },
+                    rs -> {
+                        var contract = rowMapper.mapRow(rs, 0);
+                        contracts.put(contract.contractId.getContractId, contract);
+                    });
+            return contracts;
+        }), executor);
+    }
+
+    /**
+     * Streams active contracts of a specific template type matching a custom WHERE clause through a
+     * database cursor, so only one fetch batch is held in memory at a time. The stream is only valid
+     * inside {@code body}, which runs on the PQS executor. Fails with 503 when the maximum number of streams is open.
+     */
+    @WithSpan
+    public <T extends Template, R> CompletableFuture<R> streamActiveWhere(
+            Class<T> clazz,
+            String whereClause,
+            Function<Stream<Contract<T>>, R> body,
+            Object... params
+    ) {
+        Identifier identifier = Utils.getTemplateIdByClass(clazz);
+        var ctx = tracingCtx(logger, "streamActiveWhere",
+                "templateId", identifier.qualifiedName(),
+                "whereClause", whereClause
+        );
+        String sql = "select contract_id, payload from active(?) where " + whereClause;
+        Object[] combined = combineParams(identifier.qualifiedName(), params);
+        return withStreamPermit(() -> runAndTraceAsync(ctx, () -> instrumentation.runStream("streamActiveWhere", sql, () -> withCursor(() -> {
+            try (Stream<Contract<T>> contracts = cursorJdbcTemplate.queryForStream(sql,
+                    new PqsContractRowMapper<>(identifier), combined)) {
+                return body.apply(contracts);
             }
-        });
+        })), executor));
+    }
+
+    /**
+     * Like {@link #query(String, String, RowCallbackHandler, Object...)}, but reads the rows through a database cursor.
+     * Fails with 503 when the maximum number of streams is open.
+     */
+    @WithSpan
+    public CompletableFuture<Void> streamQuery(String name, String sql, RowCallbackHandler callback, Object... params) {
+        var ctx = tracingCtx(logger, "streamQuery",
+                "query", name,
+                "sql", sql,
+                "params", params
+        );
+        return withStreamPermit(() -> runAndTraceAsync(ctx, () -> instrumentation.runStream(name, sql, () -> withCursor(() -> {
+            cursorJdbcTemplate.query(sql, counting(callback), params);
+            return null;
+        })), executor));
     }
 
+    /**
+     * Runs {@code stream} if fewer than {@code maxConcurrentStreams} streams are open, so that slow consumers cannot
+     * take every connection of the pool. A rejected stream fails right away, before anything has been emitted.
+     */
+    private <R> CompletableFuture<R> withStreamPermit(Supplier<CompletableFuture<R>> stream) {
+        if (!streams.tryAcquire()) {
+            meterRegistry.counter("pqs.stream.rejected").increment();
+            return CompletableFuture.failedFuture(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open PQS streams"));
+        }
+        try {
+            return stream.get().whenComplete((r, t) -> streams.release());
+        } catch (RuntimeException e) {
+            streams.release();
+            throw e;
+        }
+    }
+
+    // The Postgres driver only honours the fetch size with auto-commit off, i.e. inside a transaction. The transaction
+    // timeout is applied to the statement as its query timeout.
+    private <R> R withCursor(Supplier<R> body) {
+        return cursorTransaction.execute(status -> body.get());
+    }
+
+    /**
+     * Runs {@code sql}, handing each row to {@code callback}. {@code name} identifies the query in metrics and in the
+     * slow query log.
+     */
     @WithSpan
-    public CompletableFuture<Void> query(String sql, RowCallbackHandler callback, Object... params) {
+    public CompletableFuture<Void> query(String name, String sql, RowCallbackHandler callback, Object... params) {
         var ctx = tracingCtx(logger, "query",
+                "query", name,
                 "sql", sql,
                 "params", params
         );
-        return runAndTraceAsync(ctx, () -> {
-            jdbcTemplate.query(sql, callback, params);
+        return runAndTraceAsync(ctx, () -> instrumentation.run(name, sql, params, () -> {
+            jdbcTemplate.query(sql, counting(callback), params);
             return null;
+        }), executor);
+    }
+
+    private static RowCallbackHandler counting(RowCallbackHandler callback) {
+        return rs -> {
+            QueryInstrumentation.countRow();
+            callback.processRow(rs);
+        };
+    }
+
+    /**
+     * Ledger offset up to which PQS has ingested all updates.
+     */
+    @WithSpan
+    public CompletableFuture<Long> watermark() {
+        var ctx = tracingCtx(logger, "PQS watermark");
+        return runAndTraceAsync(ctx,
+                () -> jdbcTemplate.queryForObject("select \"offset\" from watermark", Long.class),
+                executor);
+    }
+
+    /**
+     * Whether PQS ingested a create or archive of {@code clazz} after offset {@code from} and up to {@code to}.
+     */
+    public boolean changedBetween(Class<? extends Template> clazz, long from, long to) {
+        String templateId = Utils.getTemplateIdByClass(clazz).qualifiedName();
+        Boolean changed = jdbcTemplate.queryForObject(
+                "select exists (select 1 from creates(?, ?, ?)) or exists (select 1 from archives(?, ?, ?))",
+                Boolean.class,
+                templateId, from, to, templateId, from, to);
+        return Boolean.TRUE.equals(changed);
+    }
+
+    @PreDestroy
+    public void stop() {
+        batchScheduler.shutdownNow();
+        if (decodePool != null) decodePool.shutdownNow();
+    }
+
+    private <T extends Template> List<Contract<T>> queryContracts(String name, Identifier identifier, String sql, Object... params) {
+        return instrumentation.run(name, sql, params, () -> {
+            if (decodePool == null) {
+                return jdbcTemplate.query(sql, new PqsContractRowMapper<T>(identifier), params);
+            }
+            List<RawContract> rows = jdbcTemplate.query(sql, (rs, rowNum) -> {
+                QueryInstrumentation.countRow();
+                return read(identifier, rs, "contract_id", "payload");
+            }, params);
+            return decodeAll(identifier, rows);
         });
     }
 
@@ -128,6 +383,132 @@ public class Pqs {
         return json2Dto;
     }
 
+    /**
+     * Decodes the contract of the given template in the current row. The payload is only read (and parsed) if the
+     * contract is not in the decode cache yet.
+     */
+    public <T extends Template> Contract<T> decode(Class<T> clazz, ResultSet rs, String cidColumn, String payloadColumn) throws SQLException {
+        Identifier templateId = Utils.getTemplateIdByClass(clazz);
+        return decode(templateId, read(templateId, rs, cidColumn, payloadColumn));
+    }
+
+    /**
+     * Reads a row for decoding later with {@link #decodeAll(Class, List)}. The payload is only read if the contract
+     * is not in the decode cache.
+     */
+    public <T extends Template> RawContract read(Class<T> clazz, ResultSet rs, String cidColumn, String payloadColumn) throws SQLException {
+        return read(Utils.getTemplateIdByClass(clazz), rs, cidColumn, payloadColumn);
+    }
+
+    private RawContract read(Identifier templateId, ResultSet rs, String cidColumn, String payloadColumn) throws SQLException {
+        String contractId = rs.getString(cidColumn);
+        Contract<?> cached = cached(templateId, contractId);
+        if (cached != null) {
+            return new RawContract(contractId, null, null, cached);
+        }
+        // With the default text transfer the driver returns jsonb as its UTF-8 text, which the payload decoder reads
+        // without building a String of it
+        if (payloadDecoder != null && payloadDecoder.supports(templateId)) {
+            byte[] payload = rs.getBytes(payloadColumn);
+            QueryInstrumentation.countPayload(payload);
+            return new RawContract(contractId, null, payload, null);
+        }
+        String payload = rs.getString(payloadColumn);
+        QueryInstrumentation.countPayload(payload);
+        return new RawContract(contractId, payload, null, null);
+    }
+
+    /**
+     * Decodes rows read with {@link #read(Class, ResultSet, String, String)}, in order. With parallel decoding
+     * enabled and at least the threshold number of rows, the rows are decoded in chunks on the decode pool.
+     */
+    public <T extends Template> List<Contract<T>> decodeAll(Class<T> clazz, List<RawContract> rows) {
+        return decodeAll(Utils.getTemplateIdByClass(clazz), rows);
+    }
+
+    private <T extends Template> List<Contract<T>> decodeAll(Identifier templateId, List<RawContract> rows) {
+        if (decodePool == null || rows.size() < parallelDecodeThreshold) {
+            return decodeChunk(templateId, rows);
+        }
+        int chunks = Math.min(rows.size(), decodeParallelism);
+        int chunkSize = (rows.size() + chunks - 1) / chunks;
+        List<CompletableFuture<List<Contract<T>>>> remaining = new ArrayList<>();
+        for (int from = chunkSize; from < rows.size(); from += chunkSize) {
+            var chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+            remaining.add(CompletableFuture.supplyAsync(() -> decodeChunk(templateId, chunk), decodePool));
+        }
+        List<Contract<T>> decoded = new ArrayList<>(rows.size());
+        decoded.addAll(decodeChunk(templateId, rows.subList(0, chunkSize)));
+        remaining.forEach(chunk -> decoded.addAll(chunk.join()));
+        return decoded;
+    }
+
+    private <T extends Template> List<Contract<T>> decodeChunk(Identifier templateId, List<RawContract> rows) {
+        List<Contract<T>> decoded = new ArrayList<>(rows.size());
+        for (RawContract row : rows) {
+            decoded.add(decode(templateId, row));
+        }
+        return decoded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Template> Contract<T> decode(Identifier templateId, RawContract row) {
+        if (row.decoded() != null) {
+            return (Contract<T>) row.decoded();
+        }
+        if (row.payloadBytes() != null) {
+            return cache(templateId, row.contractId(), decodeBytes(templateId, row.payloadBytes()), row.payloadBytes().length);
+        }
+        return cache(templateId, row.contractId(), json2Dto.template(templateId).convert(row.payload()), row.payload().length());
+    }
+
+    // A payload that does not match its schema, e.g. after a package upgrade the schema has not caught up with, is
+    // decoded from its JSON text instead
+    private Object decodeBytes(Identifier templateId, byte[] payload) {
+        try {
+            return payloadDecoder.decode(templateId, payload);
+        } catch (IOException | RuntimeException e) {
+            meterRegistry.counter("pqs.decode.binary.fallback", "templateId", templateId.qualifiedName()).increment();
+            if (binaryFallbacks.add(templateId.qualifiedName())) {
+                logger.warn("Payload of {} does not match its payload schema, decoding it from JSON text",
+                        templateId.qualifiedName(), e);
+            }
+            return json2Dto.template(templateId).convert(new String(payload, StandardCharsets.UTF_8));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Template> Contract<T> cached(Identifier templateId, String contractId) {
+        if (decodeCache == null) {
+            return null;
+        }
+        DecodedPayload cached = decodeCache.getIfPresent(new DecodeKey(templateId.qualifiedName(), contractId));
+        return cached == null ? null : new Contract<>(new ContractId<>(contractId), (T) cached.value());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Template> Contract<T> cache(Identifier templateId, String contractId, Object value, int weight) {
+        if (decodeCache != null) {
+            decodeCache.put(new DecodeKey(templateId.qualifiedName(), contractId), new DecodedPayload(value, weight));
+        }
+        return new Contract<>(new ContractId<>(contractId), (T) value);
+    }
+
+    /**
+     * A row read from PQS but not decoded yet: either its JSON payload, as text or as bytes for binary decoding, or
+     * the contract itself when it was already in the decode cache.
+     */
+    public record RawContract(String contractId, String payload, byte[] payloadBytes, Contract<?> decoded) {
+    }
+
+    private record DecodeKey(String templateId, String contractId) {
+    }
+
+    // weight is the length of the JSON payload in characters (bytes when decoded from bytes), a proxy for the size of
+    // the decoded value
+    private record DecodedPayload(Object value, int weight) {
+    }
+
     private class PqsContractRowMapper<T extends Template> implements RowMapper<Contract<T>> {
         private final Identifier templateId;
 
@@ -138,10 +519,8 @@ public class Pqs {
         @WithSpan
         @Override
         public Contract<T> mapRow(ResultSet rs, int rowNum) throws SQLException {
-            return new Contract<>(
-                    new ContractId<>(rs.getString("contract_id")),
-                    (T) json2Dto.template(templateId).convert(rs.getString("payload"))
-            );
+            QueryInstrumentation.countRow();
+            return decode(templateId, read(templateId, rs, "contract_id", "payload"));
         }
     }
 }
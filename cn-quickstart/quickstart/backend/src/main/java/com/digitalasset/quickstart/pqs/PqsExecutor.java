@@ -0,0 +1,27 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.quickstart.utility.InstrumentedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Configuration of the executor that runs blocking PQS (JDBC) calls, keeping them off the common ForkJoinPool.
+ * Its meters are tagged {@code name=pqs}.
+ */
+@Configuration
+public class PqsExecutor {
+
+    public static final String BEAN_NAME = "pqsExecutor";
+
+    @Bean(name = BEAN_NAME)
+    public Executor pqsExecutor(PqsConfig pqsConfig, MeterRegistry meterRegistry) {
+        return InstrumentedExecutor.create(pqsConfig.getExecutor(), "pqs", "pqs-io", meterRegistry);
+    }
+}
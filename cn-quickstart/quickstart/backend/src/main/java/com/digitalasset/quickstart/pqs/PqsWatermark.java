@@ -0,0 +1,100 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.quickstart.utility.OffsetWaiters;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets reads wait until PQS has ingested the ledger up to a given offset.
+ * The watermark is polled by a single background task, and only while there are waiting reads.
+ */
+@Component
+public class PqsWatermark {
+
+    private static final Logger logger = LoggerFactory.getLogger(PqsWatermark.class);
+
+    private final Pqs pqs;
+    private final OffsetWaiters waiters = new OffsetWaiters();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pqs-watermark");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean polling = new AtomicBoolean(false);
+    private final long pollIntervalMillis;
+
+    public PqsWatermark(Pqs pqs, PqsConfig pqsConfig) {
+        this.pqs = pqs;
+        this.pollIntervalMillis = pqsConfig.getConsistency().getPollIntervalMillis();
+    }
+
+    /**
+     * Completes once the PQS watermark is at or beyond {@code offset}.
+     */
+    public CompletableFuture<Void> awaitOffset(long offset) {
+        var future = waiters.await(offset);
+        if (!future.isDone() && polling.compareAndSet(false, true)) {
+            scheduler.execute(this::poll);
+        }
+        return future;
+    }
+
+    private void poll() {
+        CompletableFuture<Long> watermark;
+        try {
+            watermark = pqs.watermark();
+        } catch (RuntimeException e) {
+            watermark = CompletableFuture.failedFuture(e);
+        }
+        watermark.whenComplete((offset, ex) -> {
+            try {
+                if (ex != null) {
+                    logger.warn("Failed to read PQS watermark", ex);
+                } else if (offset != null) {
+                    waiters.advance(offset);
+                }
+            } finally {
+                next();
+            }
+        });
+    }
+
+    // Polls again while reads are waiting; otherwise stops, so that the next waiter starts polling again
+    private void next() {
+        try {
+            if (waiters.hasWaiters()) {
+                scheduler.schedule(this::poll, pollIntervalMillis, TimeUnit.MILLISECONDS);
+                return;
+            }
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+        polling.set(false);
+        // a waiter may have registered between the check and the reset
+        if (waiters.hasWaiters() && polling.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::poll);
+            } catch (RejectedExecutionException e) {
+                polling.set(false);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,210 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import com.digitalasset.quickstart.config.PqsConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-query metrics and slow query capture for {@link Pqs}.
+ *
+ * <p>Every logical query is timed ({@code pqs.query}) and records the rows it returned ({@code pqs.query.rows}) and
+ * the length of the contract payloads it read for decoding, in UTF-16 chars as held by the JDBC driver
+ * ({@code pqs.query.payload_chars}), tagged with the query name. Rows and payloads are counted on the thread running
+ * the query, so decoding that happens later, off that thread, is attributed to the query that read the payload.
+ *
+ * <p>Queries taking at least the configured threshold are counted in {@code pqs.query.slow}; a sample of them is run
+ * again with {@code EXPLAIN (ANALYZE, BUFFERS)} on a single background thread. Slow queries are logged without their
+ * plan, since plans show the bound parameters, i.e. party ids; the most recent plans are served by the
+ * {@code slowqueries} actuator endpoint, which only admins may read. Only a few explains are queued at a time, so a
+ * burst of slow queries does not add a burst of load to PQS.
+ *
+ * <p>Streamed queries hand their rows to the client while the cursor is open, so their duration includes the time the
+ * client takes to read them. They are timed, but never counted as slow or explained.
+ */
+@Component
+@Endpoint(id = "slowqueries")
+public class QueryInstrumentation {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryInstrumentation.class);
+
+    private static final ThreadLocal<Execution> CURRENT = new ThreadLocal<>();
+
+    public record SlowQuery(String query, Instant at, long durationMillis, long rows, String sql, String plan) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PqsConfig.SlowQueries config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, QueryMeters> meters = new ConcurrentHashMap<>();
+    private final ArrayDeque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private final ThreadPoolExecutor explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(4), r -> {
+        Thread t = new Thread(r, "pqs-explain");
+        t.setDaemon(true);
+        return t;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+
+    public QueryInstrumentation(JdbcTemplate jdbcTemplate, PqsConfig pqsConfig, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = pqsConfig.getSlowQueries();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PreDestroy
+    public void stop() {
+        explainExecutor.shutdownNow();
+    }
+
+    /**
+     * Most recent slow queries with their plans, newest first.
+     */
+    @ReadOperation
+    public List<SlowQuery> slowQueries() {
+        synchronized (slowQueries) {
+            return List.copyOf(slowQueries);
+        }
+    }
+
+    /**
+     * Runs {@code body}, which executes {@code sql} with {@code params}, as query {@code name}.
+     *
+     * @param params the query parameters, or {@code null} if they can not be bound again for an explain
+     */
+    <R> R run(String name, String sql, Object[] params, Supplier<R> body) {
+        return run(name, sql, params, body, true);
+    }
+
+    /**
+     * Runs {@code body}, which streams the rows of {@code sql} to a client, as query {@code name}.
+     */
+    <R> R runStream(String name, String sql, Supplier<R> body) {
+        return run(name, sql, null, body, false);
+    }
+
+    private <R> R run(String name, String sql, Object[] params, Supplier<R> body, boolean captureSlow) {
+        var execution = new Execution();
+        var outer = CURRENT.get();
+        CURRENT.set(execution);
+        long start = System.nanoTime();
+        try {
+            return body.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+            var queryMeters = meters.computeIfAbsent(name, QueryMeters::new);
+            queryMeters.duration.record(elapsed, TimeUnit.NANOSECONDS);
+            queryMeters.rows.record(execution.rows);
+            queryMeters.payloadChars.record(execution.payloadChars);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            if (captureSlow && config.isEnabled() && elapsedMillis >= config.getThresholdMillis()) {
+                queryMeters.slow.increment();
+                if (ThreadLocalRandom.current().nextDouble() < config.getSampleRate()) {
+                    explainExecutor.execute(() -> explain(name, sql, params, elapsedMillis, execution.rows));
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a row returned by the query running on this thread.
+     */
+    static void countRow() {
+        var execution = CURRENT.get();
+        if (execution != null) execution.rows++;
+    }
+
+    /**
+     * Counts a contract payload read for decoding by the query running on this thread.
+     */
+    static void countPayload(String payload) {
+        var execution = CURRENT.get();
+        if (execution != null && payload != null) execution.payloadChars += payload.length();
+    }
+
+    // Payloads read as bytes count one character per byte
+    static void countPayload(byte[] payload) {
+        var execution = CURRENT.get();
+        if (execution != null && payload != null) execution.payloadChars += payload.length;
+    }
+
+    private void explain(String name, String sql, Object[] params, long durationMillis, long rows) {
+        String plan = null;
+        if (params != null) {
+            try {
+                plan = String.join("\n",
+                        jdbcTemplate.queryForList("EXPLAIN (ANALYZE, BUFFERS) " + sql, String.class, params));
+            } catch (DataAccessException e) {
+                logger.debug("Could not explain slow PQS query {}", name, e);
+            }
+        }
+        var slowQuery = new SlowQuery(name, Instant.now(), durationMillis, rows, sql, plan);
+        synchronized (slowQueries) {
+            slowQueries.addFirst(slowQuery);
+            while (slowQueries.size() > config.getMaxEntries()) {
+                slowQueries.removeLast();
+            }
+        }
+        logger.atWarn()
+                .addKeyValue("query", name)
+                .addKeyValue("durationMillis", durationMillis)
+                .addKeyValue("rows", rows)
+                .log("Slow PQS query");
+    }
+
+    private static final class Execution {
+        long rows = 0;
+        long payloadChars = 0;
+    }
+
+    private final class QueryMeters {
+        final Timer duration;
+        final DistributionSummary rows;
+        final DistributionSummary payloadChars;
+        final Counter slow;
+
+        QueryMeters(String query) {
+            this.duration = Timer.builder("pqs.query")
+                    .tag("query", query)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.rows = DistributionSummary.builder("pqs.query.rows")
+                    .tag("query", query)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.payloadChars = DistributionSummary.builder("pqs.query.payload_chars")
+                    .tag("query", query)
+                    .baseUnit("chars")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.slow = meterRegistry.counter("pqs.query.slow", "query", query);
+        }
+    }
+}
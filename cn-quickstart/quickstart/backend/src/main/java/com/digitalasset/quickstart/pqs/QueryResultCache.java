@@ -0,0 +1,258 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.transcode.java.Template;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Caches list query results, stamped with the PQS offset they were read at.
+ *
+ * <p>A background task follows the PQS watermark and records, per template used by a cached query, the last offset
+ * at which a contract of that template was created or archived. An entry is fresh as long as its offset is not older
+ * than the last change of any of its templates. Once one of them changed, the entry is still served for
+ * {@code staleWhileRevalidateMillis} while one refresh per key runs in the background; after that, reads wait for a
+ * fresh result. Reads with a consistency token only accept entries at or after the token's offset and never get stale
+ * results. Entries are weighed by their number of rows and the cache is bounded by {@code maxWeight}.
+ *
+ * <p>Per query, {@code pqs.result_cache.requests} counts fresh hits, stale hits and misses and
+ * {@code pqs.result_cache.hit_ratio} is the share of requests served from the cache.
+ */
+@Component
+public class QueryResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+
+    /**
+     * A cacheable query: its metric name, the templates its result is read from and how many rows a result has.
+     */
+    public record Query<T>(String name, Set<Class<? extends Template>> templates, ToIntFunction<T> weigher) {
+    }
+
+    private record Key(String query, List<Object> params) {
+    }
+
+    private record Entry(Object value, long offset, Set<Class<? extends Template>> templates, int weight) {
+    }
+
+    private record Refresh(long offset, CompletableFuture<Object> future) {
+    }
+
+    private final Pqs pqs;
+    private final PqsConfig.ResultCache config;
+    private final MeterRegistry meterRegistry;
+    // null unless the cache is enabled
+    private final Cache<Key, Entry> entries;
+    private final Map<Key, Refresh> refreshing = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Template>, TemplateChanges> changes = new ConcurrentHashMap<>();
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pqs-result-cache");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile long watermark = -1L;
+
+    public QueryResultCache(Pqs pqs, PqsConfig pqsConfig, MeterRegistry meterRegistry) {
+        this.pqs = pqs;
+        this.config = pqsConfig.getResultCache();
+        this.meterRegistry = meterRegistry;
+        if (config.isEnabled()) {
+            this.entries = Caffeine.newBuilder()
+                    .maximumWeight(config.getMaxWeight())
+                    .weigher((Key key, Entry entry) -> entry.weight())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, entries, "pqs.result");
+        } else {
+            this.entries = null;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (entries == null) {
+            logger.info("PQS query result cache disabled");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::poll, 0, config.getPollIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the cached result of {@code query} for {@code params}, loading it with {@code loader} when there is no
+     * usable entry.
+     *
+     * @param sourceOffset offset the loader's source is caught up to, or {@link Long#MAX_VALUE} when it reads PQS itself
+     * @param minOffset    offset the result must be at least as recent as (a consistency token); {@code null} for any
+     */
+    public <T> CompletableFuture<T> get(Query<T> query, long sourceOffset, Long minOffset,
+                                        Supplier<CompletableFuture<T>> loader, Object... params) {
+        if (entries == null) {
+            return loader.get();
+        }
+        var key = new Key(query.name(), Arrays.asList(params));
+        var queryStats = stats.computeIfAbsent(query.name(), QueryStats::new);
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null && (minOffset == null || entry.offset() >= minOffset)) {
+            long staleSince = staleSinceMillis(entry);
+            if (staleSince == 0) {
+                queryStats.hits.increment();
+                return CompletableFuture.completedFuture(cast(entry.value()));
+            }
+            if (minOffset == null && System.currentTimeMillis() - staleSince <= config.getStaleWhileRevalidateMillis()) {
+                queryStats.staleHits.increment();
+                refresh(key, query, sourceOffset, null, loader);
+                return CompletableFuture.completedFuture(cast(entry.value()));
+            }
+        }
+        queryStats.misses.increment();
+        return refresh(key, query, sourceOffset, minOffset, loader);
+    }
+
+    // Time the entry became stale at, or 0 if none of its templates changed after its offset
+    private long staleSinceMillis(Entry entry) {
+        long staleSince = 0;
+        for (var template : entry.templates()) {
+            var templateChanges = changes.get(template);
+            if (templateChanges != null && templateChanges.changedAt > entry.offset()) {
+                staleSince = Math.max(staleSince, templateChanges.changedAtMillis);
+            }
+        }
+        return staleSince;
+    }
+
+    // Loads the result once per key; concurrent reads join the running load if it is recent enough for them
+    private <T> CompletableFuture<T> refresh(Key key, Query<T> query, long sourceOffset, Long minOffset,
+                                             Supplier<CompletableFuture<T>> loader) {
+        // Taken before the load starts: every change at or before it is contained in the loaded result
+        long offset = Math.min(sourceOffset, checkedThrough(query.templates()));
+        var refresh = new Refresh(offset, new CompletableFuture<>());
+        var current = refreshing.compute(key, (k, running) ->
+                running != null && (minOffset == null || running.offset() >= minOffset) ? running : refresh);
+        if (current != refresh) {
+            return current.future().thenApply(QueryResultCache::cast);
+        }
+        // Only the read that registered the refresh starts the load
+        CompletableFuture<T> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            // Invalid arguments surface from the loader right away, as without the cache
+            refreshing.remove(key, refresh);
+            refresh.future().completeExceptionally(e);
+            throw e;
+        }
+        loaded.whenComplete((value, error) -> {
+            refreshing.remove(key, refresh);
+            if (error != null) {
+                refresh.future().completeExceptionally(error);
+                return;
+            }
+            if (offset >= 0) {
+                var entry = new Entry(value, offset, query.templates(), Math.max(1, query.weigher().applyAsInt(value)));
+                entries.asMap().merge(key, entry, (old, fresh) -> old.offset() > fresh.offset() ? old : fresh);
+            }
+            refresh.future().complete(value);
+        });
+        return refresh.future().thenApply(QueryResultCache::cast);
+    }
+
+    // Offset up to which changes of all the templates are known; -1 if one of them is not being followed yet
+    private long checkedThrough(Set<Class<? extends Template>> templates) {
+        long offset = Long.MAX_VALUE;
+        for (var template : templates) {
+            var templateChanges = changes.computeIfAbsent(template, t -> new TemplateChanges(watermark));
+            offset = Math.min(offset, templateChanges.checkedThrough);
+        }
+        return offset;
+    }
+
+    private void poll() {
+        try {
+            long current = pqs.watermark().join();
+            long now = System.currentTimeMillis();
+            for (var entry : changes.entrySet()) {
+                var templateChanges = entry.getValue();
+                long from = templateChanges.checkedThrough;
+                if (current <= from) continue;
+                if (from >= 0 && pqs.changedBetween(entry.getKey(), from, current)) {
+                    templateChanges.changedAt = current;
+                    templateChanges.changedAtMillis = now;
+                }
+                templateChanges.checkedThrough = current;
+            }
+            watermark = current;
+        } catch (RuntimeException e) {
+            // Changes can not be followed, so no cached result can be trusted anymore
+            entries.invalidateAll();
+            logger.warn("Failed to check PQS for template changes, dropped cached query results", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    private static final class TemplateChanges {
+        // Written by the poller only; changedAt before checkedThrough, so readers never see a change as checked early
+        volatile long checkedThrough;
+        volatile long changedAt = -1L;
+        volatile long changedAtMillis = 0L;
+
+        TemplateChanges(long checkedThrough) {
+            this.checkedThrough = checkedThrough;
+        }
+    }
+
+    private final class QueryStats {
+        final Counter hits;
+        final Counter staleHits;
+        final Counter misses;
+
+        QueryStats(String query) {
+            this.hits = meterRegistry.counter("pqs.result_cache.requests", "query", query, "result", "hit");
+            this.staleHits = meterRegistry.counter("pqs.result_cache.requests", "query", query, "result", "stale");
+            this.misses = meterRegistry.counter("pqs.result_cache.requests", "query", query, "result", "miss");
+            Gauge.builder("pqs.result_cache.hit_ratio", this, QueryStats::hitRatio)
+                    .tag("query", query)
+                    .register(meterRegistry);
+        }
+
+        double hitRatio() {
+            double served = hits.count() + staleHits.count();
+            double total = served + misses.count();
+            return total == 0 ? 0 : served / total;
+        }
+    }
+}
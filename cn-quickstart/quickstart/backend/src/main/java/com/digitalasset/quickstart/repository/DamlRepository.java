@@ -3,59 +3,224 @@
 
 package com.digitalasset.quickstart.repository;
 
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.quickstart.ledger.ActiveContractStore;
 import com.digitalasset.quickstart.pqs.Contract;
 import com.digitalasset.quickstart.pqs.Pqs;
+import com.digitalasset.quickstart.pqs.PqsWatermark;
+import com.digitalasset.quickstart.pqs.QueryResultCache;
 import com.digitalasset.transcode.java.ContractId;
 import com.digitalasset.transcode.java.Template;
 import com.digitalasset.transcode.java.Utils;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.web.server.ResponseStatusException;
 import quickstart_invoicing.invoicing.disclosure.LogisticsView;
 import quickstart_invoicing.invoicing.disclosure.BookkeeperView;
 import quickstart_invoicing.invoicing.invoice.Invoice;
 import quickstart_invoicing.invoicing.invoice.InvoicePaymentRequest;
 import splice_api_token_allocation_request_v1.splice.api.token.allocationrequestv1.AllocationRequest;
 import splice_api_token_allocation_v1.splice.api.token.allocationv1.Allocation;
+import splice_api_token_allocation_v1.splice.api.token.allocationv1.AllocationView;
 
 /**
- * Repository for accessing active Daml contracts via PQS.
+ * Repository for accessing active Daml contracts. Reads are served from the in-memory
+ * {@link ActiveContractStore} when it is enabled and caught up, and from PQS otherwise.
+ * Invoice lists prefer the {@link InvoiceReadModel} over joining PQS tables when it is ready. List pages read from
+ * PQS or the read model go through the {@link QueryResultCache}.
  */
 @Repository
 public class DamlRepository {
 
     private final Pqs pqs;
+    private final ActiveContractStore contractStore;
+    private final PqsWatermark pqsWatermark;
+    private final InvoiceReadModel readModel;
+    private final QueryResultCache resultCache;
+    private final long maxConsistencyWaitMillis;
+
+    private static final QueryResultCache.Query<Page<InvoiceWithPaymentRequests>> ACTIVE_INVOICES_QUERY =
+            new QueryResultCache.Query<>("activeInvoices",
+                    Set.of(Invoice.class, InvoicePaymentRequest.class, Allocation.class),
+                    page -> page.items().stream().mapToInt(invoice -> 1 + invoice.paymentRequests().size()).sum());
+    private static final QueryResultCache.Query<Page<Contract<LogisticsView>>> ACTIVE_LOGISTICS_VIEWS_QUERY =
+            new QueryResultCache.Query<>("activeLogisticsViews", Set.of(LogisticsView.class), page -> page.items().size());
+    private static final QueryResultCache.Query<Page<Contract<BookkeeperView>>> ACTIVE_BOOKKEEPER_VIEWS_QUERY =
+            new QueryResultCache.Query<>("activeBookkeeperViews", Set.of(BookkeeperView.class), page -> page.items().size());
 
     @Autowired
-    public DamlRepository(Pqs pqs) {
+    public DamlRepository(Pqs pqs, ActiveContractStore contractStore, PqsWatermark pqsWatermark, InvoiceReadModel readModel,
+                          QueryResultCache resultCache, PqsConfig pqsConfig) {
         this.pqs = pqs;
+        this.contractStore = contractStore;
+        this.pqsWatermark = pqsWatermark;
+        this.readModel = readModel;
+        this.resultCache = resultCache;
+        this.maxConsistencyWaitMillis = pqsConfig.getConsistency().getMaxWaitMillis();
     }
 
-    private <T extends Template> T extractPayload(Class<T> clazz, String payload) {
-        return clazz.cast(pqs.getJson2Dto().template(Utils.getTemplateIdByClass(clazz)).convert(payload));
+    /**
+     * Waits until the source subsequent reads are served from has caught up with the given ledger offset
+     * (the consistency token returned by a write). Gives up silently after the configured maximum wait,
+     * in which case the read proceeds against possibly stale data.
+     *
+     * @param consistencyToken ledger offset to wait for; {@code null} means no waiting
+     * @param party            the party the reads are made for, which decides whether they are served from the
+     *                         contract store
+     */
+    public CompletableFuture<Void> awaitConsistency(Long consistencyToken, String party) {
+        if (consistencyToken == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // The read model trails PQS, so once it has caught up PQS has as well
+        var caughtUp = contractStore.canServe(party)
+                ? contractStore.awaitOffset(consistencyToken)
+                : readModel.isReady()
+                ? readModel.awaitOffset(consistencyToken)
+                : pqsWatermark.awaitOffset(consistencyToken);
+        return caughtUp.completeOnTimeout(null, maxConsistencyWaitMillis, TimeUnit.MILLISECONDS);
     }
 
-    private <T extends Template> Contract<T> extract(Class<T> clazz, ContractId<T> cid, String payload) {
-        return new Contract<>(cid, extractPayload(clazz, payload));
+    private <T extends Template> Contract<T> extract(Class<T> clazz, ResultSet rs, String cidColumn, String payloadColumn) throws SQLException {
+        return pqs.decode(clazz, rs, cidColumn, payloadColumn);
     }
 
     private <T extends Template> Optional<ContractId<T>> optionalCid(Class<T> clazz, String cid) {
         return Optional.ofNullable(cid).map(ContractId<T>::new);
     }
 
-    private <T extends Template> ContractId<T> cid(Class<T> clazz, String cid) {
-        return new ContractId<T>(cid);
-    }
-
     private <T extends Template> String qualifiedName(Class<T> clazz) {
         return Utils.getTemplateIdByClass(clazz).qualifiedName();
     }
 
+    // ── Pagination ──────────────────────────────────────────────────
+
+    /**
+     * One page of a list query. {@code nextCursor} is present when more items follow and is passed back as the
+     * {@code cursor} of the next request.
+     */
+    public record Page<T>(List<T> items, Optional<String> nextCursor) {
+    }
+
+    /**
+     * The order of a list query: by an expression over the payload, then by contract id. {@code sqlExpression} is the
+     * expression in PQS SQL, {@code first} sorts before every real value and {@code parse} reads a value back from a
+     * cursor.
+     */
+    record SortKey<K extends Comparable<K>>(String sqlExpression, K first, Function<String, K> parse) {
+        static final SortKey<Long> INVOICE_NUM =
+                new SortKey<>("(payload->>'invoiceNum')::bigint", Long.MIN_VALUE, Long::parseLong);
+        // Binary collation, so that Postgres orders text like String.compareTo does
+        static final SortKey<String> INVOICE_REF =
+                new SortKey<>("(payload->>'invoiceRef') COLLATE \"C\"", "", Function.identity());
+
+        PageKey<K> decode(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                // Sorts before every real key, so the first page needs no special casing in the SQL
+                return new PageKey<>(first, "");
+            }
+            try {
+                var decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                // Contract ids contain no ':', text sort values may
+                int sep = decoded.lastIndexOf(':');
+                return new PageKey<>(parse.apply(decoded.substring(0, sep)), decoded.substring(sep + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+
+    // A cursor encodes the key of the last item of a page
+    private record PageKey<K extends Comparable<K>>(K sortKey, String contractId) implements Comparable<PageKey<K>> {
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((sortKey + ":" + contractId).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int compareTo(PageKey<K> other) {
+            int bySortKey = sortKey.compareTo(other.sortKey);
+            return bySortKey != 0 ? bySortKey : contractId.compareTo(other.contractId);
+        }
+    }
+
+    // Queries fetch one item more than requested to find out whether there is a next page
+    private static long fetchSize(Integer limit) {
+        return limit == null ? Long.MAX_VALUE : Math.max(limit, 1) + 1L;
+    }
+
+    private static <T, K extends Comparable<K>> Page<T> page(List<T> fetched, Integer limit, Function<T, PageKey<K>> key) {
+        if (limit == null || fetched.size() <= Math.max(limit, 1)) {
+            return new Page<>(fetched, Optional.empty());
+        }
+        var items = fetched.subList(0, Math.max(limit, 1));
+        return new Page<>(items, Optional.of(key.apply(items.get(items.size() - 1)).encode()));
+    }
+
+    // The store keeps each party's contracts in the same order as the SQL, so pages and cursors are interchangeable
+    private <T extends Template, K extends Comparable<K>> Page<Contract<T>> pageFromStore(
+            Class<T> clazz, String party, Integer limit, String cursor, SortKey<K> sortKey, Function<T, K> keyOf) {
+        var after = sortKey.decode(cursor);
+        return page(contractStore.visibleTo(clazz, party, after.sortKey(), after.contractId(), fetchSize(limit)), limit,
+                c -> new PageKey<>(keyOf.apply(c.payload), c.contractId.getContractId));
+    }
+
+    /**
+     * SQL of one page of active contracts matching {@code partyPredicate}, in the order of {@code sortKey}. Parameters:
+     * the template, the party once for each placeholder of the predicate, the sort value and contract id of the last
+     * item of the previous page, and the number of rows to return.
+     */
+    static String pageSql(String partyPredicate, SortKey<?> sortKey) {
+        return """
+                SELECT contract_id, payload
+                FROM active(?)
+                WHERE (%1$s)
+                  AND (%2$s, contract_id) > (?, ?)
+                ORDER BY %2$s, contract_id
+                LIMIT ?
+                """.formatted(partyPredicate, sortKey.sqlExpression());
+    }
+
+    /**
+     * One page of the active contracts of {@code clazz} matching {@code partyPredicate}, which takes {@code party} for
+     * each of its three parameters, in the order of {@code sortKey}. {@code keyOf} reads the sort value from a payload.
+     */
+    private <T extends Template, K extends Comparable<K>> CompletableFuture<Page<Contract<T>>> pageFromPqs(
+            Class<T> clazz, String partyPredicate, String party, Integer limit, String cursor,
+            SortKey<K> sortKey, Function<T, K> keyOf) {
+        var after = sortKey.decode(cursor);
+        var fetched = new ArrayList<Pqs.RawContract>();
+        return pqs.query("active" + clazz.getSimpleName() + "Page", pageSql(partyPredicate, sortKey),
+                rs -> fetched.add(pqs.read(clazz, rs, "contract_id", "payload")),
+                qualifiedName(clazz),
+                party, party, party,
+                after.sortKey(), after.contractId(),
+                fetchSize(limit)
+        ).thenApply(v -> page(pqs.decodeAll(clazz, fetched), limit,
+                c -> new PageKey<>(keyOf.apply(c.payload), c.contractId.getContractId)));
+    }
+
+    // Goes to PQS only while the store is not ready or for templates it does not follow: a contract the ready store
+    // does not have is not active
+    private <T extends Template> CompletableFuture<Optional<Contract<T>>> findById(Class<T> clazz, String contractId) {
+        if (contractStore.isReady() && contractStore.tracks(clazz)) {
+            return CompletableFuture.completedFuture(contractStore.byId(clazz, contractId));
+        }
+        return pqs.contractByContractId(clazz, contractId);
+    }
+
     public CompletableFuture<Optional<Contract<AllocationRequest>>> findActiveAllocationRequestById(String contractId) {
         return pqs.contractByContractId(AllocationRequest.class, contractId);
     }
@@ -72,79 +237,270 @@ public class DamlRepository {
             List<InvoicePaymentRequestWithAllocationCid> paymentRequests) {
     }
 
-    public CompletableFuture<List<InvoiceWithPaymentRequests>> findActiveInvoices(String party) {
-        var map = new HashMap<String, InvoiceWithPaymentRequests>();
-        String sql = """
-                SELECT invoice.contract_id    AS invoice_contract_id,
-                       invoice.payload        AS invoice_payload,
-                       pmtreq.contract_id     AS pmtreq_contract_id,
-                       pmtreq.payload         AS pmtreq_payload,
-                       allocation.contract_id AS allocation_contract_id
-                FROM active(?) invoice
-                LEFT JOIN active(?) pmtreq ON
-                    invoice.payload->>'invoiceNum' = pmtreq.payload->>'invoiceNum'
-                    AND invoice.payload->>'buyer' = pmtreq.payload->>'buyer'
-                LEFT JOIN active(?) allocation ON
-                    pmtreq.payload->>'requestId' = allocation.payload->'allocation'->'settlement'->'settlementRef'->>'id'
-                    AND pmtreq.payload->>'buyer' = allocation.payload->'allocation'->'transferLeg'->>'sender'
-                WHERE invoice.payload->>'seller' = ? OR invoice.payload->>'buyer' = ? OR invoice.payload->>'provider' = ?
-                ORDER BY invoice.contract_id
-                """;
-        return pqs.query(sql, rs -> {
+    // A payment request created by version 0.0.1 of the invoicing package has no invoiceId and joins no invoice
+    private static final String ACTIVE_INVOICES_SQL = """
+            SELECT invoice.contract_id    AS invoice_contract_id,
+                   invoice.payload        AS invoice_payload,
+                   pmtreq.contract_id     AS pmtreq_contract_id,
+                   pmtreq.payload         AS pmtreq_payload,
+                   allocation.contract_id AS allocation_contract_id
+            FROM active(?) invoice
+            LEFT JOIN active(?) pmtreq ON pmtreq.payload->>'invoiceId' = invoice.contract_id
+            LEFT JOIN active(?) allocation ON
+                pmtreq.payload->>'requestId' = allocation.payload->'allocation'->'settlement'->'settlementRef'->>'id'
+                AND pmtreq.payload->>'buyer' = allocation.payload->'allocation'->'transferLeg'->>'sender'
+            WHERE invoice.payload->>'seller' = ? OR invoice.payload->>'buyer' = ? OR invoice.payload->>'provider' = ?
+            ORDER BY (invoice.payload->>'invoiceNum')::bigint, invoice.contract_id
+            """;
+
+    // Limits the invoices before joining, so a page reads and decodes only its own rows
+    static final String ACTIVE_INVOICES_PAGE_SQL = """
+            WITH page AS (
+                SELECT contract_id, payload, (payload->>'invoiceNum')::bigint AS invoice_num
+                FROM active(?)
+                WHERE (payload->>'seller' = ? OR payload->>'buyer' = ? OR payload->>'provider' = ?)
+                  AND ((payload->>'invoiceNum')::bigint, contract_id) > (?, ?)
+                ORDER BY invoice_num, contract_id
+                LIMIT ?
+            )
+            SELECT invoice.contract_id    AS invoice_contract_id,
+                   invoice.payload        AS invoice_payload,
+                   pmtreq.contract_id     AS pmtreq_contract_id,
+                   pmtreq.payload         AS pmtreq_payload,
+                   allocation.contract_id AS allocation_contract_id
+            FROM page invoice
+            LEFT JOIN active(?) pmtreq ON pmtreq.payload->>'invoiceId' = invoice.contract_id
+            LEFT JOIN active(?) allocation ON
+                pmtreq.payload->>'requestId' = allocation.payload->'allocation'->'settlement'->'settlementRef'->>'id'
+                AND pmtreq.payload->>'buyer' = allocation.payload->'allocation'->'transferLeg'->>'sender'
+            ORDER BY invoice.invoice_num, invoice.contract_id
+            """;
+
+    private static PageKey<Long> invoiceKey(InvoiceWithPaymentRequests invoice) {
+        return new PageKey<>(invoice.invoice().payload.getInvoiceNum, invoice.invoice().contractId.getContractId);
+    }
+
+    /**
+     * Active invoices visible to {@code party}, ordered by invoice number.
+     *
+     * @param limit            maximum number of invoices to return; {@code null} returns all of them
+     * @param cursor           {@link Page#nextCursor()} of the previous page, or {@code null} for the first page
+     * @param consistencyToken ledger offset a cached page must be at least as recent as; {@code null} accepts any
+     */
+    public CompletableFuture<Page<InvoiceWithPaymentRequests>> findActiveInvoices(String party, Integer limit, String cursor,
+                                                                                  Long consistencyToken) {
+        var after = SortKey.INVOICE_NUM.decode(cursor);
+        if (contractStore.canServe(party)) {
+            var invoices = contractStore.consistentRead(() -> joinInStore(
+                    contractStore.visibleTo(Invoice.class, party, after.sortKey(), after.contractId(), fetchSize(limit))));
+            return CompletableFuture.completedFuture(page(invoices, limit, DamlRepository::invoiceKey));
+        }
+        boolean fromReadModel = readModel.isReady();
+        return resultCache.get(ACTIVE_INVOICES_QUERY,
+                fromReadModel ? readModel.processedOffset() : Long.MAX_VALUE,
+                consistencyToken,
+                () -> queryActiveInvoices(fromReadModel, party, limit, after),
+                party, limit, after);
+    }
+
+    private CompletableFuture<Page<InvoiceWithPaymentRequests>> queryActiveInvoices(boolean fromReadModel, String party,
+                                                                                     Integer limit, PageKey<Long> after) {
+        var map = new LinkedHashMap<String, RawInvoice>();
+        CompletableFuture<Void> query = fromReadModel
+                ? pqs.query("readModelInvoicesPage", InvoiceReadModel.INVOICES_PAGE_SQL, invoiceRows(map),
+                        party, after.sortKey(), after.contractId(), fetchSize(limit))
+                : pqs.query("activeInvoicesPage", ACTIVE_INVOICES_PAGE_SQL, invoiceRows(map),
+                        qualifiedName(Invoice.class),
+                        party, party, party,
+                        after.sortKey(), after.contractId(),
+                        fetchSize(limit),
+                        qualifiedName(InvoicePaymentRequest.class),
+                        qualifiedName(Allocation.class));
+        return query.thenApply(v -> page(decodeInvoices(map.values()), limit, DamlRepository::invoiceKey));
+    }
+
+    // Invoice join rows grouped per invoice, decoded once the whole result has been read
+    private record RawInvoice(Pqs.RawContract invoice, List<RawPaymentRequest> paymentRequests) {
+    }
+
+    private record RawPaymentRequest(Pqs.RawContract request, String allocationCid) {
+    }
+
+    // Collects invoice join rows, one per payment request, into invoices in row order
+    private RowCallbackHandler invoiceRows(Map<String, RawInvoice> invoices) {
+        return rs -> {
+            var invoiceId = rs.getString("invoice_contract_id");
+            var invoice = invoices.get(invoiceId);
+            if (invoice == null) {
+                invoice = new RawInvoice(pqs.read(Invoice.class, rs, "invoice_contract_id", "invoice_payload"), new ArrayList<>());
+                invoices.put(invoiceId, invoice);
+            }
+            if (rs.getString("pmtreq_contract_id") != null) {
+                invoice.paymentRequests().add(new RawPaymentRequest(
+                        pqs.read(InvoicePaymentRequest.class, rs, "pmtreq_contract_id", "pmtreq_payload"),
+                        rs.getString("allocation_contract_id")
+                ));
+            }
+        };
+    }
+
+    private List<InvoiceWithPaymentRequests> decodeInvoices(Collection<RawInvoice> raw) {
+        var invoices = pqs.decodeAll(Invoice.class, raw.stream().map(RawInvoice::invoice).toList());
+        var requests = pqs.decodeAll(InvoicePaymentRequest.class, raw.stream()
+                .flatMap(invoice -> invoice.paymentRequests().stream())
+                .map(RawPaymentRequest::request)
+                .toList());
+        List<InvoiceWithPaymentRequests> result = new ArrayList<>(raw.size());
+        int nextInvoice = 0;
+        int nextRequest = 0;
+        for (RawInvoice invoice : raw) {
+            List<InvoicePaymentRequestWithAllocationCid> paymentRequests = new ArrayList<>(invoice.paymentRequests().size());
+            for (RawPaymentRequest request : invoice.paymentRequests()) {
+                paymentRequests.add(new InvoicePaymentRequestWithAllocationCid(
+                        requests.get(nextRequest++),
+                        optionalCid(Allocation.class, request.allocationCid())
+                ));
+            }
+            result.add(new InvoiceWithPaymentRequests(invoices.get(nextInvoice++), paymentRequests));
+        }
+        return result;
+    }
+
+    /**
+     * Streaming variant of {@link #findActiveInvoices(String, Integer, String, Long)}: hands each invoice to {@code sink}
+     * as soon as all its rows have been read, in invoice number order, without collecting the result.
+     */
+    public CompletableFuture<Void> streamActiveInvoices(String party, Consumer<InvoiceWithPaymentRequests> sink) {
+        if (contractStore.canServe(party)) {
+            contractStore.consistentRead(() -> joinInStore(contractStore.visibleTo(Invoice.class, party))).forEach(sink);
+            return CompletableFuture.completedFuture(null);
+        }
+        // Rows of one invoice are adjacent because of the ORDER BY, so only the current invoice is buffered
+        var current = new InvoiceWithPaymentRequests[1];
+        return pqs.streamQuery("activeInvoicesStream", ACTIVE_INVOICES_SQL, rs -> {
                     var invoiceId = rs.getString("invoice_contract_id");
-                    if (!map.containsKey(invoiceId)) {
-                        map.put(invoiceId,
-                                new InvoiceWithPaymentRequests(
-                                        extract(Invoice.class, cid(Invoice.class, invoiceId), rs.getString("invoice_payload")),
-                                        new java.util.ArrayList<>()
-                                )
+                    if (current[0] == null || !current[0].invoice().contractId.getContractId.equals(invoiceId)) {
+                        if (current[0] != null) sink.accept(current[0]);
+                        current[0] = new InvoiceWithPaymentRequests(
+                                extract(Invoice.class, rs, "invoice_contract_id", "invoice_payload"),
+                                new ArrayList<>()
                         );
                     }
-                    var pmtreqCid = optionalCid(InvoicePaymentRequest.class, rs.getString("pmtreq_contract_id"));
-                    if (pmtreqCid.isPresent()) {
-                        map.get(invoiceId).paymentRequests.add(new InvoicePaymentRequestWithAllocationCid(
-                                        extract(InvoicePaymentRequest.class, pmtreqCid.get(), rs.getString("pmtreq_payload")),
-                                        optionalCid(Allocation.class, rs.getString("allocation_contract_id"))
-                                )
-                        );
+                    if (rs.getString("pmtreq_contract_id") != null) {
+                        current[0].paymentRequests.add(new InvoicePaymentRequestWithAllocationCid(
+                                extract(InvoicePaymentRequest.class, rs, "pmtreq_contract_id", "pmtreq_payload"),
+                                optionalCid(Allocation.class, rs.getString("allocation_contract_id"))
+                        ));
                     }
                 },
                 qualifiedName(Invoice.class),
                 qualifiedName(InvoicePaymentRequest.class),
                 qualifiedName(Allocation.class),
                 party, party, party
-        ).thenApply(v -> new java.util.ArrayList<>(map.values()));
+        ).thenRun(() -> {
+            if (current[0] != null) sink.accept(current[0]);
+        });
+    }
+
+    // Same join as the SQL above, evaluated against the join indexes of the contract store; run it in a consistentRead
+    private List<InvoiceWithPaymentRequests> joinInStore(List<Contract<Invoice>> invoices) {
+        return invoices.stream().map(invoice -> {
+            var paymentRequests = contractStore.joinedOn(InvoicePaymentRequest.class, invoice.contractId.getContractId).stream()
+                    .map(pmtreq -> new InvoicePaymentRequestWithAllocationCid(pmtreq,
+                            findAllocationInStore(pmtreq.payload.getRequestId, pmtreq.payload.getBuyer.getParty)))
+                    .toList();
+            return new InvoiceWithPaymentRequests(invoice, paymentRequests);
+        }).toList();
+    }
+
+    private Optional<ContractId<Allocation>> findAllocationInStore(String settlementRefId, String sender) {
+        return contractStore.viewsJoinedOn(Allocation.class, AllocationView.class, settlementRefId).stream()
+                .filter(a -> a.view().getAllocation.getTransferLeg.getSender.getParty.equals(sender))
+                .map(ActiveContractStore.InterfaceContract::contractId)
+                .findFirst();
     }
 
     public CompletableFuture<Optional<Contract<Invoice>>> findInvoiceById(String contractId) {
-        return pqs.contractByContractId(Invoice.class, contractId);
+        return findById(Invoice.class, contractId);
     }
 
     public CompletableFuture<Optional<Contract<InvoicePaymentRequest>>> findActiveInvoicePaymentRequestById(String contractId) {
-        return pqs.contractByContractId(InvoicePaymentRequest.class, contractId);
+        return findById(InvoicePaymentRequest.class, contractId);
     }
 
     // ── LogisticsView queries ─────────────────────────────────────────
 
-    public CompletableFuture<List<Contract<LogisticsView>>> findActiveLogisticsViews(String party) {
-        return pqs.activeWhere(LogisticsView.class,
-                "payload->>'grantor' = ? OR payload->>'carrier' = ? OR payload->>'provider' = ?",
+    static final String LOGISTICS_VIEW_PARTIES =
+            "payload->>'grantor' = ? OR payload->>'carrier' = ? OR payload->>'provider' = ?";
+
+    /**
+     * Active LogisticsViews visible to {@code party}, ordered by invoice reference. {@code limit} and {@code cursor} work
+     * as for {@link #findActiveInvoices(String, Integer, String, Long)}.
+     */
+    public CompletableFuture<Page<Contract<LogisticsView>>> findActiveLogisticsViews(String party, Integer limit, String cursor,
+                                                                                     Long consistencyToken) {
+        if (contractStore.canServe(party)) {
+            return CompletableFuture.completedFuture(pageFromStore(LogisticsView.class, party, limit, cursor,
+                    SortKey.INVOICE_REF, p -> p.getInvoiceRef));
+        }
+        return resultCache.get(ACTIVE_LOGISTICS_VIEWS_QUERY, Long.MAX_VALUE, consistencyToken,
+                () -> pageFromPqs(LogisticsView.class, LOGISTICS_VIEW_PARTIES, party, limit, cursor,
+                        SortKey.INVOICE_REF, p -> p.getInvoiceRef),
+                party, limit, cursor);
+    }
+
+    public CompletableFuture<Void> streamActiveLogisticsViews(String party, Consumer<Contract<LogisticsView>> sink) {
+        if (contractStore.canServe(party)) {
+            contractStore.visibleTo(LogisticsView.class, party).forEach(sink);
+            return CompletableFuture.completedFuture(null);
+        }
+        return pqs.streamActiveWhere(LogisticsView.class, LOGISTICS_VIEW_PARTIES,
+                contracts -> {
+                    contracts.forEach(sink);
+                    return null;
+                },
                 party, party, party);
     }
 
     public CompletableFuture<Optional<Contract<LogisticsView>>> findLogisticsViewById(String contractId) {
-        return pqs.contractByContractId(LogisticsView.class, contractId);
+        return findById(LogisticsView.class, contractId);
     }
 
     // ── BookkeeperView queries ────────────────────────────────────────
 
-    public CompletableFuture<List<Contract<BookkeeperView>>> findActiveBookkeeperViews(String party) {
-        return pqs.activeWhere(BookkeeperView.class,
-                "payload->>'grantor' = ? OR payload->>'bookkeeper' = ? OR payload->>'provider' = ?",
+    static final String BOOKKEEPER_VIEW_PARTIES =
+            "payload->>'grantor' = ? OR payload->>'bookkeeper' = ? OR payload->>'provider' = ?";
+
+    /**
+     * Active BookkeeperViews visible to {@code party}, ordered by invoice number. {@code limit} and {@code cursor} work as
+     * for {@link #findActiveInvoices(String, Integer, String, Long)}.
+     */
+    public CompletableFuture<Page<Contract<BookkeeperView>>> findActiveBookkeeperViews(String party, Integer limit, String cursor,
+                                                                                       Long consistencyToken) {
+        if (contractStore.canServe(party)) {
+            return CompletableFuture.completedFuture(pageFromStore(BookkeeperView.class, party, limit, cursor,
+                    SortKey.INVOICE_NUM, p -> p.getInvoiceNum));
+        }
+        return resultCache.get(ACTIVE_BOOKKEEPER_VIEWS_QUERY, Long.MAX_VALUE, consistencyToken,
+                () -> pageFromPqs(BookkeeperView.class, BOOKKEEPER_VIEW_PARTIES, party, limit, cursor,
+                        SortKey.INVOICE_NUM, p -> p.getInvoiceNum),
+                party, limit, cursor);
+    }
+
+    public CompletableFuture<Void> streamActiveBookkeeperViews(String party, Consumer<Contract<BookkeeperView>> sink) {
+        if (contractStore.canServe(party)) {
+            contractStore.visibleTo(BookkeeperView.class, party).forEach(sink);
+            return CompletableFuture.completedFuture(null);
+        }
+        return pqs.streamActiveWhere(BookkeeperView.class, BOOKKEEPER_VIEW_PARTIES,
+                contracts -> {
+                    contracts.forEach(sink);
+                    return null;
+                },
                 party, party, party);
     }
 
     public CompletableFuture<Optional<Contract<BookkeeperView>>> findBookkeeperViewById(String contractId) {
-        return pqs.contractByContractId(BookkeeperView.class, contractId);
+        return findById(BookkeeperView.class, contractId);
     }
 }
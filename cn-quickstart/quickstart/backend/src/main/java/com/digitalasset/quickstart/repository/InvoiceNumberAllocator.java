@@ -0,0 +1,148 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.repository;
+
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.quickstart.pqs.PqsExecutor;
+import com.digitalasset.transcode.java.Utils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hands out invoice numbers that are unique per provider.
+ *
+ * <p>Numbers are reserved in blocks from a per-provider counter in the backend's own schema of the PQS database, so
+ * concurrent backend instances never hand out the same number, and each instance only goes to the database once per
+ * block. Within a block numbers are taken from memory, so concurrent creates for one provider only share a short
+ * critical section. A provider's counter starts after the highest number of its active invoices. Numbers of blocks
+ * left unused at shutdown, and of invoices that fail to be created, are skipped.
+ */
+@Component
+public class InvoiceNumberAllocator {
+
+    private static final List<String> SCHEMA = List.of(
+            "CREATE SCHEMA IF NOT EXISTS quickstart_backend",
+            """
+            CREATE TABLE IF NOT EXISTS quickstart_backend.invoice_number (
+                provider text PRIMARY KEY,
+                next_num bigint NOT NULL
+            )""");
+
+    // unique_violation, duplicate_schema and duplicate_table
+    private static final Set<String> CONCURRENTLY_CREATED = Set.of("23505", "42P06", "42P07");
+
+    // Parameters: provider, block size, invoice template, provider, block size, block size
+    private static final String RESERVE_BLOCK = """
+            INSERT INTO quickstart_backend.invoice_number AS counter (provider, next_num)
+            SELECT ?, COALESCE(MAX((payload->>'invoiceNum')::bigint), 0) + 1 + ?
+            FROM active(?)
+            WHERE payload->>'provider' = ?
+            ON CONFLICT (provider) DO UPDATE SET next_num = counter.next_num + ?
+            RETURNING counter.next_num - ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor executor;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    private volatile boolean schemaCreated = false;
+
+    public InvoiceNumberAllocator(JdbcTemplate jdbcTemplate,
+                                  @Qualifier(PqsExecutor.BEAN_NAME) Executor executor,
+                                  PqsConfig pqsConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.blockSize = Math.max(1, pqsConfig.getInvoiceNumbers().getBlockSize());
+    }
+
+    /**
+     * Next unused invoice number of {@code provider}.
+     */
+    public CompletableFuture<Long> next(String provider) {
+        var block = blocks.computeIfAbsent(provider, p -> new Block());
+        CompletableFuture<Void> reserving;
+        synchronized (block) {
+            if (block.next < block.end) {
+                return CompletableFuture.completedFuture(block.next++);
+            }
+            reserving = block.reserving;
+            if (reserving == null) {
+                reserving = new CompletableFuture<>();
+                block.reserving = reserving;
+                reserve(provider, block, reserving);
+            }
+        }
+        // Waiters beyond the size of the new block trigger the next reservation
+        return reserving.thenCompose(v -> next(provider));
+    }
+
+    private void reserve(String provider, Block block, CompletableFuture<Void> reservation) {
+        CompletableFuture<Long> start;
+        try {
+            start = CompletableFuture.supplyAsync(() -> reserveBlock(provider), executor);
+        } catch (RejectedExecutionException e) {
+            start = CompletableFuture.failedFuture(e);
+        }
+        start.whenComplete((first, error) -> {
+            synchronized (block) {
+                block.reserving = null;
+                if (error == null) {
+                    block.next = first;
+                    block.end = first + blockSize;
+                }
+            }
+            if (error != null) {
+                reservation.completeExceptionally(error);
+            } else {
+                reservation.complete(null);
+            }
+        });
+    }
+
+    private long reserveBlock(String provider) {
+        if (!schemaCreated) {
+            createSchema();
+            schemaCreated = true;
+        }
+        String invoiceTemplate = Utils.getTemplateIdByClass(Invoice.class).qualifiedName();
+        Long start = jdbcTemplate.queryForObject(RESERVE_BLOCK, Long.class,
+                provider, blockSize, invoiceTemplate, provider, blockSize, blockSize);
+        return start == null ? 1 : start;
+    }
+
+    /**
+     * {@code IF NOT EXISTS} only checks for the object before creating it, so a backend instance that creates it at
+     * the same time as another fails once the other commits, and finds the object when it tries again.
+     */
+    private void createSchema() {
+        for (String ddl : SCHEMA) {
+            try {
+                jdbcTemplate.execute(ddl);
+            } catch (DataAccessException e) {
+                if (!(e.getMostSpecificCause() instanceof SQLException sql && CONCURRENTLY_CREATED.contains(sql.getSQLState()))) {
+                    throw e;
+                }
+                jdbcTemplate.execute(ddl);
+            }
+        }
+    }
+
+    private static final class Block {
+        long next = 0;
+        long end = 0;
+        CompletableFuture<Void> reserving;
+    }
+}
@@ -0,0 +1,371 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.repository;
+
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.quickstart.pqs.Pqs;
+import com.digitalasset.quickstart.utility.OffsetWaiters;
+import com.digitalasset.transcode.java.Template;
+import com.digitalasset.transcode.java.Utils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+import quickstart_invoicing.invoicing.invoice.InvoicePaymentRequest;
+import splice_api_token_allocation_v1.splice.api.token.allocationv1.Allocation;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Denormalized invoice read model kept by the backend in its own schema of the PQS database.
+ *
+ * <p>Invoices, payment requests and allocations are copied into link tables keyed by the columns the invoice join
+ * uses. From those, {@code invoice_view} holds one row per (party, invoice), with the invoice's payment requests and
+ * their allocations embedded as a JSON array, so listing the invoices of a party is a primary key range scan of a
+ * single table. A background task follows PQS creates and archives from the last processed offset up to the PQS
+ * watermark and recomputes only the views of the invoices those changes touch. The first start, and
+ * {@link #rebuild()}, reload everything from the active contracts.
+ */
+@Component
+public class InvoiceReadModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceReadModel.class);
+
+    private static final List<String> SCHEMA = List.of(
+            "CREATE SCHEMA IF NOT EXISTS quickstart_read_model",
+            """
+            CREATE TABLE IF NOT EXISTS quickstart_read_model.state (
+                id               int PRIMARY KEY CHECK (id = 1),
+                processed_offset bigint NOT NULL
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS quickstart_read_model.invoice (
+                contract_id text PRIMARY KEY,
+                invoice_num bigint NOT NULL,
+                seller      text NOT NULL,
+                buyer       text NOT NULL,
+                provider    text NOT NULL,
+                payload     jsonb NOT NULL
+            )""",
+            "CREATE INDEX IF NOT EXISTS invoice_buyer_num_idx ON quickstart_read_model.invoice (buyer, invoice_num)",
+            """
+            CREATE TABLE IF NOT EXISTS quickstart_read_model.payment_request (
+                contract_id text PRIMARY KEY,
+                invoice_id  text NOT NULL,
+                buyer       text NOT NULL,
+                request_id  text NOT NULL,
+                payload     jsonb NOT NULL
+            )""",
+            "CREATE INDEX IF NOT EXISTS payment_request_invoice_id_idx ON quickstart_read_model.payment_request (invoice_id)",
+            "CREATE INDEX IF NOT EXISTS payment_request_request_idx ON quickstart_read_model.payment_request (buyer, request_id)",
+            """
+            CREATE TABLE IF NOT EXISTS quickstart_read_model.allocation (
+                contract_id       text PRIMARY KEY,
+                settlement_ref_id text NOT NULL,
+                sender            text NOT NULL
+            )""",
+            "CREATE INDEX IF NOT EXISTS allocation_ref_idx ON quickstart_read_model.allocation (sender, settlement_ref_id)",
+            """
+            CREATE TABLE IF NOT EXISTS quickstart_read_model.invoice_view (
+                party            text NOT NULL,
+                invoice_num      bigint NOT NULL,
+                contract_id      text NOT NULL,
+                payload          jsonb NOT NULL,
+                payment_requests jsonb NOT NULL,
+                PRIMARY KEY (party, invoice_num, contract_id)
+            )""",
+            "CREATE INDEX IF NOT EXISTS invoice_view_contract_idx ON quickstart_read_model.invoice_view (contract_id)"
+    );
+
+    // %s is the contract source: active(?) on rebuild, creates(?, ?, ?) on incremental updates
+    private static final String INSERT_INVOICES = """
+            INSERT INTO quickstart_read_model.invoice (contract_id, invoice_num, seller, buyer, provider, payload)
+            SELECT contract_id, (payload->>'invoiceNum')::bigint, payload->>'seller', payload->>'buyer', payload->>'provider', payload
+            FROM %s
+            ON CONFLICT (contract_id) DO NOTHING
+            """;
+
+    // Requests without an invoiceId (created by version 0.0.1 of the invoicing package) belong to no invoice view
+    private static final String INSERT_PAYMENT_REQUESTS = """
+            INSERT INTO quickstart_read_model.payment_request (contract_id, invoice_id, buyer, request_id, payload)
+            SELECT contract_id, payload->>'invoiceId', payload->>'buyer', payload->>'requestId', payload
+            FROM %s
+            WHERE payload->>'invoiceId' IS NOT NULL
+            ON CONFLICT (contract_id) DO NOTHING
+            """;
+
+    private static final String INSERT_ALLOCATIONS = """
+            INSERT INTO quickstart_read_model.allocation (contract_id, settlement_ref_id, sender)
+            SELECT contract_id,
+                   payload->'allocation'->'settlement'->'settlementRef'->>'id',
+                   payload->'allocation'->'transferLeg'->>'sender'
+            FROM %s
+            ON CONFLICT (contract_id) DO NOTHING
+            """;
+
+    private static final String DELETE_ARCHIVED = """
+            DELETE FROM quickstart_read_model.%s WHERE contract_id IN (SELECT contract_id FROM archives(?, ?, ?))
+            """;
+
+    // Invoices whose view changes with the given invoices, payment requests or allocations; in the last two,
+    // %s is archives(?, ?, ?) or creates(?, ?, ?)
+    private static final String INVOICES_CHANGED = """
+            SELECT contract_id FROM creates(?, ?, ?) UNION SELECT contract_id FROM archives(?, ?, ?)
+            """;
+
+    private static final String INVOICES_OF_PAYMENT_REQUESTS = """
+            SELECT invoice.contract_id
+            FROM quickstart_read_model.invoice invoice
+            JOIN quickstart_read_model.payment_request pmtreq ON pmtreq.invoice_id = invoice.contract_id
+            WHERE pmtreq.contract_id IN (SELECT contract_id FROM %s)
+            """;
+
+    private static final String INVOICES_OF_ALLOCATIONS = """
+            SELECT invoice.contract_id
+            FROM quickstart_read_model.invoice invoice
+            JOIN quickstart_read_model.payment_request pmtreq ON pmtreq.invoice_id = invoice.contract_id
+            JOIN quickstart_read_model.allocation allocation ON
+                allocation.sender = pmtreq.buyer AND allocation.settlement_ref_id = pmtreq.request_id
+            WHERE allocation.contract_id IN (SELECT contract_id FROM %s)
+            """;
+
+    // %s selects the invoices to (re)compute
+    private static final String INSERT_VIEWS = """
+            INSERT INTO quickstart_read_model.invoice_view (party, invoice_num, contract_id, payload, payment_requests)
+            SELECT party.name, invoice.invoice_num, invoice.contract_id, invoice.payload,
+                   COALESCE((
+                       SELECT jsonb_agg(jsonb_build_object(
+                                  'contractId', pmtreq.contract_id,
+                                  'payload', pmtreq.payload,
+                                  'allocationContractId', allocation.contract_id)
+                              ORDER BY pmtreq.contract_id)
+                       FROM quickstart_read_model.payment_request pmtreq
+                       LEFT JOIN quickstart_read_model.allocation allocation ON
+                           allocation.sender = pmtreq.buyer AND allocation.settlement_ref_id = pmtreq.request_id
+                       WHERE pmtreq.invoice_id = invoice.contract_id
+                   ), '[]'::jsonb)
+            FROM quickstart_read_model.invoice invoice
+            CROSS JOIN LATERAL (SELECT DISTINCT unnest(ARRAY[invoice.seller, invoice.buyer, invoice.provider]) AS name) party
+            WHERE %s
+            """;
+
+    /**
+     * One page of the invoices visible to a party, in (invoiceNum, contract_id) order, with one row per payment
+     * request. Column names match the PQS invoice join, so rows are grouped the same way. Parameters: party,
+     * invoiceNum and contract id of the last row of the previous page, and the number of invoices to return.
+     */
+    static final String INVOICES_PAGE_SQL = """
+            SELECT invoice.contract_id                     AS invoice_contract_id,
+                   invoice.payload                         AS invoice_payload,
+                   pmtreq.value->>'contractId'             AS pmtreq_contract_id,
+                   pmtreq.value->'payload'                 AS pmtreq_payload,
+                   pmtreq.value->>'allocationContractId'   AS allocation_contract_id
+            FROM (
+                SELECT invoice_num, contract_id, payload, payment_requests
+                FROM quickstart_read_model.invoice_view
+                WHERE party = ? AND (invoice_num, contract_id) > (?, ?)
+                ORDER BY invoice_num, contract_id
+                LIMIT ?
+            ) invoice
+            LEFT JOIN LATERAL jsonb_array_elements(invoice.payment_requests) pmtreq ON true
+            ORDER BY invoice.invoice_num, invoice.contract_id
+            """;
+
+    private final Pqs pqs;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final PqsConfig.ReadModel config;
+    private final OffsetWaiters waiters = new OffsetWaiters();
+    private final Timer updateTimer;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "invoice-read-model");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean(false);
+
+    private volatile boolean ready = false;
+    private volatile long processedOffset = -1L;
+    private volatile long watermark = -1L;
+    private volatile long caughtUpAtMillis = System.currentTimeMillis();
+
+    public InvoiceReadModel(Pqs pqs, JdbcTemplate jdbcTemplate, PqsConfig pqsConfig, MeterRegistry meterRegistry) {
+        this.pqs = pqs;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        this.config = pqsConfig.getReadModel();
+        this.updateTimer = Timer.builder("pqs.read_model.update").register(meterRegistry);
+        Gauge.builder("pqs.read_model.lag", this, m -> m.processedOffset < 0 ? 0 : Math.max(0, m.watermark - m.processedOffset))
+                .description("PQS offsets ingested but not yet applied to the invoice read model")
+                .register(meterRegistry);
+        Gauge.builder("pqs.read_model.staleness_seconds", this, m -> (System.currentTimeMillis() - m.caughtUpAtMillis) / 1000.0)
+                .description("Time since the invoice read model last caught up with the PQS watermark")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the read model is enabled and up to date enough to serve reads.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * PQS offset up to which all updates have been applied to the read model.
+     */
+    public long processedOffset() {
+        return processedOffset;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Completes once the read model has applied all updates up to {@code offset}.
+     */
+    public CompletableFuture<Void> awaitOffset(long offset) {
+        return waiters.await(offset);
+    }
+
+    /**
+     * Schedules a reload of the read model from the active contracts. Reads fall back to PQS until it is done.
+     */
+    public void rebuild() {
+        rebuildRequested.set(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            logger.info("Invoice read model disabled, invoice lists are served by joining PQS tables");
+            return;
+        }
+        scheduler.execute(this::initialize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ready = false;
+        scheduler.shutdownNow();
+    }
+
+    private void initialize() {
+        try {
+            createSchema();
+            var offsets = jdbcTemplate.queryForList("SELECT processed_offset FROM quickstart_read_model.state", Long.class);
+            if (offsets.isEmpty()) {
+                rebuildRequested.set(true);
+            } else {
+                processedOffset = offsets.get(0);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to initialize invoice read model, retrying", e);
+            scheduler.schedule(this::initialize, config.getPollIntervalMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::update, 0, config.getPollIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void update() {
+        try {
+            long start = System.nanoTime();
+            long target = pqs.watermark().join();
+            watermark = target;
+            if (rebuildRequested.getAndSet(false)) {
+                ready = false;
+                logger.info("Rebuilding invoice read model at offset {}", target);
+                transaction.executeWithoutResult(status -> reload(target));
+            } else if (target > processedOffset) {
+                long from = processedOffset;
+                transaction.executeWithoutResult(status -> apply(from, target));
+            }
+            if (target > processedOffset) {
+                processedOffset = target;
+                updateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            caughtUpAtMillis = System.currentTimeMillis();
+            ready = true;
+            waiters.advance(processedOffset);
+        } catch (RuntimeException e) {
+            // Stop serving reads from a model that is falling behind; the next run picks up from the last offset
+            ready = false;
+            logger.warn("Failed to update invoice read model", e);
+        }
+    }
+
+    void createSchema() {
+        SCHEMA.forEach(jdbcTemplate::execute);
+    }
+
+    void reload(long offset) {
+        jdbcTemplate.execute("TRUNCATE quickstart_read_model.invoice, quickstart_read_model.payment_request, "
+                + "quickstart_read_model.allocation, quickstart_read_model.invoice_view");
+        jdbcTemplate.update(INSERT_INVOICES.formatted("active(?)"), name(Invoice.class));
+        jdbcTemplate.update(INSERT_PAYMENT_REQUESTS.formatted("active(?)"), name(InvoicePaymentRequest.class));
+        jdbcTemplate.update(INSERT_ALLOCATIONS.formatted("active(?)"), name(Allocation.class));
+        jdbcTemplate.update(INSERT_VIEWS.formatted("true"));
+        saveOffset(offset);
+    }
+
+    void apply(long from, long to) {
+        Set<String> affected = new HashSet<>();
+        // Payment requests and allocations are looked up before they are deleted
+        affected.addAll(invoiceIds(INVOICES_OF_PAYMENT_REQUESTS.formatted("archives(?, ?, ?)"), InvoicePaymentRequest.class, from, to));
+        affected.addAll(invoiceIds(INVOICES_OF_ALLOCATIONS.formatted("archives(?, ?, ?)"), Allocation.class, from, to));
+
+        jdbcTemplate.update(INSERT_INVOICES.formatted("creates(?, ?, ?)"), name(Invoice.class), from, to);
+        jdbcTemplate.update(INSERT_PAYMENT_REQUESTS.formatted("creates(?, ?, ?)"), name(InvoicePaymentRequest.class), from, to);
+        jdbcTemplate.update(INSERT_ALLOCATIONS.formatted("creates(?, ?, ?)"), name(Allocation.class), from, to);
+        jdbcTemplate.update(DELETE_ARCHIVED.formatted("invoice"), name(Invoice.class), from, to);
+        jdbcTemplate.update(DELETE_ARCHIVED.formatted("payment_request"), name(InvoicePaymentRequest.class), from, to);
+        jdbcTemplate.update(DELETE_ARCHIVED.formatted("allocation"), name(Allocation.class), from, to);
+
+        affected.addAll(jdbcTemplate.queryForList(INVOICES_CHANGED, String.class,
+                name(Invoice.class), from, to, name(Invoice.class), from, to));
+        affected.addAll(invoiceIds(INVOICES_OF_PAYMENT_REQUESTS.formatted("creates(?, ?, ?)"), InvoicePaymentRequest.class, from, to));
+        affected.addAll(invoiceIds(INVOICES_OF_ALLOCATIONS.formatted("creates(?, ?, ?)"), Allocation.class, from, to));
+
+        if (!affected.isEmpty()) {
+            Object[] ids = affected.toArray();
+            jdbcTemplate.update("DELETE FROM quickstart_read_model.invoice_view WHERE contract_id = ANY(?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", ids)));
+            jdbcTemplate.update(INSERT_VIEWS.formatted("invoice.contract_id = ANY(?)"),
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", ids)));
+        }
+        saveOffset(to);
+        logger.debug("Applied offsets {} to {} to invoice read model, {} invoices updated", from, to, affected.size());
+    }
+
+    private List<String> invoiceIds(String sql, Class<? extends Template> clazz, long from, long to) {
+        return jdbcTemplate.queryForList(sql, String.class, name(clazz), from, to);
+    }
+
+    private void saveOffset(long offset) {
+        jdbcTemplate.update("""
+                INSERT INTO quickstart_read_model.state (id, processed_offset) VALUES (1, ?)
+                ON CONFLICT (id) DO UPDATE SET processed_offset = EXCLUDED.processed_offset
+                """, offset);
+    }
+
+    private static String name(Class<? extends Template> clazz) {
+        return Utils.getTemplateIdByClass(clazz).qualifiedName();
+    }
+}
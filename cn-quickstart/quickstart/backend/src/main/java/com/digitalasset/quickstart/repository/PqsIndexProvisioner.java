@@ -0,0 +1,198 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.repository;
+
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.transcode.java.Template;
+import com.digitalasset.transcode.java.Utils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import quickstart_invoicing.invoicing.disclosure.BookkeeperView;
+import quickstart_invoicing.invoicing.disclosure.LogisticsView;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+import quickstart_invoicing.invoicing.invoice.InvoicePaymentRequest;
+import splice_api_token_allocation_v1.splice.api.token.allocationv1.Allocation;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the PQS expression indexes that the {@link DamlRepository} queries filter, join and sort on.
+ *
+ * <p>Indexes are declared below next to the predicate they serve. Provisioning is opt-in ({@code pqs.indexes.enabled}):
+ * after startup, every index that does not exist yet is created through PQS's {@code create_index_for_contract}, which
+ * places it on the contract table of the template. That build is not concurrent and blocks PQS ingestion into the
+ * table for its duration, which on a large existing table stalls PQS. Builds run one at a time on a background thread,
+ * so startup and reads are not held up; while a build runs, its
+ * phase and block progress from {@code pg_stat_progress_create_index} are logged periodically. A failed build (for
+ * example because the PQS user may not create indexes) is logged and skipped.
+ */
+@Component
+public class PqsIndexProvisioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PqsIndexProvisioner.class);
+
+    record ContractIndex(String name, Class<? extends Template> template, String expression) {
+    }
+
+    static final List<ContractIndex> INDEXES = List.of(
+            // findActiveInvoices: party predicate and (invoiceNum, contract_id) keyset
+            new ContractIndex("qs_invoice_seller_idx", Invoice.class, "(payload->>'seller')"),
+            new ContractIndex("qs_invoice_buyer_idx", Invoice.class, "(payload->>'buyer')"),
+            new ContractIndex("qs_invoice_provider_idx", Invoice.class, "(payload->>'provider')"),
+            new ContractIndex("qs_invoice_num_cid_idx", Invoice.class, "((payload->>'invoiceNum')::bigint, contract_id)"),
+            // findActiveInvoices: invoice -> payment request join
+            new ContractIndex("qs_pmtreq_invoice_id_idx", InvoicePaymentRequest.class, "(payload->>'invoiceId')"),
+            // findActiveInvoices: payment request -> allocation join
+            new ContractIndex("qs_allocation_settlement_ref_idx", Allocation.class,
+                    "(payload->'allocation'->'settlement'->'settlementRef'->>'id')"),
+            // findActiveLogisticsViews: party predicate and (invoiceRef, contract_id) keyset
+            new ContractIndex("qs_logistics_grantor_idx", LogisticsView.class, "(payload->>'grantor')"),
+            new ContractIndex("qs_logistics_carrier_idx", LogisticsView.class, "(payload->>'carrier')"),
+            new ContractIndex("qs_logistics_provider_idx", LogisticsView.class, "(payload->>'provider')"),
+            new ContractIndex("qs_logistics_ref_cid_idx", LogisticsView.class,
+                    "((payload->>'invoiceRef') COLLATE \"C\", contract_id)"),
+            // findActiveBookkeeperViews: party predicate and (invoiceNum, contract_id) keyset
+            new ContractIndex("qs_bookkeeper_grantor_idx", BookkeeperView.class, "(payload->>'grantor')"),
+            new ContractIndex("qs_bookkeeper_bookkeeper_idx", BookkeeperView.class, "(payload->>'bookkeeper')"),
+            new ContractIndex("qs_bookkeeper_provider_idx", BookkeeperView.class, "(payload->>'provider')"),
+            new ContractIndex("qs_bookkeeper_num_cid_idx", BookkeeperView.class,
+                    "((payload->>'invoiceNum')::bigint, contract_id)")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PqsConfig.Indexes config;
+    private final Timer buildTimer;
+    private final AtomicInteger pending = new AtomicInteger();
+    // One thread runs the builds, the other reports their progress
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        Thread t = new Thread(r, "pqs-index-provisioner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PqsIndexProvisioner(JdbcTemplate jdbcTemplate, PqsConfig pqsConfig, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = pqsConfig.getIndexes();
+        this.buildTimer = Timer.builder("pqs.index.build").register(meterRegistry);
+        Gauge.builder("pqs.index.pending", pending, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            logger.info("PQS index provisioning disabled, set pqs.indexes.enabled to create missing indexes");
+            return;
+        }
+        scheduler.execute(this::provision);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void provision() {
+        List<ContractIndex> missing;
+        try {
+            missing = INDEXES.stream().filter(index -> !exists(index)).toList();
+        } catch (DataAccessException e) {
+            logger.warn("Could not check PQS indexes, skipping index provisioning", e);
+            return;
+        }
+        if (missing.isEmpty()) {
+            logger.info("All {} PQS indexes present", INDEXES.size());
+            return;
+        }
+        logger.info("Creating {} missing PQS indexes", missing.size());
+        pending.set(missing.size());
+        for (ContractIndex index : missing) {
+            if (Thread.currentThread().isInterrupted()) return;
+            create(index);
+            pending.decrementAndGet();
+        }
+    }
+
+    private boolean exists(ContractIndex index) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "select exists (select 1 from pg_indexes where indexname = ?)", Boolean.class, index.name());
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private void create(ContractIndex index) {
+        String template = Utils.getTemplateIdByClass(index.template()).qualifiedName();
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                int pid;
+                try (var statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("select pg_backend_pid()")) {
+                    rs.next();
+                    pid = rs.getInt(1);
+                }
+                ScheduledFuture<?> progress = scheduler.scheduleAtFixedRate(() -> reportProgress(index, pid),
+                        config.getProgressIntervalMillis(), config.getProgressIntervalMillis(), TimeUnit.MILLISECONDS);
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "select create_index_for_contract(?, ?, ?, 'btree')")) {
+                    statement.setString(1, index.name());
+                    statement.setString(2, template);
+                    statement.setString(3, index.expression());
+                    statement.execute();
+                } finally {
+                    progress.cancel(false);
+                }
+                return null;
+            });
+            long elapsed = System.nanoTime() - start;
+            buildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            logger.atInfo()
+                    .addKeyValue("index", index.name())
+                    .addKeyValue("template", template)
+                    .addKeyValue("durationMillis", TimeUnit.NANOSECONDS.toMillis(elapsed))
+                    .log("Created PQS index");
+        } catch (DataAccessException e) {
+            logger.warn("Failed to create PQS index {} on {}", index.name(), template, e);
+        }
+    }
+
+    private void reportProgress(ContractIndex index, int pid) {
+        try {
+            jdbcTemplate.query("""
+                            select phase, blocks_done, blocks_total, tuples_done, tuples_total
+                            from pg_stat_progress_create_index
+                            where pid = ?
+                            """,
+                    rs -> {
+                        long blocksTotal = rs.getLong("blocks_total");
+                        long blocksDone = rs.getLong("blocks_done");
+                        logger.atInfo()
+                                .addKeyValue("index", index.name())
+                                .addKeyValue("phase", rs.getString("phase"))
+                                .addKeyValue("blocksPercent", blocksTotal > 0 ? 100 * blocksDone / blocksTotal : 0)
+                                .addKeyValue("tuplesDone", rs.getLong("tuples_done"))
+                                .addKeyValue("tuplesTotal", rs.getLong("tuples_total"))
+                                .log("PQS index build in progress");
+                    },
+                    pid);
+        } catch (DataAccessException e) {
+            logger.debug("Could not read index build progress", e);
+        }
+    }
+}
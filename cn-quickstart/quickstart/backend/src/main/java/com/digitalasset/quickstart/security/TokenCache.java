@@ -0,0 +1,144 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.security;
+
+import com.digitalasset.quickstart.config.SecurityConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the backend's bearer token and refreshes it in the background ahead of its {@code exp} claim.
+ *
+ * <p>Backend channels (Ledger API, token standard registry) call {@link #getAuthorizationHeader()} on every request;
+ * it returns the cached header value without going through the {@link TokenProvider}. Only the very first call, or a
+ * call after the cached token has expired because refreshes kept failing, fetches a token synchronously. Tokens
+ * without a readable {@code exp} claim are refreshed every {@code security.token-cache.default-ttl-millis}.
+ */
+@Component
+public class TokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenCache.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Optional<TokenProvider> tokenProvider;
+    private final SecurityConfig.TokenCache config;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "token-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Timer refreshTimer;
+    private final Counter refreshFailures;
+
+    private volatile CachedToken cached;
+    private ScheduledFuture<?> nextRefresh;
+
+    private record CachedToken(String header, Instant expiresAt) {
+    }
+
+    public TokenCache(Optional<TokenProvider> tokenProvider, SecurityConfig securityConfig, MeterRegistry meterRegistry) {
+        this.tokenProvider = tokenProvider;
+        this.config = securityConfig.getTokenCache();
+        this.refreshTimer = Timer.builder("auth.token.refresh").register(meterRegistry);
+        this.refreshFailures = Counter.builder("auth.token.refresh.failures").register(meterRegistry);
+        Gauge.builder("auth.token.expires_in_seconds", this, c -> {
+            var current = c.cached;
+            return current == null ? 0 : Math.max(0, current.expiresAt().getEpochSecond() - Instant.now().getEpochSecond());
+        }).register(meterRegistry);
+    }
+
+    public boolean isAvailable() {
+        return tokenProvider.isPresent();
+    }
+
+    /**
+     * {@code Authorization} header value ({@code Bearer <token>}) for backend-to-service calls.
+     */
+    public String getAuthorizationHeader() {
+        var current = cached;
+        if (current != null && Instant.now().isBefore(current.expiresAt())) {
+            return current.header();
+        }
+        synchronized (this) {
+            current = cached;
+            if (current == null || !Instant.now().isBefore(current.expiresAt())) {
+                current = refresh();
+            }
+            return current.header();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized CachedToken refresh() {
+        var provider = tokenProvider.orElseThrow(() -> new IllegalStateException("TokenProvider is required for authentication"));
+        long start = System.nanoTime();
+        String token;
+        try {
+            token = provider.getToken();
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            throw e;
+        } finally {
+            refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        var next = new CachedToken("Bearer " + token, expiry(token));
+        cached = next;
+        long refreshInMillis = next.expiresAt().toEpochMilli() - config.getRefreshSkewMillis() - System.currentTimeMillis();
+        schedule(Math.max(refreshInMillis, config.getRetryDelayMillis()));
+        return next;
+    }
+
+    private void backgroundRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Keep serving the current token while it is still valid and try again shortly
+            logger.warn("Token refresh failed, retrying in {} ms", config.getRetryDelayMillis(), e);
+            schedule(config.getRetryDelayMillis());
+        }
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (nextRefresh != null) nextRefresh.cancel(false);
+        if (!scheduler.isShutdown()) {
+            nextRefresh = scheduler.schedule(this::backgroundRefresh, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Instant expiry(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length >= 2) {
+            try {
+                JsonNode claims = mapper.readTree(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8));
+                if (claims.hasNonNull("exp")) {
+                    return Instant.ofEpochSecond(claims.get("exp").asLong());
+                }
+            } catch (Exception e) {
+                logger.debug("Could not read exp claim from token", e);
+            }
+        }
+        return Instant.now().plusMillis(config.getDefaultTtlMillis());
+    }
+}
@@ -4,6 +4,7 @@
 package com.digitalasset.quickstart.service;
 
 import com.digitalasset.quickstart.api.AdminApi;
+import com.digitalasset.quickstart.repository.InvoiceReadModel;
 import com.digitalasset.quickstart.repository.TenantPropertiesRepository;
 import com.digitalasset.quickstart.security.oauth2.AuthClientRegistrationRepository;
 import com.digitalasset.quickstart.security.oauth2.AuthClientRegistrationRepository.Client;
@@ -13,6 +14,7 @@ import org.openapitools.model.TenantRegistration;
 import org.openapitools.model.TenantRegistrationRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.provisioning.UserDetailsManager;
@@ -25,6 +27,7 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -34,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.digitalasset.quickstart.service.ServiceUtils.traceServiceCallAsync;
+import static com.digitalasset.quickstart.utility.TracingUtils.supplyAsync;
 import static com.digitalasset.quickstart.utility.TracingUtils.tracingCtx;
 
 import jakarta.validation.constraints.NotNull;
@@ -45,16 +49,21 @@ public class AdminApiImpl implements AdminApi {
     private final AuthClientRegistrationRepository authClientRegistrationRepository;
     private final TenantPropertiesRepository tenantPropertiesRepository;
     private final Optional<UserDetailsManager> userDetailsManager;
+    private final InvoiceReadModel invoiceReadModel;
     private final AuthUtils auth;
+    private final Executor serviceExecutor;
 
     @Autowired
     public AdminApiImpl(
             Optional<AuthClientRegistrationRepository> authClientRegistrationRepository,
             Optional<UserDetailsManager> userDetailsManager,
             TenantPropertiesRepository tenantPropertiesRepository,
-            AuthUtils auth
+            InvoiceReadModel invoiceReadModel,
+            AuthUtils auth,
+            @Qualifier(ServiceExecutor.BEAN_NAME) Executor serviceExecutor
     ) {
         this.auth = auth;
+        this.serviceExecutor = serviceExecutor;
         if (auth.isOAuth2Enabled() && authClientRegistrationRepository.isEmpty()) {
             throw new IllegalStateException("OAuth2 authentication is enabled but AuthClientRegistrationRepository is not configured");
         } else if (auth.isSharedSecretEnabled() && userDetailsManager.isEmpty()) {
@@ -63,6 +72,7 @@ public class AdminApiImpl implements AdminApi {
         this.authClientRegistrationRepository = authClientRegistrationRepository.orElse(null);
         this.userDetailsManager = userDetailsManager;
         this.tenantPropertiesRepository = tenantPropertiesRepository;
+        this.invoiceReadModel = invoiceReadModel;
     }
 
     private void validateRequest(@NotNull TenantRegistrationRequest request) {
@@ -161,7 +171,7 @@ public class AdminApiImpl implements AdminApi {
             "clientId", request.getClientId(),
             "partyId", request.getPartyId()
         );
-        return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () -> CompletableFuture.supplyAsync(() -> {
+        return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () -> supplyAsync(() -> {
             validateRequest(request);
             ensureTenantIsUnique(request);
             if (auth.isOAuth2Enabled()) {
@@ -173,14 +183,14 @@ public class AdminApiImpl implements AdminApi {
             persistTenantMetadata(request);
             // Build the response (OpenAPI model)
             return ResponseEntity.status(HttpStatus.CREATED).body(buildResponse(request));
-        })));
+        }, serviceExecutor), serviceExecutor));
     }
 
     @Override
     @WithSpan
     public CompletableFuture<ResponseEntity<Void>> deleteTenantRegistration(String tenantId) {
         var ctx = tracingCtx(logger, "deleteTenantRegistration", "tenantId", tenantId);
-        return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () -> CompletableFuture.supplyAsync(() -> {
+        return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () -> supplyAsync(() -> {
             try {
                 if (auth.isOAuth2Enabled()) {
                     authClientRegistrationRepository.removeClientRegistrations(tenantId);
@@ -195,14 +205,14 @@ public class AdminApiImpl implements AdminApi {
                 throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage(), e);
             }
             return ResponseEntity.status(HttpStatus.NO_CONTENT).<Void>build();
-        })));
+        }, serviceExecutor), serviceExecutor));
     }
 
     @Override
     @WithSpan
     public CompletableFuture<ResponseEntity<List<TenantRegistration>>> listTenantRegistrations() {
         var ctx = tracingCtx(logger, "listTenantRegistrations");
-        return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () -> CompletableFuture.supplyAsync(() -> {
+        return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () -> supplyAsync(() -> {
             List<TenantRegistration> result;
             if (auth.isOAuth2Enabled()) {
                 result = authClientRegistrationRepository.getClientRegistrations().stream()
@@ -237,6 +247,19 @@ public class AdminApiImpl implements AdminApi {
                         .collect(Collectors.toList());
             }
             return ResponseEntity.ok(result);
-        })));
+        }, serviceExecutor), serviceExecutor));
+    }
+
+    @Override
+    @WithSpan
+    public CompletableFuture<ResponseEntity<Void>> rebuildInvoiceReadModel() {
+        var ctx = tracingCtx(logger, "rebuildInvoiceReadModel");
+        return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () -> {
+            if (!invoiceReadModel.isEnabled()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Invoice read model is disabled");
+            }
+            invoiceReadModel.rebuild();
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.ACCEPTED).<Void>build());
+        }, serviceExecutor));
     }
 }
@@ -0,0 +1,246 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.config.LedgerConfig;
+import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openapitools.model.CreateInvoiceRequest;
+import org.openapitools.model.LineItemRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Creates invoices from a newline-delimited JSON stream of {@link CreateInvoiceRequest}s, writing one {@link RowResult}
+ * per non-blank line.
+ *
+ * <p>Lines are parsed and validated as they are read. Valid ones are submitted without waiting for earlier ones to be
+ * committed, with at most {@code maxInFlight} outstanding; reading pauses while that many are. Results are written in
+ * the order they become known and carry the line number. Only the outstanding rows and a single line are held in
+ * memory, however long the stream is.
+ *
+ * <p>The command id of a row is the import id followed by the line number. Running a failed or interrupted import
+ * again with the same import id submits each row under the same command id as before, so rows that were already
+ * created, or are still being processed from the earlier run, are rejected by the ledger, within its deduplication
+ * period, and reported as {@code duplicate}. Each submission allocates a fresh invoice number before the ledger
+ * deduplicates it, so every duplicate row of a re-run leaves a gap in the provider's invoice numbers; numbers stay
+ * unique, but are not contiguous.
+ */
+@Component
+class BulkInvoiceImport {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record RowResult(long line, String commandId, String status, Long consistencyToken, String error) {
+    }
+
+    static final String CREATED = "created";
+    static final String DUPLICATE = "duplicate";
+    static final String INVALID = "invalid";
+    static final String FAILED = "failed";
+
+    // Command ids must stay within the characters and length the Ledger API accepts
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9._:-]{1,200}");
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader reader;
+    private final LedgerConfig.BulkImport config;
+    private final MeterRegistry meterRegistry;
+
+    BulkInvoiceImport(ObjectMapper objectMapper, LedgerConfig ledgerConfig, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.reader = objectMapper.readerFor(CreateInvoiceRequest.class);
+        this.config = ledgerConfig.getBulkImport();
+        this.meterRegistry = meterRegistry;
+    }
+
+    static boolean isValidImportId(String importId) {
+        return importId != null && IMPORT_ID.matcher(importId).matches();
+    }
+
+    /**
+     * Reads requests from {@code in} until it ends, submits each valid one with {@code submit} and writes the results
+     * to {@code out}. Returns once every submitted row has completed.
+     *
+     * @param submit creates the invoice of a request under the given command id
+     */
+    void run(String importId,
+             InputStream in,
+             OutputStream out,
+             BiFunction<CreateInvoiceRequest, String, CompletableFuture<LedgerApi.Committed<String>>> submit)
+            throws IOException {
+        int maxInFlight = Math.max(1, config.getMaxInFlight());
+        var lines = new LineReader(in, Math.max(1, config.getMaxLineBytes()));
+        BlockingQueue<RowResult> completed = new LinkedBlockingQueue<>();
+        int outstanding = 0;
+        long lineNumber = 0;
+        try {
+            while (lines.next()) {
+                lineNumber++;
+                if (lines.isBlank()) continue;
+                outstanding -= drain(completed, out, outstanding >= maxInFlight ? outstanding - maxInFlight + 1 : 0);
+
+                long line = lineNumber;
+                String commandId = importId + "-" + line;
+                CreateInvoiceRequest request = null;
+                String invalid;
+                if (lines.isTooLong()) {
+                    invalid = "line is longer than " + config.getMaxLineBytes() + " bytes";
+                } else {
+                    try {
+                        request = reader.readValue(lines.buf, 0, lines.length);
+                        invalid = validate(request);
+                    } catch (IOException e) {
+                        invalid = "not a valid invoice request: " + e.getMessage();
+                    }
+                }
+                if (invalid != null) {
+                    write(out, new RowResult(line, commandId, INVALID, null, invalid));
+                    continue;
+                }
+
+                CompletableFuture<LedgerApi.Committed<String>> submitted;
+                try {
+                    submitted = submit.apply(request, commandId);
+                } catch (RuntimeException e) {
+                    submitted = CompletableFuture.failedFuture(e);
+                }
+                outstanding++;
+                submitted.whenComplete((committed, error) -> completed.add(error == null
+                        ? new RowResult(line, commandId, CREATED, committed.offset(), null)
+                        : failure(line, commandId, error)));
+            }
+            drain(completed, out, outstanding);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for submissions of import " + importId);
+        }
+    }
+
+    /**
+     * Writes the completed results, waiting for at least {@code min} of them, and returns how many were written.
+     */
+    private int drain(BlockingQueue<RowResult> completed, OutputStream out, int min)
+            throws IOException, InterruptedException {
+        int written = 0;
+        while (true) {
+            var result = completed.poll();
+            if (result == null) {
+                if (written >= min) break;
+                // Let the client see what is done before blocking
+                out.flush();
+                result = completed.take();
+            }
+            write(out, result);
+            written++;
+        }
+        if (written > 0) out.flush();
+        return written;
+    }
+
+    private void write(OutputStream out, RowResult result) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write('\n');
+        meterRegistry.counter("invoices.import.rows", "status", result.status()).increment();
+    }
+
+    private static RowResult failure(long line, String commandId, Throwable error) {
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        var status = LedgerApi.isDuplicate(cause) ? DUPLICATE : FAILED;
+        return new RowResult(line, commandId, status, null, cause.getMessage());
+    }
+
+    /**
+     * The first required field missing from {@code request}, or {@code null} if it is complete.
+     */
+    static String validate(CreateInvoiceRequest request) {
+        if (request == null) return "request is empty";
+        if (isBlank(request.getSeller())) return "seller is required";
+        if (isBlank(request.getBuyer())) return "buyer is required";
+        if (request.getSellerInfo() == null || isBlank(request.getSellerInfo().getPartyName()))
+            return "sellerInfo.partyName is required";
+        if (request.getBuyerInfo() == null || isBlank(request.getBuyerInfo().getPartyName()))
+            return "buyerInfo.partyName is required";
+        if (request.getShippingAddress() == null) return "shippingAddress is required";
+        if (isBlank(request.getCurrency())) return "currency is required";
+        if (request.getDueDate() == null) return "dueDate is required";
+        if (request.getDescription() == null) return "description is required";
+        if (request.getLineItems() == null || request.getLineItems().isEmpty()) return "lineItems is required";
+        for (int i = 0; i < request.getLineItems().size(); i++) {
+            LineItemRequest li = request.getLineItems().get(i);
+            if (li == null || isBlank(li.getItemName())) return "lineItems[" + i + "].itemName is required";
+            if (li.getQuantity() == null) return "lineItems[" + i + "].quantity is required";
+            if (li.getUnitPrice() == null) return "lineItems[" + i + "].unitPrice is required";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    /**
+     * Reads {@code \n}-terminated lines into a buffer that grows up to the line limit. The rest of a longer line is
+     * skipped.
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final int maxBytes;
+        private byte[] buf = new byte[8192];
+        private int length;
+        private boolean tooLong;
+
+        LineReader(InputStream in, int maxBytes) {
+            this.in = new BufferedInputStream(in);
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Reads the next line, without its terminator. Returns {@code false} at the end of the stream.
+         */
+        boolean next() throws IOException {
+            length = 0;
+            tooLong = false;
+            boolean read = false;
+            int b;
+            while ((b = in.read()) != -1) {
+                read = true;
+                if (b == '\n') return true;
+                if (length == maxBytes) {
+                    tooLong = true;
+                    continue;
+                }
+                if (length == buf.length) buf = Arrays.copyOf(buf, Math.min(maxBytes, buf.length * 2));
+                buf[length++] = (byte) b;
+            }
+            return read;
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        boolean isBlank() {
+            if (tooLong) return false;
+            for (int i = 0; i < length; i++) {
+                if (!Character.isWhitespace(buf[i])) return false;
+            }
+            return true;
+        }
+    }
+}
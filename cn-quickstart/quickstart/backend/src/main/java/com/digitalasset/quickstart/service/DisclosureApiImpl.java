@@ -1,26 +1,35 @@
 package com.digitalasset.quickstart.service;
 
+import static com.digitalasset.quickstart.service.ServiceUtils.CONSISTENCY_TOKEN_HEADER;
 import static com.digitalasset.quickstart.service.ServiceUtils.ensurePresent;
+import static com.digitalasset.quickstart.service.ServiceUtils.ndjson;
+import static com.digitalasset.quickstart.service.ServiceUtils.pageResponse;
 import static com.digitalasset.quickstart.service.ServiceUtils.traceServiceCallAsync;
 import static com.digitalasset.quickstart.utility.TracingUtils.tracingCtx;
 import static com.digitalasset.quickstart.utility.Utils.*;
 
 import com.digitalasset.quickstart.api.LogisticsViewsApi;
 import com.digitalasset.quickstart.api.BookkeeperViewsApi;
+import com.digitalasset.quickstart.config.PqsConfig;
 import com.digitalasset.quickstart.ledger.LedgerApi;
 import com.digitalasset.quickstart.repository.DamlRepository;
 import com.digitalasset.quickstart.security.AuthUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import org.openapitools.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import quickstart_invoicing.invoicing.disclosure.LogisticsView;
 import quickstart_invoicing.invoicing.disclosure.LogisticsView.LogisticsView_Acknowledge;
 import quickstart_invoicing.invoicing.disclosure.LogisticsView.LogisticsView_Revoke;
@@ -39,25 +48,52 @@ public class DisclosureApiImpl implements LogisticsViewsApi, BookkeeperViewsApi
     private final LedgerApi ledger;
     private final DamlRepository damlRepository;
     private final AuthUtils auth;
+    private final ObjectMapper objectMapper;
+    private final PqsConfig.Streaming streaming;
+    private final Executor serviceExecutor;
 
-    public DisclosureApiImpl(LedgerApi ledger, DamlRepository damlRepository, AuthUtils authUtils) {
+    public DisclosureApiImpl(
+            LedgerApi ledger,
+            DamlRepository damlRepository,
+            AuthUtils authUtils,
+            ObjectMapper objectMapper,
+            PqsConfig pqsConfig,
+            @Qualifier(ServiceExecutor.BEAN_NAME) Executor serviceExecutor
+    ) {
         this.ledger = ledger;
         this.damlRepository = damlRepository;
         this.auth = authUtils;
+        this.objectMapper = objectMapper;
+        this.streaming = pqsConfig.getStreaming();
+        this.serviceExecutor = serviceExecutor;
     }
 
     // ── Logistics Views ───────────────────────────────────────────────
 
     @Override
     @WithSpan
-    public CompletableFuture<ResponseEntity<List<LogisticsViewResponse>>> listLogisticsViews() {
-        var ctx = tracingCtx(logger, "listLogisticsViews");
+    public CompletableFuture<ResponseEntity<List<LogisticsViewResponse>>> listLogisticsViews(Long consistencyToken, Integer limit, String cursor) {
+        var ctx = tracingCtx(logger, "listLogisticsViews",
+                "consistencyToken", consistencyToken, "limit", limit, "cursor", cursor);
+        return auth.asAuthenticatedParty(party -> traceServiceCallAsync(ctx, () ->
+                damlRepository.awaitConsistency(consistencyToken, party)
+                        .thenCompose(v -> damlRepository.findActiveLogisticsViews(party, limit, cursor, consistencyToken))
+                        .thenApply(page -> pageResponse(page, DisclosureApiImpl::toLogisticsViewResponse)),
+        serviceExecutor));
+    }
+
+    /**
+     * Streaming variant of {@link #listLogisticsViews(Long, Integer, String)}, one view per line.
+     */
+    @Override
+    @WithSpan
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> streamLogisticsViews(Long consistencyToken) {
+        var ctx = tracingCtx(logger, "streamLogisticsViews", "consistencyToken", consistencyToken);
         return auth.asAuthenticatedParty(party -> traceServiceCallAsync(ctx, () ->
-                damlRepository.findActiveLogisticsViews(party).thenApply(res -> res.stream()
-                        .map(DisclosureApiImpl::toLogisticsViewResponse)
-                        .toList()
-                ).thenApply(ResponseEntity::ok)
-        ));
+                damlRepository.awaitConsistency(consistencyToken, party).thenApply(v -> ndjson(objectMapper, streaming,
+                        (Consumer<LogisticsViewResponse> sink) -> damlRepository.streamActiveLogisticsViews(party,
+                                view -> sink.accept(toLogisticsViewResponse(view))))),
+        serviceExecutor));
     }
 
     @Override
@@ -72,10 +108,12 @@ public class DisclosureApiImpl implements LogisticsViewsApi, BookkeeperViewsApi
                 damlRepository.findLogisticsViewById(contractId).thenCompose(optView -> {
                     var view = ensurePresent(optView, "LogisticsView not found for contract %s", contractId);
                     var choice = new LogisticsView_Acknowledge(new Metadata(Map.of()));
-                    return ledger.exerciseAndGetResult(view.contractId, choice, commandId, party)
-                            .thenApply(r -> ResponseEntity.noContent().<Void>build());
-                })
-        ));
+                    return ledger.exercise(view.contractId, choice, commandId, party)
+                            .thenApply(c -> ResponseEntity.noContent()
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     @Override
@@ -90,24 +128,40 @@ public class DisclosureApiImpl implements LogisticsViewsApi, BookkeeperViewsApi
                 damlRepository.findLogisticsViewById(contractId).thenCompose(optView -> {
                     var view = ensurePresent(optView, "LogisticsView not found for contract %s", contractId);
                     var choice = new LogisticsView_Revoke(new Metadata(Map.of()));
-                    return ledger.exerciseAndGetResult(view.contractId, choice, commandId, party)
-                            .thenApply(r -> ResponseEntity.noContent().<Void>build());
-                })
-        ));
+                    return ledger.exercise(view.contractId, choice, commandId, party)
+                            .thenApply(c -> ResponseEntity.noContent()
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     // ── Bookkeeper Views ──────────────────────────────────────────────
 
     @Override
     @WithSpan
-    public CompletableFuture<ResponseEntity<List<BookkeeperViewResponse>>> listBookkeeperViews() {
-        var ctx = tracingCtx(logger, "listBookkeeperViews");
+    public CompletableFuture<ResponseEntity<List<BookkeeperViewResponse>>> listBookkeeperViews(Long consistencyToken, Integer limit, String cursor) {
+        var ctx = tracingCtx(logger, "listBookkeeperViews",
+                "consistencyToken", consistencyToken, "limit", limit, "cursor", cursor);
+        return auth.asAuthenticatedParty(party -> traceServiceCallAsync(ctx, () ->
+                damlRepository.awaitConsistency(consistencyToken, party)
+                        .thenCompose(v -> damlRepository.findActiveBookkeeperViews(party, limit, cursor, consistencyToken))
+                        .thenApply(page -> pageResponse(page, DisclosureApiImpl::toBookkeeperViewResponse)),
+        serviceExecutor));
+    }
+
+    /**
+     * Streaming variant of {@link #listBookkeeperViews(Long, Integer, String)}, one view per line.
+     */
+    @Override
+    @WithSpan
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> streamBookkeeperViews(Long consistencyToken) {
+        var ctx = tracingCtx(logger, "streamBookkeeperViews", "consistencyToken", consistencyToken);
         return auth.asAuthenticatedParty(party -> traceServiceCallAsync(ctx, () ->
-                damlRepository.findActiveBookkeeperViews(party).thenApply(res -> res.stream()
-                        .map(DisclosureApiImpl::toBookkeeperViewResponse)
-                        .toList()
-                ).thenApply(ResponseEntity::ok)
-        ));
+                damlRepository.awaitConsistency(consistencyToken, party).thenApply(v -> ndjson(objectMapper, streaming,
+                        (Consumer<BookkeeperViewResponse> sink) -> damlRepository.streamActiveBookkeeperViews(party,
+                                view -> sink.accept(toBookkeeperViewResponse(view))))),
+        serviceExecutor));
     }
 
     @Override
@@ -122,10 +176,12 @@ public class DisclosureApiImpl implements LogisticsViewsApi, BookkeeperViewsApi
                 damlRepository.findBookkeeperViewById(contractId).thenCompose(optView -> {
                     var view = ensurePresent(optView, "BookkeeperView not found for contract %s", contractId);
                     var choice = new BookkeeperView_Acknowledge(new Metadata(Map.of()));
-                    return ledger.exerciseAndGetResult(view.contractId, choice, commandId, party)
-                            .thenApply(r -> ResponseEntity.noContent().<Void>build());
-                })
-        ));
+                    return ledger.exercise(view.contractId, choice, commandId, party)
+                            .thenApply(c -> ResponseEntity.noContent()
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     @Override
@@ -140,10 +196,12 @@ public class DisclosureApiImpl implements LogisticsViewsApi, BookkeeperViewsApi
                 damlRepository.findBookkeeperViewById(contractId).thenCompose(optView -> {
                     var view = ensurePresent(optView, "BookkeeperView not found for contract %s", contractId);
                     var choice = new BookkeeperView_Revoke(new Metadata(Map.of()));
-                    return ledger.exerciseAndGetResult(view.contractId, choice, commandId, party)
-                            .thenApply(r -> ResponseEntity.noContent().<Void>build());
-                })
-        ));
+                    return ledger.exercise(view.contractId, choice, commandId, party)
+                            .thenApply(c -> ResponseEntity.noContent()
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     // ── Response mappers ──────────────────────────────────────────────
@@ -5,13 +5,16 @@ import io.opentelemetry.instrumentation.annotations.WithSpan;
 import org.openapitools.model.FeatureFlags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static com.digitalasset.quickstart.service.ServiceUtils.traceServiceCallAsync;
+import static com.digitalasset.quickstart.utility.TracingUtils.supplyAsync;
 import static com.digitalasset.quickstart.utility.TracingUtils.tracingCtx;
 
 @Controller
@@ -20,19 +23,21 @@ public class FeatureFlagsImpl implements com.digitalasset.quickstart.api.Feature
 
     private static final Logger logger = LoggerFactory.getLogger(FeatureFlagsImpl.class);
     private final AuthUtils auth;
+    private final Executor serviceExecutor;
 
-    public FeatureFlagsImpl(AuthUtils auth) {
+    public FeatureFlagsImpl(AuthUtils auth, @Qualifier(ServiceExecutor.BEAN_NAME) Executor serviceExecutor) {
         this.auth = auth;
+        this.serviceExecutor = serviceExecutor;
     }
 
     @Override
     @WithSpan
     public CompletableFuture<ResponseEntity<FeatureFlags>> getFeatureFlags() {
         var ctx = tracingCtx(logger, "getFeatureFlags");
-        return traceServiceCallAsync(ctx, () -> CompletableFuture.supplyAsync(() -> {
+        return traceServiceCallAsync(ctx, () -> supplyAsync(() -> {
             FeatureFlags featureFlags = new FeatureFlags();
             featureFlags.authMode(auth.isOAuth2Enabled() ? FeatureFlags.AuthModeEnum.OAUTH2 : FeatureFlags.AuthModeEnum.SHARED_SECRET);
             return ResponseEntity.ok(featureFlags);
-        }));
+        }, serviceExecutor), serviceExecutor);
     }
 }
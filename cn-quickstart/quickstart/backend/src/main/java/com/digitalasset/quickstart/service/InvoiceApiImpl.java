@@ -1,21 +1,27 @@
 package com.digitalasset.quickstart.service;
 
+import static com.digitalasset.quickstart.service.ServiceUtils.CONSISTENCY_TOKEN_HEADER;
 import static com.digitalasset.quickstart.service.ServiceUtils.ensurePresent;
+import static com.digitalasset.quickstart.service.ServiceUtils.ndjson;
+import static com.digitalasset.quickstart.service.ServiceUtils.orEmpty;
+import static com.digitalasset.quickstart.service.ServiceUtils.pageResponse;
 import static com.digitalasset.quickstart.service.ServiceUtils.traceServiceCallAsync;
 import static com.digitalasset.quickstart.utility.TracingUtils.tracingCtx;
 import static com.digitalasset.quickstart.utility.Utils.*;
 
 import com.daml.ledger.api.v2.CommandsOuterClass;
-import com.daml.ledger.api.v2.ValueOuterClass;
 import com.digitalasset.quickstart.api.InvoicesApi;
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
 import com.digitalasset.quickstart.ledger.LedgerApi;
 import com.digitalasset.quickstart.ledger.TokenStandardProxy;
 import com.digitalasset.quickstart.repository.DamlRepository;
+import com.digitalasset.quickstart.repository.InvoiceNumberAllocator;
 import com.digitalasset.quickstart.security.AuthUtils;
 import com.digitalasset.quickstart.tokenstandard.openapi.allocation.model.DisclosedContract;
 import com.digitalasset.transcode.java.ContractId;
 import com.digitalasset.transcode.java.Party;
-import com.google.protobuf.ByteString;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 
 import java.math.BigDecimal;
@@ -23,15 +29,22 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.openapitools.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import quickstart_invoicing.invoicing.invoice.Invoice;
 import quickstart_invoicing.invoicing.invoice.Invoice.Invoice_Cancel;
 import quickstart_invoicing.invoicing.invoice.Invoice.Invoice_MarkPaid;
@@ -44,8 +57,6 @@ import quickstart_invoicing.invoicing.types.InvoiceStatus;
 import quickstart_invoicing.invoicing.types.Address;
 import quickstart_invoicing.invoicing.types.Contact;
 import quickstart_invoicing.invoicing.types.PartyInfo;
-import quickstart_invoicing.invoicing.types.LineItem;
-import quickstart_invoicing.invoicing.types.TaxEntry;
 import splice_api_token_holding_v1.splice.api.token.holdingv1.InstrumentId;
 import splice_api_token_metadata_v1.splice.api.token.metadatav1.AnyValue;
 import splice_api_token_metadata_v1.splice.api.token.metadatav1.ChoiceContext;
@@ -60,32 +71,64 @@ public class InvoiceApiImpl implements InvoicesApi {
 
     private final LedgerApi ledger;
     private final DamlRepository damlRepository;
+    private final InvoiceNumberAllocator invoiceNumbers;
     private final TokenStandardProxy tokenStandardProxy;
+    private final DisclosedContractCache disclosedContractCache;
+    private final BulkInvoiceImport bulkInvoiceImport;
     private final AuthUtils auth;
+    private final ObjectMapper objectMapper;
+    private final PqsConfig.Streaming streaming;
+    private final Executor serviceExecutor;
 
     public InvoiceApiImpl(
             LedgerApi ledger,
             DamlRepository damlRepository,
+            InvoiceNumberAllocator invoiceNumbers,
             TokenStandardProxy tokenStandardProxy,
-            AuthUtils authUtils
+            DisclosedContractCache disclosedContractCache,
+            BulkInvoiceImport bulkInvoiceImport,
+            AuthUtils authUtils,
+            ObjectMapper objectMapper,
+            PqsConfig pqsConfig,
+            @Qualifier(ServiceExecutor.BEAN_NAME) Executor serviceExecutor
     ) {
         this.ledger = ledger;
         this.damlRepository = damlRepository;
+        this.invoiceNumbers = invoiceNumbers;
         this.tokenStandardProxy = tokenStandardProxy;
+        this.disclosedContractCache = disclosedContractCache;
+        this.bulkInvoiceImport = bulkInvoiceImport;
         this.auth = authUtils;
+        this.objectMapper = objectMapper;
+        this.streaming = pqsConfig.getStreaming();
+        this.serviceExecutor = serviceExecutor;
     }
 
     @Override
     @WithSpan
-    public CompletableFuture<ResponseEntity<List<InvoiceResponse>>> listInvoices() {
-        var ctx = tracingCtx(logger, "listInvoices");
+    public CompletableFuture<ResponseEntity<List<InvoiceResponse>>> listInvoices(Long consistencyToken, Integer limit, String cursor) {
+        var ctx = tracingCtx(logger, "listInvoices",
+                "consistencyToken", consistencyToken, "limit", limit, "cursor", cursor);
         return auth.asAuthenticatedParty(party -> traceServiceCallAsync(ctx, () ->
-                damlRepository.findActiveInvoices(party).thenApply(res -> res.stream()
-                        .map(InvoiceApiImpl::toInvoiceResponse)
-                        .sorted(Comparator.comparingInt(InvoiceResponse::getInvoiceNum))
-                        .toList()
-                ).thenApply(ResponseEntity::ok)
-        ));
+                damlRepository.awaitConsistency(consistencyToken, party)
+                        .thenCompose(v -> damlRepository.findActiveInvoices(party, limit, cursor, consistencyToken))
+                        .thenApply(page -> pageResponse(page, InvoiceApiImpl::toInvoiceResponse)),
+        serviceExecutor));
+    }
+
+    /**
+     * Streaming variant of {@link #listInvoices(Long, Integer, String)} that writes one invoice per line as it is read,
+     * in invoice number order, so that memory use does not grow with the number of invoices.
+     */
+    @Override
+    @WithSpan
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> streamInvoices(Long consistencyToken) {
+        var ctx = tracingCtx(logger, "streamInvoices", "consistencyToken", consistencyToken);
+        return auth.asAuthenticatedParty(party -> traceServiceCallAsync(ctx, () ->
+                damlRepository.awaitConsistency(consistencyToken, party).thenApply(v -> ndjson(objectMapper, streaming,
+                        (Consumer<InvoiceResponse> sink) -> damlRepository.streamActiveInvoices(party,
+                                invoice -> sink.accept(toInvoiceResponse(invoice))))),
+        serviceExecutor));
     }
 
     @Override
@@ -96,105 +139,102 @@ public class InvoiceApiImpl implements InvoicesApi {
     ) {
         var ctx = tracingCtx(logger, "createInvoice", "commandId", commandId);
         return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () ->
-                tokenStandardProxy.getRegistryAdminId().thenCompose(adminId -> {
-                    var now = Instant.now();
-
-                    // Build nested DAML types from request
-                    var sellerAddr = toAddress(request.getSellerInfo().getAddress());
-                    var sellerContact = toContact(request.getSellerInfo().getContact());
-                    var sellerInfo = new PartyInfo(
-                            orEmpty(request.getSellerInfo().getPartyName()),
-                            orEmpty(request.getSellerInfo().getRegNumber()),
-                            orEmpty(request.getSellerInfo().getTaxNumber()),
-                            sellerAddr, sellerContact
-                    );
+                submitInvoice(party, request, commandId)
+                        .thenApply(c -> ResponseEntity.status(HttpStatus.CREATED)
+                                .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                .<Void>build()),
+        serviceExecutor));
+    }
 
-                    var buyerAddr = toAddress(request.getBuyerInfo().getAddress());
-                    var buyerContact = toContact(request.getBuyerInfo().getContact());
-                    var buyerInfo = new PartyInfo(
-                            orEmpty(request.getBuyerInfo().getPartyName()),
-                            orEmpty(request.getBuyerInfo().getRegNumber()),
-                            orEmpty(request.getBuyerInfo().getTaxNumber()),
-                            buyerAddr, buyerContact
-                    );
+    /**
+     * Creates one invoice per line of a newline-delimited JSON stream of {@link CreateInvoiceRequest}s and streams
+     * back the outcome of each line as soon as it is known. The command id of each line is derived from
+     * {@code importId}, so an import can be run again to complete it; see {@link BulkInvoiceImport}.
+     */
+    @Override
+    @WithSpan
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> importInvoices(
+            String importId,
+            InputStreamResource body
+    ) {
+        var ctx = tracingCtx(logger, "importInvoices", "importId", importId);
+        if (!BulkInvoiceImport.isValidImportId(importId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "importId must be 1 to 200 letters, digits, '.', '_', ':' or '-'");
+        }
+        return auth.asAdminParty(party -> traceServiceCallAsync(ctx, () -> {
+            StreamingResponseBody responseBody = out -> bulkInvoiceImport.run(importId, body.getInputStream(), out,
+                    (request, commandId) -> submitInvoice(party, request, commandId));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(responseBody));
+        }, serviceExecutor));
+    }
 
-                    var shippingAddress = toAddress(request.getShippingAddress());
-
-                    // Build line items and compute totals
-                    var lineItems = request.getLineItems().stream().map(li -> {
-                        var qty = li.getQuantity() != null ? li.getQuantity() : BigDecimal.ZERO;
-                        var price = li.getUnitPrice() != null ? li.getUnitPrice() : BigDecimal.ZERO;
-                        var disc = li.getDiscount() != null ? li.getDiscount() : BigDecimal.ZERO;
-                        var taxRate = li.getTaxRate() != null ? li.getTaxRate() : BigDecimal.ZERO;
-                        var lineSubtotal = qty.multiply(price).subtract(disc);
-                        return new LineItem(
-                                orEmpty(li.getItemName()),
-                                orEmpty(li.getSku()),
-                                qty, orEmpty(li.getUnitOfMeasure()),
-                                price, disc, taxRate, lineSubtotal,
-                                orEmpty(li.getBatchInfo()),
-                                orEmpty(li.getDeliveryDate())
-                        );
-                    }).toList();
-
-                    var subtotal = lineItems.stream()
-                            .map(li -> li.getLineSubtotal)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    var totalDiscount = lineItems.stream()
-                            .map(li -> li.getDiscount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    // Build tax breakdown
-                    var taxBreakdown = lineItems.stream()
-                            .filter(li -> li.getTaxRate.compareTo(BigDecimal.ZERO) > 0)
-                            .collect(Collectors.groupingBy(li -> li.getTaxRate))
-                            .entrySet().stream()
-                            .map(e -> {
-                                var taxableAmount = e.getValue().stream()
-                                        .map(li -> li.getLineSubtotal)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                var taxAmount = taxableAmount.multiply(e.getKey());
-                                return new TaxEntry("Tax " + e.getKey().multiply(new BigDecimal("100")) + "%", e.getKey(), taxAmount);
-                            }).toList();
-
-                    var totalTax = taxBreakdown.stream()
-                            .map(te -> te.getTaxAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    var grandTotal = subtotal.add(totalTax);
-
-                    var invoice = new Invoice(
-                            new Party(request.getSeller()),   // seller = the seller party
-                            new Party(request.getBuyer()),    // buyer
-                            new Party(party),                 // provider = admin (app provider)
-                            0L,                               // invoiceNum (sequential per provider)
-                            now,                              // invoiceDate
-                            request.getDueDate().toInstant(),  // dueDate
-                            orEmpty(request.getCurrency()),   // currency
-                            sellerInfo,
-                            buyerInfo,
-                            shippingAddress,
-                            lineItems,
-                            subtotal,
-                            totalDiscount,
-                            taxBreakdown,
-                            totalTax,
-                            grandTotal,
-                            BigDecimal.ZERO,                  // amountPaid
-                            grandTotal,                       // balanceDue = grandTotal initially
-                            new InstrumentId(new Party(adminId), "Amulet"),
-                            orEmpty(request.getPaymentTerms()),
-                            orEmpty(request.getPoNumber()),
-                            orEmpty(request.getSalesOrderNumber()),
-                            orEmpty(request.getNotes()),
-                            orEmpty(request.getDeliveryTerms()),
-                            orEmpty(request.getDescription()),
-                            InvoiceStatus.Issued,
-                            new Metadata(Map.of())
-                    );
-                    return ledger.create(invoice, commandId)
-                            .thenApply(r -> ResponseEntity.status(HttpStatus.CREATED).<Void>build());
-                })
-        ));
+    // The invoice number is allocated before the ledger sees the command, so a row rejected as a duplicate skips one
+    private CompletableFuture<LedgerApi.Committed<String>> submitInvoice(
+            String party,
+            CreateInvoiceRequest request,
+            String commandId
+    ) {
+        return tokenStandardProxy.getRegistryAdminId().thenCombine(invoiceNumbers.next(party), Map::entry).thenCompose(ids -> {
+            var adminId = ids.getKey();
+            var invoiceNum = ids.getValue();
+            var now = Instant.now();
+
+            // Build nested DAML types from request
+            var sellerAddr = toAddress(request.getSellerInfo().getAddress());
+            var sellerContact = toContact(request.getSellerInfo().getContact());
+            var sellerInfo = new PartyInfo(
+                    orEmpty(request.getSellerInfo().getPartyName()),
+                    orEmpty(request.getSellerInfo().getRegNumber()),
+                    orEmpty(request.getSellerInfo().getTaxNumber()),
+                    sellerAddr, sellerContact
+            );
+
+            var buyerAddr = toAddress(request.getBuyerInfo().getAddress());
+            var buyerContact = toContact(request.getBuyerInfo().getContact());
+            var buyerInfo = new PartyInfo(
+                    orEmpty(request.getBuyerInfo().getPartyName()),
+                    orEmpty(request.getBuyerInfo().getRegNumber()),
+                    orEmpty(request.getBuyerInfo().getTaxNumber()),
+                    buyerAddr, buyerContact
+            );
+
+            var shippingAddress = toAddress(request.getShippingAddress());
+
+            var totals = InvoiceTotals.of(request.getLineItems());
+
+            var invoice = new Invoice(
+                    new Party(request.getSeller()),   // seller = the seller party
+                    new Party(request.getBuyer()),    // buyer
+                    new Party(party),                 // provider = admin (app provider)
+                    invoiceNum,                       // invoiceNum (unique per provider)
+                    now,                              // invoiceDate
+                    request.getDueDate().toInstant(),  // dueDate
+                    orEmpty(request.getCurrency()),   // currency
+                    sellerInfo,
+                    buyerInfo,
+                    shippingAddress,
+                    totals.lineItems(),
+                    totals.subtotal(),
+                    totals.totalDiscount(),
+                    totals.taxBreakdown(),
+                    totals.totalTax(),
+                    totals.grandTotal(),
+                    BigDecimal.ZERO,                  // amountPaid
+                    totals.grandTotal(),              // balanceDue = grandTotal initially
+                    new InstrumentId(new Party(adminId), "Amulet"),
+                    orEmpty(request.getPaymentTerms()),
+                    orEmpty(request.getPoNumber()),
+                    orEmpty(request.getSalesOrderNumber()),
+                    orEmpty(request.getNotes()),
+                    orEmpty(request.getDeliveryTerms()),
+                    orEmpty(request.getDescription()),
+                    InvoiceStatus.Issued,
+                    new Metadata(Map.of())
+            );
+            return ledger.createAndTrack(invoice, commandId);
+        });
     }
 
     @Override
@@ -216,10 +256,12 @@ public class InvoiceApiImpl implements InvoicesApi {
                             now.plus(Duration.parse(request.getPrepareUntilDuration())),
                             now.plus(Duration.parse(request.getSettleBeforeDuration()))
                     );
-                    return ledger.exerciseAndGetResult(invoice.contractId, choice, commandId)
-                            .thenApply(r -> ResponseEntity.status(HttpStatus.CREATED).<Void>build());
-                })
-        ));
+                    return ledger.exercise(invoice.contractId, choice, commandId)
+                            .thenApply(c -> ResponseEntity.status(HttpStatus.CREATED)
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     @Override
@@ -243,15 +285,17 @@ public class InvoiceApiImpl implements InvoicesApi {
                         new ContractId<>(contractId),
                         transferContext.extraArgs
                 );
-                return ledger.exerciseAndGetResult(pmtReq.contractId, choice, commandId, transferContext.disclosedContracts)
-                        .thenApply(result -> {
+                return ledger.exerciseAndGetCommitted(pmtReq.contractId, choice, commandId, transferContext.disclosedContracts)
+                        .thenApply(c -> {
                             var res = new InvoicePaymentResult();
-                            res.setInvoiceId(result.getPaidInvoiceId.getContractId);
-                            res.setReceiptId(result.getReceiptId.getContractId);
-                            return ResponseEntity.ok(res);
+                            res.setInvoiceId(c.result().getPaidInvoiceId.getContractId);
+                            res.setReceiptId(c.result().getReceiptId.getContractId);
+                            return ResponseEntity.ok()
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .body(res);
                         });
             }).thenCompose(x -> x);
-        }));
+        }, serviceExecutor));
     }
 
     @Override
@@ -271,10 +315,12 @@ public class InvoiceApiImpl implements InvoicesApi {
                             new Party(party),
                             new Metadata(meta)
                     );
-                    return ledger.exerciseAndGetResult(invoice.contractId, choice, commandId)
-                            .thenApply(r -> ResponseEntity.noContent().<Void>build());
-                })
-        ));
+                    return ledger.exercise(invoice.contractId, choice, commandId)
+                            .thenApply(c -> ResponseEntity.noContent()
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     @Override
@@ -289,10 +335,12 @@ public class InvoiceApiImpl implements InvoicesApi {
                 damlRepository.findInvoiceById(contractId).thenCompose(optInvoice -> {
                     var invoice = ensurePresent(optInvoice, "Invoice not found for contract %s", contractId);
                     var choice = new Invoice_MarkPaid(Instant.now());
-                    return ledger.exerciseAndGetResult(invoice.contractId, choice, commandId)
-                            .thenApply(r -> ResponseEntity.noContent().<Void>build());
-                })
-        ));
+                    return ledger.exercise(invoice.contractId, choice, commandId)
+                            .thenApply(c -> ResponseEntity.noContent()
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     @Override
@@ -311,10 +359,12 @@ public class InvoiceApiImpl implements InvoicesApi {
                             new Party(request.getCarrier()),
                             new Party(party)
                     );
-                    return ledger.exerciseAndGetResult(invoice.contractId, choice, commandId)
-                            .thenApply(r -> ResponseEntity.status(HttpStatus.CREATED).<Void>build());
-                })
-        ));
+                    return ledger.exercise(invoice.contractId, choice, commandId)
+                            .thenApply(c -> ResponseEntity.status(HttpStatus.CREATED)
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     @Override
@@ -333,10 +383,12 @@ public class InvoiceApiImpl implements InvoicesApi {
                             new Party(request.getBookkeeper()),
                             new Party(party)
                     );
-                    return ledger.exerciseAndGetResult(invoice.contractId, choice, commandId)
-                            .thenApply(r -> ResponseEntity.status(HttpStatus.CREATED).<Void>build());
-                })
-        ));
+                    return ledger.exercise(invoice.contractId, choice, commandId)
+                            .thenApply(c -> ResponseEntity.status(HttpStatus.CREATED)
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 
     // ── Response mappers ──────────────────────────────────────────────
@@ -474,10 +526,6 @@ public class InvoiceApiImpl implements InvoicesApi {
 
     // ── Helpers ────────────────────────────────────────────────────────
 
-    private static String orEmpty(String s) {
-        return s != null ? s : "";
-    }
-
     private static Address toAddress(AddressRequest req) {
         if (req == null) return new Address("", "", "", "", "");
         return new Address(
@@ -502,7 +550,7 @@ public class InvoiceApiImpl implements InvoicesApi {
 
     private TransferContext prepareTransferContext(List<DisclosedContract> disclosedContracts) {
         var disclosures = disclosedContracts.stream()
-                .map(this::toLedgerApiDisclosedContract)
+                .map(disclosedContractCache::get)
                 .toList();
         Map<String, AnyValue> choiceContextMap = disclosures.stream()
                 .map(dc -> {
@@ -519,33 +567,6 @@ public class InvoiceApiImpl implements InvoicesApi {
         );
     }
 
-    private CommandsOuterClass.DisclosedContract toLedgerApiDisclosedContract(DisclosedContract dc) {
-        ValueOuterClass.Identifier templateId = parseTemplateIdentifier(dc.getTemplateId());
-        byte[] blob = Base64.getDecoder().decode(dc.getCreatedEventBlob());
-        return CommandsOuterClass.DisclosedContract.newBuilder()
-                .setTemplateId(templateId)
-                .setContractId(dc.getContractId())
-                .setCreatedEventBlob(ByteString.copyFrom(blob))
-                .build();
-    }
-
-    private static ValueOuterClass.Identifier parseTemplateIdentifier(String templateIdStr) {
-        String[] parts = templateIdStr.split(":");
-        if (parts.length < 3) throw new IllegalArgumentException("Invalid templateId format: " + templateIdStr);
-        String packageId = parts[0];
-        String moduleName = parts[1];
-        StringBuilder entityNameBuilder = new StringBuilder();
-        for (int i = 2; i < parts.length; i++) {
-            if (i > 2) entityNameBuilder.append(":");
-            entityNameBuilder.append(parts[i]);
-        }
-        return ValueOuterClass.Identifier.newBuilder()
-                .setPackageId(packageId)
-                .setModuleName(moduleName)
-                .setEntityName(entityNameBuilder.toString())
-                .build();
-    }
-
     private static AnyValue toAnyValueContractId(String contractId) {
         return new AnyValue.AnyValue_AV_ContractId(new ContractId<>(contractId));
     }
@@ -7,6 +7,7 @@ import com.digitalasset.quickstart.security.AuthUtils;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -17,7 +18,9 @@ import splice_api_token_metadata_v1.splice.api.token.metadatav1.Metadata;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import static com.digitalasset.quickstart.service.ServiceUtils.CONSISTENCY_TOKEN_HEADER;
 import static com.digitalasset.quickstart.service.ServiceUtils.ensurePresent;
 import static com.digitalasset.quickstart.service.ServiceUtils.traceServiceCallAsync;
 import static com.digitalasset.quickstart.utility.TracingUtils.tracingCtx;
@@ -31,11 +34,14 @@ public class InvoicePaymentRequestsApiImpl implements InvoicePaymentRequestsApi
     private final LedgerApi ledger;
     private final DamlRepository damlRepository;
     private final AuthUtils auth;
+    private final Executor serviceExecutor;
 
-    public InvoicePaymentRequestsApiImpl(LedgerApi ledger, DamlRepository damlRepository, AuthUtils authUtils) {
+    public InvoicePaymentRequestsApiImpl(LedgerApi ledger, DamlRepository damlRepository, AuthUtils authUtils,
+                                         @Qualifier(ServiceExecutor.BEAN_NAME) Executor serviceExecutor) {
         this.ledger = ledger;
         this.damlRepository = damlRepository;
         this.auth = authUtils;
+        this.serviceExecutor = serviceExecutor;
     }
 
     @Override
@@ -49,9 +55,11 @@ public class InvoicePaymentRequestsApiImpl implements InvoicePaymentRequestsApi
                     var choice = new AllocationRequest.AllocationRequest_Withdraw(
                             new ExtraArgs(new ChoiceContext(Map.of()), new Metadata(Map.of()))
                     );
-                    return ledger.exerciseAndGetResult(allocationRequest.contractId, choice, commandId)
-                            .thenApply(result -> ResponseEntity.noContent().<Void>build());
-                })
-        ));
+                    return ledger.exercise(allocationRequest.contractId, choice, commandId)
+                            .thenApply(c -> ResponseEntity.noContent()
+                                    .header(CONSISTENCY_TOKEN_HEADER, Long.toString(c.offset()))
+                                    .<Void>build());
+                }),
+        serviceExecutor));
     }
 }
@@ -0,0 +1,91 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import static com.digitalasset.quickstart.service.ServiceUtils.orEmpty;
+
+import org.openapitools.model.LineItemRequest;
+import quickstart_invoicing.invoicing.types.LineItem;
+import quickstart_invoicing.invoicing.types.TaxEntry;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Line items and totals of a new invoice, computed in one pass over the requested line items.
+ *
+ * <p>Products (line amount, tax) are rounded like Daml {@code Decimal} multiplication: to 10 decimal places, half to
+ * even. Sums are exact. The tax breakdown has one entry per positive tax rate, ordered by rate; rates that are equal
+ * but for trailing zeros (0.1 and 0.10) share an entry, which shows the rate without them whichever came first.
+ */
+record InvoiceTotals(
+        List<LineItem> lineItems,
+        BigDecimal subtotal,
+        BigDecimal totalDiscount,
+        List<TaxEntry> taxBreakdown,
+        BigDecimal totalTax,
+        BigDecimal grandTotal
+) {
+
+    // Daml Decimal is Numeric 10
+    static final int SCALE = 10;
+    static final RoundingMode ROUNDING = RoundingMode.HALF_EVEN;
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    static InvoiceTotals of(List<LineItemRequest> requested) {
+        List<LineItem> lineItems = new ArrayList<>(requested.size());
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal totalDiscount = BigDecimal.ZERO;
+        Map<BigDecimal, BigDecimal> taxableByRate = new TreeMap<>();
+        for (LineItemRequest li : requested) {
+            var qty = orZero(li.getQuantity());
+            var price = orZero(li.getUnitPrice());
+            var disc = orZero(li.getDiscount());
+            var taxRate = orZero(li.getTaxRate());
+            var lineSubtotal = multiply(qty, price).subtract(disc);
+            lineItems.add(new LineItem(
+                    orEmpty(li.getItemName()),
+                    orEmpty(li.getSku()),
+                    qty, orEmpty(li.getUnitOfMeasure()),
+                    price, disc, taxRate, lineSubtotal,
+                    orEmpty(li.getBatchInfo()),
+                    orEmpty(li.getDeliveryDate())
+            ));
+            subtotal = subtotal.add(lineSubtotal);
+            totalDiscount = totalDiscount.add(disc);
+            if (taxRate.signum() > 0) {
+                taxableByRate.merge(normalize(taxRate), lineSubtotal, BigDecimal::add);
+            }
+        }
+
+        List<TaxEntry> taxBreakdown = new ArrayList<>(taxableByRate.size());
+        BigDecimal totalTax = BigDecimal.ZERO;
+        for (var rate : taxableByRate.entrySet()) {
+            var taxAmount = multiply(rate.getValue(), rate.getKey());
+            taxBreakdown.add(new TaxEntry("Tax " + rate.getKey().multiply(HUNDRED) + "%", rate.getKey(), taxAmount));
+            totalTax = totalTax.add(taxAmount);
+        }
+        return new InvoiceTotals(lineItems, subtotal, totalDiscount, taxBreakdown, totalTax, subtotal.add(totalTax));
+    }
+
+    // Drops trailing zeros, but keeps whole rates such as 1 at scale 0 rather than in exponent notation
+    private static BigDecimal normalize(BigDecimal rate) {
+        var stripped = rate.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
+    private static BigDecimal multiply(BigDecimal a, BigDecimal b) {
+        var product = a.multiply(b);
+        return product.scale() > SCALE ? product.setScale(SCALE, ROUNDING) : product;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,27 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.config.ServiceConfig;
+import com.digitalasset.quickstart.utility.InstrumentedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Configuration of the executor that the service API implementations start their traced calls on, see
+ * {@link ServiceUtils#traceServiceCallAsync}. Its meters are tagged {@code name=service}.
+ */
+@Configuration
+public class ServiceExecutor {
+
+    public static final String BEAN_NAME = "serviceExecutor";
+
+    @Bean(name = BEAN_NAME)
+    public Executor serviceExecutor(ServiceConfig serviceConfig, MeterRegistry meterRegistry) {
+        return InstrumentedExecutor.create(serviceConfig.getExecutor(), "service", "service", meterRegistry);
+    }
+}
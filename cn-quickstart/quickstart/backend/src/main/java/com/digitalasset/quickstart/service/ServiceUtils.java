@@ -1,33 +1,188 @@
 package com.digitalasset.quickstart.service;
 
+import com.digitalasset.quickstart.config.PqsConfig;
+import com.digitalasset.quickstart.repository.DamlRepository;
 import com.digitalasset.quickstart.utility.TracingUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 class ServiceUtils {
 
+    /**
+     * Response header carrying the ledger offset a command was committed at. Clients pass it back as the
+     * {@code consistencyToken} query parameter to read their own writes.
+     */
+    static final String CONSISTENCY_TOKEN_HEADER = "X-Consistency-Token";
+
+    /**
+     * Response header carrying the cursor of the next page of a list endpoint, absent on the last page.
+     */
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     static <T> T ensurePresent(Optional<T> opt, String message, Object... args) {
         return opt.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, String.format(message, args)));
     }
 
+    /**
+     * {@code s}, or the empty string for an optional request field that was left out.
+     */
+    static String orEmpty(String s) {
+        return s != null ? s : "";
+    }
+
     /**
      * Wraps a CompletableFuture with tracing, ensuring that any exceptions are properly propagated.
      * To be used exclusively inside the service API implementations.
      *
-     * @param ctx  the tracing context
-     * @param body the supplier of the CompletableFuture to be traced
-     * @param <T>  the type of the result
+     * @param ctx      the tracing context
+     * @param body     the supplier of the CompletableFuture to be traced
+     * @param executor the {@link ServiceExecutor} the body is started on
+     * @param <T>      the type of the result
      * @return a traced CompletableFuture
      */
     static <T> CompletableFuture<T> traceServiceCallAsync(
             TracingUtils.TracingContext ctx,
-            Supplier<CompletableFuture<T>> body) {
-        return TracingUtils.traceWithStartEventAsync(ctx, body);
+            Supplier<CompletableFuture<T>> body,
+            Executor executor) {
+        return TracingUtils.traceWithStartEventAsync(ctx, body, executor);
     }
-}
 
+    /**
+     * Builds a newline-delimited JSON response that writes each element as soon as {@code producer} emits it.
+     * The producer receives the sink to emit to and returns a future that completes once it has emitted everything.
+     *
+     * <p>A producer that emits from another thread, typically one reading a database cursor, does so into a queue of
+     * {@code handOffCapacity} elements that the thread writing the response drains. A slow client then only blocks the
+     * producer while the queue is full, and for no longer than {@code idleTimeoutMillis}, after which the producer is
+     * aborted and releases its connection. Elements emitted on the writing thread itself are written directly.
+     *
+     * @param mapper    the object mapper used to serialize the elements
+     * @param streaming the hand-off settings
+     * @param producer  emits the elements to the given sink
+     * @param <T>       the type of the elements
+     * @return a 200 response streaming {@code application/x-ndjson}
+     */
+    static <T> ResponseEntity<StreamingResponseBody> ndjson(
+            ObjectMapper mapper,
+            PqsConfig.Streaming streaming,
+            Function<Consumer<T>, CompletableFuture<Void>> producer) {
+        StreamingResponseBody body = out -> new HandOff<T>(
+                Math.max(1, streaming.getHandOffCapacity()),
+                streaming.getIdleTimeoutMillis(),
+                element -> {
+                    out.write(mapper.writeValueAsBytes(element));
+                    out.write('\n');
+                }
+        ).run(producer);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
 
+    private interface ElementWriter<T> {
+        void write(T element) throws IOException;
+    }
+
+    /**
+     * Bounded queue between a producer emitting on its own thread and the thread writing the response.
+     */
+    private static final class HandOff<T> implements Consumer<T> {
+        private static final long POLL_MILLIS = 50;
+
+        private final BlockingQueue<T> queue;
+        private final long idleTimeoutMillis;
+        private final ElementWriter<T> writer;
+        private final Thread writerThread = Thread.currentThread();
+        private volatile boolean abandoned;
+
+        HandOff(int capacity, long idleTimeoutMillis, ElementWriter<T> writer) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            this.writer = writer;
+        }
+
+        @Override
+        public void accept(T element) {
+            if (Thread.currentThread() == writerThread) {
+                try {
+                    writer.write(element);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            if (abandoned) throw new CancellationException("The response stream was closed");
+            try {
+                if (!queue.offer(element, idleTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    abandoned = true;
+                    throw new CancellationException("The client read nothing for " + idleTimeoutMillis + " ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while handing off a stream element");
+            }
+        }
+
+        void run(Function<Consumer<T>, CompletableFuture<Void>> producer) throws IOException {
+            CompletableFuture<Void> done;
+            try {
+                done = producer.apply(this);
+                while (!done.isCompletedExceptionally()) {
+                    // Everything emitted before completion is in the queue by the time completion is observed
+                    boolean finished = done.isDone();
+                    T element = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (element != null) {
+                        writer.write(element);
+                    } else if (finished) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                abandon();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing the response stream");
+            } catch (UncheckedIOException e) {
+                abandon();
+                throw e.getCause();
+            } catch (IOException | RuntimeException e) {
+                // The client went away
+                abandon();
+                throw e;
+            }
+            done.join();
+        }
+
+        // Stops the producer at its next element, unblocking it if it waits for room in the queue
+        private void abandon() {
+            abandoned = true;
+            queue.clear();
+        }
+    }
+
+    /**
+     * Builds a 200 response for one page of a list query, mapping its items and setting the
+     * {@value #NEXT_CURSOR_HEADER} header when more items follow.
+     */
+    static <T, R> ResponseEntity<List<R>> pageResponse(DamlRepository.Page<T> page, Function<T, R> mapper) {
+        var response = ResponseEntity.ok();
+        page.nextCursor().ifPresent(cursor -> response.header(NEXT_CURSOR_HEADER, cursor));
+        return response.body(page.items().stream().map(mapper).toList());
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.utility;
+
+import com.digitalasset.quickstart.config.ExecutorConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor decorator that propagates the OpenTelemetry {@link Context} of the submitting thread
+ * and publishes queue depth, active task count and rejections of the underlying executor.
+ *
+ * <p>Meters are tagged with {@code name}:
+ * <ul>
+ *   <li>{@code executor.queued} - tasks submitted but not yet started</li>
+ *   <li>{@code executor.active} - tasks currently running</li>
+ *   <li>{@code executor.rejected} - tasks rejected by the underlying executor</li>
+ * </ul>
+ */
+public final class InstrumentedExecutor implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(InstrumentedExecutor.class);
+
+    private final Executor delegate;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter rejected;
+
+    public InstrumentedExecutor(Executor delegate, String name, MeterRegistry registry) {
+        this.delegate = Context.taskWrapping(delegate);
+        Gauge.builder("executor.queued", queued, AtomicInteger::get).tag("name", name).register(registry);
+        Gauge.builder("executor.active", active, AtomicInteger::get).tag("name", name).register(registry);
+        this.rejected = Counter.builder("executor.rejected").tag("name", name).register(registry);
+    }
+
+    /**
+     * Builds the executor described by {@code config}, wrapped in an {@link InstrumentedExecutor} whose meters are
+     * tagged with {@code name}. Threads of a bounded pool are named {@code threadPrefix-<n>}.
+     */
+    public static InstrumentedExecutor create(ExecutorConfig config, String name, String threadPrefix,
+                                              MeterRegistry registry) {
+        ExecutorService executor = switch (config.getType()) {
+            case VIRTUAL -> {
+                logger.info("{} executor: type=VIRTUAL", name);
+                yield Executors.newVirtualThreadPerTaskExecutor();
+            }
+            case BOUNDED -> {
+                logger.info("{} executor: type=BOUNDED poolSize={} queueCapacity={}",
+                        name, config.getPoolSize(), config.getQueueCapacity());
+                yield bounded(config, threadPrefix);
+            }
+        };
+        return new InstrumentedExecutor(executor, name, registry);
+    }
+
+    private static ExecutorService bounded(ExecutorConfig config, String threadPrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, threadPrefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return new ThreadPoolExecutor(
+                config.getPoolSize(), config.getPoolSize(),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tracks a monotonically increasing ledger offset and completes futures waiting for it to reach a given value.
+ */
+public final class OffsetWaiters {
+    private static final int MAX_PENDING_OFFSETS = 1024;
+
+    private final TreeMap<Long, List<CompletableFuture<Void>>> waiters = new TreeMap<>();
+    private long current = -1L;
+
+    /**
+     * Returns a future that completes once {@link #advance(long)} has been called with an offset of at least {@code offset}.
+     */
+    public synchronized CompletableFuture<Void> await(long offset) {
+        if (offset <= current) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (waiters.size() > MAX_PENDING_OFFSETS) {
+            pruneDone();
+        }
+        var future = new CompletableFuture<Void>();
+        waiters.computeIfAbsent(offset, k -> new ArrayList<>()).add(future);
+        return future;
+    }
+
+    public void advance(long offset) {
+        List<CompletableFuture<Void>> ready = new ArrayList<>();
+        synchronized (this) {
+            if (offset <= current) return;
+            current = offset;
+            var head = waiters.headMap(offset, true);
+            head.values().forEach(ready::addAll);
+            head.clear();
+        }
+        // complete outside the lock, dependent stages may run inline
+        ready.forEach(f -> f.complete(null));
+    }
+
+    public synchronized long current() {
+        return current;
+    }
+
+    public synchronized boolean hasWaiters() {
+        pruneDone();
+        return !waiters.isEmpty();
+    }
+
+    // drop futures that were completed elsewhere, e.g. by a timeout
+    private void pruneDone() {
+        waiters.values().forEach(list -> list.removeIf(CompletableFuture::isDone));
+        waiters.values().removeIf(List::isEmpty);
+    }
+}
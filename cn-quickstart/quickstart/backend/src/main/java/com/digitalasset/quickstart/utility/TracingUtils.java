@@ -10,10 +10,14 @@ import io.opentelemetry.api.trace.StatusCode;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Supplier;
 
 import jakarta.validation.constraints.NotNull;
 import org.slf4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * The {@code TracingUtils} is a utility class designed to centralize common logging
@@ -259,6 +263,17 @@ public final class TracingUtils {
         ).thenCompose(f -> f);
     }
 
+    /**
+     * Like {@link #traceWithStartEventAsync(TracingContext, Supplier)} but starts {@code body} on the given executor.
+     * A rejected submission is reported as a future failed with 503 instead of being thrown to the caller.
+     */
+    public static <T> CompletableFuture<T> traceWithStartEventAsync(
+            TracingUtils.TracingContext ctx,
+            Supplier<CompletableFuture<T>> body,
+            Executor executor) {
+        return supplyAsync(() -> _trace(ctx, true, body), executor).thenCompose(f -> f);
+    }
+
     public static <T> CompletableFuture<T> trace(
             TracingUtils.TracingContext ctx,
             Supplier<CompletableFuture<T>> body) {
@@ -281,6 +296,35 @@ public final class TracingUtils {
         ).thenCompose(f -> f);
     }
 
+    /**
+     * Like {@link #runAndTraceAsync(TracingContext, Supplier)} but runs the (typically blocking) body on the
+     * given executor. The executor is expected to propagate the OpenTelemetry context, see {@link InstrumentedExecutor}.
+     * A rejected submission is reported as a future failed with 503 instead of being thrown to the caller.
+     */
+    public static <T> CompletableFuture<T> runAndTraceAsync(
+            TracingUtils.TracingContext ctx,
+            Supplier<T> body,
+            Executor executor) {
+        return supplyAsync(
+                () -> _trace(ctx, false, () -> CompletableFuture.completedFuture(body.get())),
+                executor
+        ).thenCompose(f -> f);
+    }
+
+    /**
+     * {@link CompletableFuture#supplyAsync(Supplier, Executor)}, except that a rejected submission is reported as a
+     * future failed with 503: a saturated executor means the backend is overloaded, which the client should retry
+     * later rather than see as a 500.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many requests in progress", e));
+        }
+    }
+
     private static <T> CompletableFuture<T> _trace(
             TracingUtils.TracingContext ctx,
             boolean startEvent,
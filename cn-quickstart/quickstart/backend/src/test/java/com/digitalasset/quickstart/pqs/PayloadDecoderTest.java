@@ -0,0 +1,102 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import static com.digitalasset.quickstart.pqs.PayloadFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.digitalasset.transcode.Converter;
+import com.digitalasset.transcode.codec.json.JsonStringCodec;
+import com.digitalasset.transcode.codec.proto.ProtobufCodec;
+import com.digitalasset.transcode.java.Template;
+import com.digitalasset.transcode.java.Utils;
+import com.digitalasset.transcode.schema.Dictionary;
+import daml.Daml;
+import org.junit.jupiter.api.Test;
+import quickstart_invoicing.invoicing.disclosure.BookkeeperView;
+import quickstart_invoicing.invoicing.disclosure.LogisticsView;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+import quickstart_invoicing.invoicing.invoice.InvoicePaymentRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Compares {@link PayloadDecoder} with the {@link JsonStringCodec} decoding it stands in for, and checks that payloads
+ * not matching their schema are rejected, so that {@link Pqs} falls back to the JSON codec for them.
+ */
+class PayloadDecoderTest {
+
+    private static final Dictionary<Converter<String, Object>> JSON2DTO =
+            Utils.getConverters(new JsonStringCodec(true, true, false), Daml.ENTITIES);
+    private static final PayloadDecoder DECODER =
+            new PayloadDecoder(Utils.getConverters(new ProtobufCodec(), Daml.ENTITIES), PayloadSchemas.INVOICING);
+
+    @Test
+    void decodesInvoicesLikeTheJsonCodec() throws IOException {
+        var random = new Random(20261016L);
+        for (int lineItems : List.of(0, 1, 5, 50)) {
+            assertDecodesLikeTheJsonCodec(Invoice.class, invoice(random, lineItems));
+        }
+    }
+
+    @Test
+    void decodesPaymentRequestsWithAndWithoutInvoiceId() throws IOException {
+        assertDecodesLikeTheJsonCodec(InvoicePaymentRequest.class, paymentRequest("00a1b2c3d4"));
+        assertDecodesLikeTheJsonCodec(InvoicePaymentRequest.class, paymentRequest(null));
+
+        var present = (InvoicePaymentRequest) decode(InvoicePaymentRequest.class, paymentRequest("00a1b2c3d4"));
+        assertThat(present.getInvoiceId).hasValueSatisfying(cid -> assertThat(cid.getContractId).isEqualTo("00a1b2c3d4"));
+        // A missing optional field reads as empty, like a null one
+        var missing = (InvoicePaymentRequest) decode(InvoicePaymentRequest.class,
+                with(paymentRequest(null), "invoiceId", null));
+        assertThat(missing.getInvoiceId).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void decodesDisclosureViewsLikeTheJsonCodec() throws IOException {
+        assertDecodesLikeTheJsonCodec(LogisticsView.class, logisticsView());
+        assertDecodesLikeTheJsonCodec(BookkeeperView.class, bookkeeperView());
+    }
+
+    @Test
+    void acceptsInt64AsNumber() throws IOException {
+        var invoice = (Invoice) decode(Invoice.class, with(invoice(new Random(1), 1), "invoiceNum", 7));
+        assertThat(invoice.getInvoiceNum).isEqualTo(7L);
+    }
+
+    @Test
+    void rejectsPayloadsNotMatchingTheSchema() {
+        byte[] invoice = invoice(new Random(1), 1);
+
+        assertThatThrownBy(() -> decode(Invoice.class, with(invoice, "addedInALaterVersion", "x")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("addedInALaterVersion");
+        assertThatThrownBy(() -> decode(Invoice.class, with(invoice, "currency", null)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("currency");
+        assertThatThrownBy(() -> decode(Invoice.class, with(invoice, "lineItems", Map.of())))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode(Invoice.class, with(invoice, "invoiceDate", "yesterday")))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static void assertDecodesLikeTheJsonCodec(Class<? extends Template> clazz, byte[] payload) throws IOException {
+        var expected = JSON2DTO.template(Utils.getTemplateIdByClass(clazz)).convert(new String(payload, StandardCharsets.UTF_8));
+
+        assertThat(decode(clazz, payload))
+                .as("%s decoded from %s", clazz.getSimpleName(), new String(payload, StandardCharsets.UTF_8))
+                .usingRecursiveComparison()
+                .isEqualTo(expected);
+    }
+
+    private static Object decode(Class<? extends Template> clazz, byte[] payload) throws IOException {
+        return DECODER.decode(Utils.getTemplateIdByClass(clazz), payload);
+    }
+}
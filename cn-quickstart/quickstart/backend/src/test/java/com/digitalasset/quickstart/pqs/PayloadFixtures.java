@@ -0,0 +1,204 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.pqs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * PQS JSON payloads of the invoicing templates, shared by {@link PayloadDecoderTest} and the
+ * {@code PayloadDecodeBenchmark} in the jmh source set. Keys come in jsonb order, shortest first.
+ */
+final class PayloadFixtures {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Comparator<String> JSONB_ORDER =
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+    private PayloadFixtures() {
+    }
+
+    static byte[] invoice(Random random, int lineItems) {
+        List<Object> items = new ArrayList<>(lineItems);
+        for (int i = 0; i < lineItems; i++) {
+            items.add(object(
+                    "itemName", "item" + i,
+                    "sku", "sku-" + random.nextInt(10_000),
+                    "quantity", numeric(random, 1_000),
+                    "unitOfMeasure", "pcs",
+                    "unitPrice", numeric(random, 100_000),
+                    "discount", numeric(random, 100),
+                    "taxRate", "0.2000000000",
+                    "lineSubtotal", numeric(random, 1_000_000),
+                    "batchInfo", random.nextBoolean() ? "" : "batch-" + i,
+                    "deliveryDate", "2026-10-16"));
+        }
+        return json(object(
+                "seller", "seller::1220a1b2c3",
+                "buyer", "buyer::1220d4e5f6",
+                "provider", "provider::1220f7e8d9",
+                "invoiceNum", String.valueOf(1 + random.nextInt(100_000)),
+                "invoiceDate", "2026-10-16T09:30:00.123456Z",
+                "dueDate", "2026-11-15T09:30:00Z",
+                "currency", "CC",
+                "sellerInfo", partyInfo("Seller Ltd"),
+                "buyerInfo", partyInfo("Buyer \"\u00dcn\u00efcode\" GmbH"),
+                "shippingAddress", address(),
+                "lineItems", items,
+                "subtotal", numeric(random, 1_000_000),
+                "totalDiscount", numeric(random, 1_000),
+                "taxBreakdown", List.of(object(
+                        "taxName", "VAT 20%",
+                        "taxRate", "0.2000000000",
+                        "taxAmount", numeric(random, 100_000))),
+                "totalTax", numeric(random, 100_000),
+                "grandTotal", numeric(random, 1_000_000),
+                "amountPaid", "0.0000000000",
+                "balanceDue", numeric(random, 1_000_000),
+                "instrumentId", object("admin", "dso::1220c0ffee", "id", "Amulet"),
+                "paymentTerms", "Net 30",
+                "poNumber", "PO-1",
+                "salesOrderNumber", "",
+                "notes", "Deliver to the back door",
+                "deliveryTerms", "DAP",
+                "description", "Invoice with " + lineItems + " line items",
+                "status", "Issued",
+                "meta", metadata()));
+    }
+
+    // invoiceId null writes an empty optional, as PQS does for requests created under 0.0.1 of the package
+    static byte[] paymentRequest(String invoiceId) {
+        return json(object(
+                "requestId", "0b6f4c1e-5d43-4c3a-9d1e-2f0c8a7b6e51",
+                "seller", "seller::1220a1b2c3",
+                "buyer", "buyer::1220d4e5f6",
+                "provider", "provider::1220f7e8d9",
+                "invoiceNum", "42",
+                "amount", "1250.5000000000",
+                "instrumentId", object("admin", "dso::1220c0ffee", "id", "Amulet"),
+                "description", "Payment of invoice 42",
+                "prepareUntil", "2026-10-16T10:00:00Z",
+                "settleBefore", "2026-10-16T11:00:00Z",
+                "requestedAt", "2026-10-16T09:45:00Z",
+                "invoiceId", invoiceId));
+    }
+
+    static byte[] logisticsView() {
+        return json(object(
+                "grantor", "seller::1220a1b2c3",
+                "carrier", "carrier::1220b0b0b0",
+                "provider", "provider::1220f7e8d9",
+                "invoiceRef", "42",
+                "orderRef", "PO-1",
+                "shipFromAddress", address(),
+                "shipToAddress", address(),
+                "sellerContact", contact(),
+                "buyerContact", contact(),
+                "items", List.of(object(
+                        "itemName", "item0",
+                        "sku", "sku-1",
+                        "quantity", "3.0000000000",
+                        "unitOfMeasure", "pcs",
+                        "batchInfo", "",
+                        "deliveryDate", "2026-10-16")),
+                "deliveryTerms", "DAP",
+                "notes", "",
+                "meta", metadata()));
+    }
+
+    static byte[] bookkeeperView() {
+        return json(object(
+                "grantor", "seller::1220a1b2c3",
+                "bookkeeper", "bookkeeper::1220cafe",
+                "provider", "provider::1220f7e8d9",
+                "invoiceNum", "42",
+                "invoiceDate", "2026-10-16T09:30:00Z",
+                "sellerName", "Seller Ltd",
+                "buyerName", "Buyer GmbH",
+                "currency", "CC",
+                "status", "PartiallyPaid",
+                "subtotal", "100.0000000000",
+                "totalDiscount", "0.0000000000",
+                "taxBreakdown", List.of(),
+                "grandTotal", "100.0000000000",
+                "amountPaid", "40.0000000000",
+                "balanceDue", "60.0000000000",
+                "itemCategories", List.of("hardware", "services"),
+                "meta", metadata()));
+    }
+
+    /**
+     * {@code payload} with {@code field} set to {@code value}, or removed if {@code value} is null.
+     */
+    @SuppressWarnings("unchecked")
+    static byte[] with(byte[] payload, String field, Object value) {
+        try {
+            Map<String, Object> tree = MAPPER.readValue(payload, Map.class);
+            if (value == null) {
+                tree.remove(field);
+            } else {
+                tree.put(field, value);
+            }
+            return MAPPER.writeValueAsBytes(tree);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, Object> partyInfo(String name) {
+        return object(
+                "partyName", name,
+                "regNumber", "HRB 12345",
+                "taxNumber", "DE123456789",
+                "address", address(),
+                "contact", contact());
+    }
+
+    private static Map<String, Object> address() {
+        return object(
+                "street", "1 Main Street",
+                "city", "Zurich",
+                "state", "",
+                "postalCode", "8000",
+                "country", "CH");
+    }
+
+    private static Map<String, Object> contact() {
+        return object("name", "Alex", "email", "alex@example.com", "phone", "+41 44 000 00 00");
+    }
+
+    private static Map<String, Object> metadata() {
+        return object("values", object("splice.lfdecentralizedtrust.org/reason", "invoice"));
+    }
+
+    // Daml Decimal, with the 10 decimal places PQS writes
+    private static String numeric(Random random, int bound) {
+        return BigDecimal.valueOf(random.nextInt(bound), 2).setScale(10).toPlainString();
+    }
+
+    private static Map<String, Object> object(Object... keysAndValues) {
+        Map<String, Object> object = new TreeMap<>(JSONB_ORDER);
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            object.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return object;
+    }
+
+    private static byte[] json(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
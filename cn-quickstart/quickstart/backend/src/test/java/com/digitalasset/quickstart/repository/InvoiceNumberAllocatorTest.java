@@ -0,0 +1,148 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.digitalasset.quickstart.config.PqsConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks the block reservation SQL of {@link InvoiceNumberAllocator} against PQS's {@code active} function: counters
+ * start after the provider's highest active invoice, allocators sharing the database never hand out a number twice, and
+ * their first use succeeds even when they create the schema at the same time.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class InvoiceNumberAllocatorTest {
+
+    private static final int BLOCK_SIZE = 3;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = PqsTestDatabase.container();
+
+    PqsTestDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        db = new PqsTestDatabase(postgres);
+        db.template(Invoice.class);
+        db.jdbcTemplate().execute("DROP SCHEMA IF EXISTS quickstart_backend CASCADE");
+    }
+
+    @Test
+    void startsAfterTheHighestActiveInvoiceOfTheProvider() {
+        invoice("inv1", 7, "provider::1", 1);
+        invoice("inv2", 41, "provider::1", 1);
+        invoice("inv3", 90, "provider::2", 1);
+        invoice("inv4", 99, "provider::1", 1);
+        db.archive(Invoice.class, "inv4", 2);
+
+        var allocator = allocator();
+
+        assertThat(allocator.next("provider::1").join()).isEqualTo(42L);
+        assertThat(allocator.next("provider::1").join()).isEqualTo(43L);
+        assertThat(allocator.next("provider::2").join()).isEqualTo(91L);
+        assertThat(allocator.next("provider::3").join()).isEqualTo(1L);
+    }
+
+    @Test
+    void reservesTheNextBlockOnceOneIsUsedUp() {
+        var allocator = allocator();
+
+        List<Long> numbers = new ArrayList<>();
+        for (int i = 0; i < 2 * BLOCK_SIZE + 1; i++) {
+            numbers.add(allocator.next("provider::1").join());
+        }
+
+        assertThat(numbers).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(db.jdbcTemplate().queryForObject(
+                "SELECT next_num FROM quickstart_backend.invoice_number WHERE provider = ?", Long.class, "provider::1"))
+                .isEqualTo(3L * BLOCK_SIZE + 1);
+    }
+
+    @Test
+    void allocatorsSharingTheDatabaseHandOutDistinctNumbers() {
+        invoice("inv1", 10, "provider::1", 1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            var first = allocator(pool);
+            var second = allocator(pool);
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(first.next("provider::1"));
+                futures.add(second.next("provider::1"));
+            }
+
+            var numbers = futures.stream().map(CompletableFuture::join).toList();
+
+            assertThat(numbers).doesNotHaveDuplicates().allMatch(n -> n > 10);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void allocatorsCreatingTheSchemaConcurrentlyAllSucceed() {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            // Each round starts without the schema, so every allocator's first reservation creates it
+            for (int round = 0; round < 20; round++) {
+                db.jdbcTemplate().execute("DROP SCHEMA IF EXISTS quickstart_backend CASCADE");
+                var start = new CountDownLatch(1);
+                List<CompletableFuture<Long>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    var allocator = allocator(command -> pool.execute(() -> {
+                        awaitUninterruptibly(start);
+                        command.run();
+                    }));
+                    futures.add(allocator.next("provider::1"));
+                }
+                start.countDown();
+
+                var numbers = futures.stream().map(CompletableFuture::join).toList();
+
+                assertThat(numbers).as("round %d", round).doesNotHaveDuplicates();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private InvoiceNumberAllocator allocator() {
+        return allocator(Runnable::run);
+    }
+
+    private InvoiceNumberAllocator allocator(Executor executor) {
+        var pqsConfig = new PqsConfig();
+        pqsConfig.getInvoiceNumbers().setBlockSize(BLOCK_SIZE);
+        return new InvoiceNumberAllocator(db.jdbcTemplate(), executor, pqsConfig);
+    }
+
+    private void invoice(String contractId, long invoiceNum, String provider, long offset) {
+        db.create(Invoice.class, contractId, """
+                {"invoiceNum": "%d", "seller": "seller::1", "buyer": "buyer::1", "provider": "%s"}"""
+                .formatted(invoiceNum, provider), offset);
+    }
+}
@@ -0,0 +1,121 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.repository;
+
+import static com.digitalasset.quickstart.repository.PqsTestDatabase.name;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.digitalasset.transcode.java.Template;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import quickstart_invoicing.invoicing.disclosure.BookkeeperView;
+import quickstart_invoicing.invoicing.disclosure.LogisticsView;
+import quickstart_invoicing.invoicing.invoice.Invoice;
+import quickstart_invoicing.invoicing.invoice.InvoicePaymentRequest;
+import splice_api_token_allocation_v1.splice.api.token.allocationv1.Allocation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Checks that the keyset queries of {@link DamlRepository} are answered from the indexes {@link PqsIndexProvisioner}
+ * creates: the first page of a party that sees every contract is read in index order, without sorting the table.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PqsIndexPlanTest {
+
+    private static final int CONTRACTS = 20_000;
+    private static final String PROVIDER = "provider::1220";
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = PqsTestDatabase.container();
+
+    static PqsTestDatabase db;
+
+    @BeforeAll
+    static void setUp() {
+        db = new PqsTestDatabase(postgres);
+        insert(Invoice.class, """
+                jsonb_build_object('invoiceNum', i, 'seller', 'seller::' || i % 50, 'buyer', 'buyer::' || i % 70,
+                                   'provider', '%s')""".formatted(PROVIDER));
+        insert(LogisticsView.class, """
+                jsonb_build_object('invoiceRef', 'INV-' || i, 'grantor', 'seller::' || i % 50,
+                                   'carrier', 'carrier::' || i % 7, 'provider', '%s')""".formatted(PROVIDER));
+        insert(BookkeeperView.class, """
+                jsonb_build_object('invoiceNum', i, 'grantor', 'seller::' || i % 50,
+                                   'bookkeeper', 'bookkeeper::' || i % 3, 'provider', '%s')""".formatted(PROVIDER));
+        db.template(InvoicePaymentRequest.class);
+        db.template(Allocation.class);
+        db.createIndexes();
+    }
+
+    private static void insert(Class<? extends Template> template, String payload) {
+        db.template(template);
+        db.jdbcTemplate().update("""
+                        INSERT INTO __contracts (template_fqn, contract_id, payload, created_at_offset)
+                        SELECT ?, md5(? || i), %s, i
+                        FROM generate_series(1, ?) AS i
+                        """.formatted(payload),
+                name(template), name(template), CONTRACTS);
+    }
+
+    @Test
+    void logisticsViewPageIsReadFromTheInvoiceRefIndex() {
+        var plan = db.explain(DamlRepository.pageSql(DamlRepository.LOGISTICS_VIEW_PARTIES, DamlRepository.SortKey.INVOICE_REF),
+                name(LogisticsView.class), PROVIDER, PROVIDER, PROVIDER, "", "", 11);
+        assertThat(plan).contains("qs_logistics_ref_cid_idx").doesNotContain("Sort");
+    }
+
+    @Test
+    void bookkeeperViewPageIsReadFromTheInvoiceNumIndex() {
+        var plan = db.explain(DamlRepository.pageSql(DamlRepository.BOOKKEEPER_VIEW_PARTIES, DamlRepository.SortKey.INVOICE_NUM),
+                name(BookkeeperView.class), PROVIDER, PROVIDER, PROVIDER, Long.MIN_VALUE, "", 11);
+        assertThat(plan).contains("qs_bookkeeper_num_cid_idx").doesNotContain("Sort");
+    }
+
+    @Test
+    void invoicePageIsReadFromTheInvoiceNumIndex() {
+        var plan = db.explain(DamlRepository.ACTIVE_INVOICES_PAGE_SQL,
+                name(Invoice.class), PROVIDER, PROVIDER, PROVIDER, Long.MIN_VALUE, "", 11,
+                name(InvoicePaymentRequest.class), name(Allocation.class));
+        // Only the joined rows of the page are sorted
+        assertThat(plan).contains("qs_invoice_num_cid_idx");
+    }
+
+    @Test
+    void invoiceRefKeysetOrdersLikeStringCompareTo() {
+        // Refs whose order depends on the collation: case, punctuation and a ':' that the cursor must survive
+        var refs = List.of("inv-b", "INV-A", "Inv:10", "inv_2", "inv 3", "INV-a", "ünv-1", "inv-b");
+        for (int i = 0; i < refs.size(); i++) {
+            db.create(LogisticsView.class, "00cid" + i, """
+                    {"invoiceRef": "%s", "grantor": "g", "carrier": "c", "provider": "p"}""".formatted(refs.get(i)), 1);
+        }
+        var sql = DamlRepository.pageSql(DamlRepository.LOGISTICS_VIEW_PARTIES, DamlRepository.SortKey.INVOICE_REF);
+        List<String> paged = new ArrayList<>();
+        String afterRef = "";
+        String afterCid = "";
+        while (true) {
+            var page = db.jdbcTemplate().queryForList(sql, name(LogisticsView.class), "p", "p", "p", afterRef, afterCid, 3);
+            if (page.isEmpty()) break;
+            for (var row : page) {
+                paged.add((String) row.get("contract_id"));
+            }
+            var last = page.get(page.size() - 1);
+            afterCid = (String) last.get("contract_id");
+            afterRef = db.jdbcTemplate().queryForObject(
+                    "SELECT payload->>'invoiceRef' FROM active(?) WHERE contract_id = ?", String.class,
+                    name(LogisticsView.class), afterCid);
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < refs.size(); i++) expected.add("00cid" + i);
+        expected.sort(Comparator.<String, String>comparing(cid -> refs.get(Integer.parseInt(cid.substring(5))))
+                .thenComparing(Comparator.naturalOrder()));
+        assertThat(paged).containsExactlyElementsOf(expected);
+    }
+}
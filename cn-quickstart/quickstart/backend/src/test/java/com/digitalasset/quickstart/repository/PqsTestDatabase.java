@@ -0,0 +1,150 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.repository;
+
+import com.digitalasset.transcode.java.Template;
+import com.digitalasset.transcode.java.Utils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A Postgres database with the parts of the PQS schema that the backend's SQL relies on: contracts partitioned by
+ * template, the {@code active}, {@code creates} and {@code archives} functions and {@code create_index_for_contract}.
+ *
+ * <p>Only the shape matters here. The functions are plain SQL functions over one partitioned table, which the planner
+ * inlines, so plans show the same index and partition choices as queries against PQS.
+ */
+final class PqsTestDatabase {
+
+    // The Postgres version of the local PQS
+    static PostgreSQLContainer<?> container() {
+        return new PostgreSQLContainer<>("postgres:14");
+    }
+
+    private static final List<String> SCHEMA = List.of(
+            "DROP SCHEMA IF EXISTS public CASCADE",
+            "CREATE SCHEMA public",
+            """
+            CREATE TABLE __contract_tpe (
+                template_fqn text PRIMARY KEY,
+                table_name   text NOT NULL
+            )""",
+            """
+            CREATE TABLE __contracts (
+                template_fqn       text NOT NULL,
+                contract_id        text NOT NULL,
+                payload            jsonb NOT NULL,
+                created_at_offset  bigint NOT NULL,
+                archived_at_offset bigint
+            ) PARTITION BY LIST (template_fqn)""",
+            """
+            CREATE FUNCTION active(text) RETURNS TABLE (contract_id text, payload jsonb) LANGUAGE sql STABLE AS $$
+                SELECT c.contract_id, c.payload FROM __contracts c
+                WHERE c.template_fqn = $1 AND c.archived_at_offset IS NULL
+            $$""",
+            """
+            CREATE FUNCTION creates(text, bigint, bigint) RETURNS TABLE (contract_id text, payload jsonb)
+            LANGUAGE sql STABLE AS $$
+                SELECT c.contract_id, c.payload FROM __contracts c
+                WHERE c.template_fqn = $1 AND c.created_at_offset > $2 AND c.created_at_offset <= $3
+            $$""",
+            """
+            CREATE FUNCTION archives(text, bigint, bigint) RETURNS TABLE (contract_id text, payload jsonb)
+            LANGUAGE sql STABLE AS $$
+                SELECT c.contract_id, c.payload FROM __contracts c
+                WHERE c.template_fqn = $1 AND c.archived_at_offset > $2 AND c.archived_at_offset <= $3
+            $$""",
+            """
+            CREATE FUNCTION create_index_for_contract(index_name text, template_name text, expression text, method text)
+            RETURNS void LANGUAGE plpgsql AS $$
+            DECLARE
+                contract_table text;
+            BEGIN
+                SELECT table_name INTO STRICT contract_table FROM __contract_tpe WHERE template_fqn = template_name;
+                EXECUTE format('CREATE INDEX %I ON %I USING %s %s', index_name, contract_table, method, expression);
+            END
+            $$"""
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Connects to {@code postgres} and replaces everything in it with an empty PQS schema.
+     */
+    PqsTestDatabase(PostgreSQLContainer<?> postgres) {
+        this.jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        SCHEMA.forEach(jdbcTemplate::execute);
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    static String name(Class<? extends Template> template) {
+        return Utils.getTemplateIdByClass(template).qualifiedName();
+    }
+
+    /**
+     * Creates the contract table of {@code template}, if it does not exist yet.
+     */
+    void template(Class<? extends Template> template) {
+        String name = name(template);
+        Integer known = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM __contract_tpe WHERE template_fqn = ?", Integer.class, name);
+        if (known != null && known > 0) return;
+        Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM __contract_tpe", Integer.class);
+        String table = "__contracts_" + (count == null ? 0 : count + 1);
+        jdbcTemplate.update("INSERT INTO __contract_tpe (template_fqn, table_name) VALUES (?, ?)", name, table);
+        jdbcTemplate.execute("CREATE TABLE %s PARTITION OF __contracts FOR VALUES IN ('%s')".formatted(table, name));
+        jdbcTemplate.execute("ALTER TABLE %s ADD PRIMARY KEY (contract_id)".formatted(table));
+    }
+
+    /**
+     * Inserts a contract of {@code template} created at {@code offset}.
+     */
+    void create(Class<? extends Template> template, String contractId, String payload, long offset) {
+        template(template);
+        jdbcTemplate.update("""
+                        INSERT INTO __contracts (template_fqn, contract_id, payload, created_at_offset)
+                        VALUES (?, ?, ?::jsonb, ?)
+                        """,
+                name(template), contractId, payload, offset);
+    }
+
+    /**
+     * Archives a contract of {@code template} at {@code offset}.
+     */
+    void archive(Class<? extends Template> template, String contractId, long offset) {
+        jdbcTemplate.update("""
+                        UPDATE __contracts SET archived_at_offset = ?
+                        WHERE template_fqn = ? AND contract_id = ?
+                        """,
+                offset, name(template), contractId);
+    }
+
+    /**
+     * Creates the indexes {@link PqsIndexProvisioner} provisions, the way it does, and refreshes planner statistics.
+     */
+    void createIndexes() {
+        for (var index : PqsIndexProvisioner.INDEXES) {
+            template(index.template());
+            jdbcTemplate.query("SELECT create_index_for_contract(?, ?, ?, 'btree')", rs -> {
+            }, index.name(), name(index.template()), index.expression());
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    /**
+     * The plan of {@code sql} for the given parameters, one line per node.
+     */
+    String explain(String sql, Object... params) {
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, params).stream()
+                .collect(Collectors.joining("\n"));
+    }
+}
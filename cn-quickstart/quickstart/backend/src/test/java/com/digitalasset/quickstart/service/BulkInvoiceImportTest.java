@@ -0,0 +1,79 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.digitalasset.quickstart.config.LedgerConfig;
+import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.openapitools.model.CreateInvoiceRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Checks how {@link BulkInvoiceImport} reports the outcome of each row's submission, in particular that a re-run row
+ * rejected because its first submission completed or is still in flight counts as a duplicate.
+ */
+class BulkInvoiceImportTest {
+
+    private static final String ROW = """
+            {"seller":"seller::1","buyer":"buyer::1","sellerInfo":{"partyName":"Seller"},\
+            "buyerInfo":{"partyName":"Buyer"},"shippingAddress":{},"currency":"CC",\
+            "dueDate":"2026-11-01T00:00:00Z","description":"Import",\
+            "lineItems":[{"itemName":"Widget","quantity":1,"unitPrice":10}]}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final BulkInvoiceImport bulkImport =
+            new BulkInvoiceImport(objectMapper, new LedgerConfig(), new SimpleMeterRegistry());
+
+    @Test
+    void classifiesSubmissionOutcomes() throws IOException {
+        var outcomes = Map.<String, CompletableFuture<LedgerApi.Committed<String>>>of(
+                "import-1", CompletableFuture.completedFuture(new LedgerApi.Committed<>("update", 42L)),
+                "import-2", CompletableFuture.failedFuture(Status.ALREADY_EXISTS
+                        .withDescription("DUPLICATE_COMMAND(10,0): A command with the given command id has already been successfully processed")
+                        .asRuntimeException()),
+                "import-3", CompletableFuture.failedFuture(Status.ABORTED
+                        .withDescription("SUBMISSION_ALREADY_IN_FLIGHT(2,0): The submission is already in flight")
+                        .asRuntimeException()),
+                "import-4", CompletableFuture.failedFuture(Status.ABORTED
+                        .withDescription("LOCAL_VERDICT_LOCKED_CONTRACTS(2,0): Rejected transaction is referring to locked contracts")
+                        .asRuntimeException()),
+                "import-5", CompletableFuture.failedFuture(Status.UNAVAILABLE.asRuntimeException()));
+
+        var results = run(String.join("\n", ROW, ROW, ROW, ROW, ROW, "{}"), (request, commandId) -> outcomes.get(commandId));
+
+        assertThat(results).extracting(r -> r.get("status").asText())
+                .containsExactly("created", "duplicate", "duplicate", "failed", "failed", "invalid");
+        assertThat(results.get(0).get("consistencyToken").asLong()).isEqualTo(42L);
+    }
+
+    private List<JsonNode> run(String input,
+                               BiFunction<CreateInvoiceRequest, String, CompletableFuture<LedgerApi.Committed<String>>> submit)
+            throws IOException {
+        var out = new ByteArrayOutputStream();
+        bulkImport.run("import", new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out, submit);
+        var results = new ArrayList<JsonNode>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readTree(line));
+        }
+        // Results are written as they complete; order them by line to compare
+        results.sort(Comparator.comparingLong(r -> r.get("line").asLong()));
+        return results;
+    }
+}
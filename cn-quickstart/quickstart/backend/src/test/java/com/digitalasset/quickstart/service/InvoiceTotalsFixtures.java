@@ -0,0 +1,95 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import static com.digitalasset.quickstart.service.ServiceUtils.orEmpty;
+
+import org.openapitools.model.LineItemRequest;
+import quickstart_invoicing.invoicing.types.LineItem;
+import quickstart_invoicing.invoicing.types.TaxEntry;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Random line items and the stream computation {@link InvoiceTotals} replaced, shared by {@link InvoiceTotalsTest}
+ * and the {@code InvoiceTotalsBenchmark} in the jmh source set.
+ */
+final class InvoiceTotalsFixtures {
+
+    // Distinct values, none equal to another but for trailing zeros
+    private static final List<String> RATES = List.of("0", "-0.1", "0.05", "0.07", "0.2", "0.25", "0.125", "1");
+
+    private InvoiceTotalsFixtures() {
+    }
+
+    static List<LineItemRequest> randomLineItems(Random random, int count) {
+        List<LineItemRequest> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            var item = new LineItemRequest();
+            item.setItemName(random.nextInt(4) == 0 ? null : "item" + i);
+            item.setSku(random.nextBoolean() ? null : "sku" + i);
+            item.setUnitOfMeasure(random.nextBoolean() ? null : "pcs");
+            // Scales keep every product within 10 decimal places, where both computations are exact
+            item.setQuantity(random.nextInt(10) == 0 ? null : decimal(random, 1_000, 3));
+            item.setUnitPrice(random.nextInt(10) == 0 ? null : decimal(random, 100_000, 3));
+            item.setDiscount(random.nextInt(3) == 0 ? null : decimal(random, 1_000, 2));
+            item.setTaxRate(random.nextInt(6) == 0 ? null : new BigDecimal(RATES.get(random.nextInt(RATES.size()))));
+            item.setBatchInfo(random.nextBoolean() ? null : "batch");
+            item.setDeliveryDate(random.nextBoolean() ? null : "2026-10-16");
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static BigDecimal decimal(Random random, int bound, int maxScale) {
+        return BigDecimal.valueOf(random.nextInt(bound), random.nextInt(maxScale + 1));
+    }
+
+    // The computation InvoiceApiImpl.createInvoice did before InvoiceTotals
+    static InvoiceTotals streamTotals(List<LineItemRequest> requested) {
+        var lineItems = requested.stream().map(li -> {
+            var qty = li.getQuantity() != null ? li.getQuantity() : BigDecimal.ZERO;
+            var price = li.getUnitPrice() != null ? li.getUnitPrice() : BigDecimal.ZERO;
+            var disc = li.getDiscount() != null ? li.getDiscount() : BigDecimal.ZERO;
+            var taxRate = li.getTaxRate() != null ? li.getTaxRate() : BigDecimal.ZERO;
+            var lineSubtotal = qty.multiply(price).subtract(disc);
+            return new LineItem(
+                    orEmpty(li.getItemName()),
+                    orEmpty(li.getSku()),
+                    qty, orEmpty(li.getUnitOfMeasure()),
+                    price, disc, taxRate, lineSubtotal,
+                    orEmpty(li.getBatchInfo()),
+                    orEmpty(li.getDeliveryDate())
+            );
+        }).toList();
+
+        var subtotal = lineItems.stream()
+                .map(li -> li.getLineSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        var totalDiscount = lineItems.stream()
+                .map(li -> li.getDiscount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        var taxBreakdown = lineItems.stream()
+                .filter(li -> li.getTaxRate.compareTo(BigDecimal.ZERO) > 0)
+                .collect(Collectors.groupingBy(li -> li.getTaxRate))
+                .entrySet().stream()
+                .map(e -> {
+                    var taxableAmount = e.getValue().stream()
+                            .map(li -> li.getLineSubtotal)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+                    var taxAmount = taxableAmount.multiply(e.getKey());
+                    return new TaxEntry("Tax " + e.getKey().multiply(new BigDecimal("100")) + "%", e.getKey(), taxAmount);
+                }).toList();
+
+        var totalTax = taxBreakdown.stream()
+                .map(te -> te.getTaxAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new InvoiceTotals(lineItems, subtotal, totalDiscount, taxBreakdown, totalTax, subtotal.add(totalTax));
+    }
+}
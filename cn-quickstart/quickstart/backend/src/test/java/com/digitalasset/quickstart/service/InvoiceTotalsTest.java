@@ -0,0 +1,94 @@
+// Copyright (c) 2026, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import static com.digitalasset.quickstart.service.InvoiceTotalsFixtures.randomLineItems;
+import static com.digitalasset.quickstart.service.InvoiceTotalsFixtures.streamTotals;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.openapitools.model.LineItemRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares {@link InvoiceTotals#of} with the stream computation it replaced, on random line items, and checks the
+ * cases where it deliberately differs: products rounded to Daml's 10 decimal places, rates equal but for trailing
+ * zeros sharing an entry, and the breakdown ordered by rate.
+ */
+class InvoiceTotalsTest {
+
+    @Test
+    void matchesTheStreamComputationOnRandomLineItems() {
+        var random = new Random(20261016L);
+        for (int run = 0; run < 2_000; run++) {
+            var requested = randomLineItems(random, random.nextInt(8));
+
+            var actual = InvoiceTotals.of(requested);
+            var expected = streamTotals(requested);
+
+            assertThat(actual)
+                    .as("line items %s", requested)
+                    .usingRecursiveComparison()
+                    .ignoringFields("taxBreakdown")
+                    .isEqualTo(expected);
+            // The stream computation grouped by rate in a HashMap, so its breakdown came in no particular order
+            assertThat(actual.taxBreakdown())
+                    .as("tax breakdown of %s", requested)
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(expected.taxBreakdown());
+        }
+    }
+
+    @Test
+    void roundsProductsLikeDamlDecimal() {
+        var totals = InvoiceTotals.of(List.of(
+                lineItem("0.123456", "0.000001", "0", "0.3333333"),
+                lineItem("1", "0.00000000005", "0", null)));
+
+        // 0.000000123456 rounds to 0.0000001235, 0.00000000005 to an even 0.0000000000
+        assertThat(totals.lineItems()).extracting(li -> li.getLineSubtotal)
+                .containsExactly(new BigDecimal("0.0000001235"), new BigDecimal("0E-10"));
+        assertThat(totals.totalTax()).isEqualTo(new BigDecimal("0.0000000412"));
+    }
+
+    @Test
+    void ratesEqualButForTrailingZerosShareAnEntry() {
+        var totals = InvoiceTotals.of(List.of(
+                lineItem("1", "10", "0", "0.20"),
+                lineItem("1", "30", "0", "0.1"),
+                lineItem("1", "20", "0", "0.10"),
+                lineItem("1", "5", "0", "1.00")));
+
+        assertThat(totals.taxBreakdown()).extracting(te -> te.getTaxName)
+                .containsExactly("Tax 10.0%", "Tax 20.0%", "Tax 100%");
+        assertThat(totals.taxBreakdown()).extracting(te -> te.getTaxRate)
+                .containsExactly(new BigDecimal("0.1"), new BigDecimal("0.2"), new BigDecimal("1"));
+        assertThat(totals.taxBreakdown()).extracting(te -> te.getTaxAmount.stripTrailingZeros())
+                .containsExactly(new BigDecimal("5"), new BigDecimal("2"), new BigDecimal("5"));
+        assertThat(totals.totalTax()).isEqualByComparingTo("12");
+    }
+
+    @Test
+    void breakdownDoesNotDependOnLineOrder() {
+        var totals = InvoiceTotals.of(List.of(lineItem("1", "20", "0", "0.10"), lineItem("1", "30", "0", "0.1")));
+        var reversed = InvoiceTotals.of(List.of(lineItem("1", "30", "0", "0.1"), lineItem("1", "20", "0", "0.10")));
+
+        assertThat(reversed.taxBreakdown())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(totals.taxBreakdown());
+    }
+
+    private static LineItemRequest lineItem(String quantity, String unitPrice, String discount, String taxRate) {
+        var item = new LineItemRequest();
+        item.setItemName("item");
+        item.setQuantity(new BigDecimal(quantity));
+        item.setUnitPrice(new BigDecimal(unitPrice));
+        item.setDiscount(new BigDecimal(discount));
+        item.setTaxRate(taxRate == null ? null : new BigDecimal(taxRate));
+        return item;
+    }
+}
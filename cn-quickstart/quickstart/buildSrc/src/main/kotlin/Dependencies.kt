@@ -19,6 +19,14 @@ object Deps {
         val netty get() = "io.grpc:grpc-netty:$version"
     }
 
+    object netty {
+        // Matches the Netty version grpc-netty is built against
+        val version get() = "4.1.110.Final"
+        val epoll get() = "io.netty:netty-transport-native-epoll:$version"
+    }
+
+    val caffeine get() = "com.github.ben-manes.caffeine:caffeine:3.1.8"
+
     object transcode {
         val version get() = "0.1.1-main.20251112.144.829.v5cc568a"
         val plugin get() = "com.daml.codegen-java-daml3_4:com.daml.codegen-java-daml3_4.gradle.plugin:$version"
@@ -38,6 +46,19 @@ object Deps {
         val test get() = "org.springframework.boot:spring-boot-starter-test:$version"
     }
 
+    object micrometer {
+        // Matches the Micrometer version managed by Spring Boot
+        val version get() = "1.14.3"
+        val prometheus get() = "io.micrometer:micrometer-registry-prometheus:$version"
+    }
+
+    object testcontainers {
+        // Matches the Testcontainers version managed by Spring Boot
+        val version get() = "1.20.4"
+        val postgresql get() = "org.testcontainers:postgresql:$version"
+        val junitJupiter get() = "org.testcontainers:junit-jupiter:$version"
+    }
+
     object opentelemetry {
         val version get() = VersionFiles.dotenv["OTEL_AGENT_VERSION"]
     }
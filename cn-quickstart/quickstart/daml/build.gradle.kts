@@ -25,7 +25,7 @@ tasks.register<Exec>("compileDaml") {
 }
 
 tasks.register<com.digitalasset.transcode.codegen.java.gradle.JavaCodegenTask>("codeGen") {
-    dar.from("$projectDir/invoicing/.daml/dist/quickstart-invoicing-0.0.1.dar")
+    dar.from("$projectDir/invoicing/.daml/dist/quickstart-invoicing-0.0.2.dar")
     destination = file("$rootDir/backend/build/generated-daml-bindings")
     dependsOn("compileDaml")
 }